@@ -0,0 +1,169 @@
+package com.assessment.clinic.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.assessment.appointment.ClinicApplication;
+import com.assessment.clinic.model.appointment.Appointment;
+import com.assessment.clinic.model.appointment.AppointmentDao;
+import com.assessment.clinic.model.calendar.Presence;
+import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.model.doctor.DoctorDao;
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.model.patient.Patient;
+import com.assessment.clinic.model.patient.PatientDao;
+import com.assessment.clinic.utli.ConfigProvider;
+import com.assessment.clinic.utli.ZonedEpochCalendar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Day lookups of a doctor and of a patient in a table of {@code rowCount} appointments, loading full entities against
+ * loading only the start and end times with the projection queries. Every lookup runs in its own read-only
+ * transaction, like the booking calls do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppointmentDayLookupBenchmark {
+
+	private static final int DOCTOR_COUNT = 100;
+
+	private static final int PRESENCES_PER_DOCTOR = 50;
+
+	private static final int PATIENT_COUNT = 10_000;
+
+	private static final int SEED_BATCH_SIZE = 5_000;
+
+	@Param({ "100000" })
+	private int rowCount;
+
+	private ConfigurableApplicationContext context;
+
+	private AppointmentDao appointmentDao;
+
+	private TransactionTemplate readOnlyTransaction;
+
+	private ZonedEpochCalendar calendar;
+
+	private List<Doctor> doctors;
+
+	private List<Patient> patients;
+
+	@Setup(Level.Trial)
+	public void startContext() {
+		context = new SpringApplicationBuilder(ClinicApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(BenchmarkFixtures.arguments("spring.datasource.url=jdbc:h2:mem:day-lookup;DB_CLOSE_DELAY=-1"));
+		appointmentDao = context.getBean(AppointmentDao.class);
+		readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTransaction.setReadOnly(true);
+		ConfigProvider configProvider = context.getBean(ConfigProvider.class);
+		calendar = configProvider.getBusinessRules().getCalendar();
+		List<Doctor> newDoctors = new ArrayList<>(DOCTOR_COUNT);
+		for (int i = 0; i < DOCTOR_COUNT; i++) {
+			newDoctors.add(BenchmarkFixtures.doctor(null, DoctorGrade.GENERAL, PRESENCES_PER_DOCTOR));
+		}
+		doctors = context.getBean(DoctorDao.class).saveAll(newDoctors);
+		List<Patient> newPatients = new ArrayList<>(PATIENT_COUNT);
+		for (int i = 0; i < PATIENT_COUNT; i++) {
+			newPatients.add(BenchmarkFixtures.patient(null));
+		}
+		patients = context.getBean(PatientDao.class).saveAll(newPatients);
+		seed(configProvider.getAppointmentDurationMinByDoctorGrade(DoctorGrade.GENERAL));
+	}
+
+	@TearDown(Level.Trial)
+	public void closeContext() {
+		context.close();
+	}
+
+	@Benchmark
+	public int doctorDayEntities() {
+		Doctor doctor = randomDoctor();
+		long day = randomDay(doctor);
+		return readOnlyTransaction.execute(status ->
+				appointmentDao.getAllByDoctorAndStartTimeBetween(doctor, calendar.startOfDay(day), calendar.endOfDay(day)).size());
+	}
+
+	@Benchmark
+	public int doctorDayPeriods() {
+		Doctor doctor = randomDoctor();
+		long day = randomDay(doctor);
+		return readOnlyTransaction.execute(status ->
+				appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(doctor.getId(), calendar.startOfDay(day), calendar.endOfDay(day)).size());
+	}
+
+	@Benchmark
+	public int patientDayEntities() {
+		Patient patient = randomPatient();
+		long day = randomDay(randomDoctor());
+		return readOnlyTransaction.execute(status ->
+				appointmentDao.getAllByPatientAndStartTimeBetween(patient, calendar.startOfDay(day), calendar.endOfDay(day)).size());
+	}
+
+	@Benchmark
+	public int patientDayPeriods() {
+		Patient patient = randomPatient();
+		long day = randomDay(randomDoctor());
+		return readOnlyTransaction.execute(status ->
+				appointmentDao.getPeriodsByPatientIdAndStartTimeBetween(patient.getId(), calendar.startOfDay(day), calendar.endOfDay(day)).size());
+	}
+
+	/**
+	 * Spreads {@code rowCount} appointments evenly over all doctor presences, with patients assigned round robin.
+	 */
+	private void seed(int durationInMin) {
+		int appointmentsPerPresence = Math.max(1, rowCount / (DOCTOR_COUNT * PRESENCES_PER_DOCTOR));
+		List<Appointment> batch = new ArrayList<>(SEED_BATCH_SIZE);
+		int patientIndex = 0;
+		for (Doctor doctor : doctors) {
+			for (Presence presence : doctor.getPresences()) {
+				for (Appointment appointment : BenchmarkFixtures.appointments(doctor, null, presence, appointmentsPerPresence, durationInMin)) {
+					appointment.setPatient(patients.get(patientIndex));
+					patientIndex = (patientIndex + 1) % PATIENT_COUNT;
+					batch.add(appointment);
+					if (batch.size() == SEED_BATCH_SIZE) {
+						appointmentDao.saveAll(batch);
+						batch.clear();
+					}
+				}
+			}
+		}
+		appointmentDao.saveAll(batch);
+	}
+
+	private Doctor randomDoctor() {
+		return doctors.get(ThreadLocalRandom.current().nextInt(DOCTOR_COUNT));
+	}
+
+	private Patient randomPatient() {
+		return patients.get(ThreadLocalRandom.current().nextInt(PATIENT_COUNT));
+	}
+
+	private static long randomDay(Doctor doctor) {
+		return doctor.getPresences().get(ThreadLocalRandom.current().nextInt(PRESENCES_PER_DOCTOR)).getStartTime();
+	}
+}
@@ -0,0 +1,173 @@
+package com.assessment.clinic.benchmark;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.assessment.appointment.ClinicApplication;
+import com.assessment.clinic.model.appointment.Appointment;
+import com.assessment.clinic.model.appointment.AppointmentDao;
+import com.assessment.clinic.model.calendar.Presence;
+import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.model.doctor.DoctorDao;
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.model.patient.Patient;
+import com.assessment.clinic.model.patient.PatientDao;
+import com.assessment.clinic.service.archive.AppointmentArchiveService;
+import com.assessment.clinic.utli.ConfigProvider;
+import com.assessment.clinic.utli.ZonedEpochCalendar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Day queries of the booking path on the upcoming days while {@code historyRows} past appointments, spread over
+ * {@link #HISTORY_MONTHS} months, sit either in {@code appointments} or in the archive. The latency should stay flat
+ * over the history size in both cases; the archived case also keeps the table and its indexes small, e.g.
+ * {@code -p historyRows=0,1000000,10000000}. Ten million rows need a few gigabytes of heap for the in-memory database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class AppointmentHistoryBenchmark {
+
+	private static final int DOCTOR_COUNT = 100;
+
+	private static final int PRESENCES_PER_DOCTOR = 20;
+
+	private static final int PATIENT_COUNT = 10_000;
+
+	private static final int APPOINTMENTS_PER_PRESENCE = 10;
+
+	private static final int HISTORY_MONTHS = 36;
+
+	@Param({ "0", "1000000" })
+	private int historyRows;
+
+	@Param({ "false", "true" })
+	private boolean archived;
+
+	private ConfigurableApplicationContext context;
+
+	private AppointmentDao appointmentDao;
+
+	private TransactionTemplate readOnlyTransaction;
+
+	private ZonedEpochCalendar calendar;
+
+	private List<Doctor> doctors;
+
+	private List<Patient> patients;
+
+	@Setup(Level.Trial)
+	public void startContext() {
+		context = new SpringApplicationBuilder(ClinicApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(BenchmarkFixtures.arguments("spring.datasource.url=jdbc:h2:mem:appointment-history;DB_CLOSE_DELAY=-1",
+						"warmup.enabled=false", "archive.enabled=false"));
+		appointmentDao = context.getBean(AppointmentDao.class);
+		readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTransaction.setReadOnly(true);
+		ConfigProvider configProvider = context.getBean(ConfigProvider.class);
+		calendar = configProvider.getBusinessRules().getCalendar();
+		List<Doctor> newDoctors = new ArrayList<>(DOCTOR_COUNT);
+		for (int i = 0; i < DOCTOR_COUNT; i++) {
+			newDoctors.add(BenchmarkFixtures.doctor(null, DoctorGrade.GENERAL, PRESENCES_PER_DOCTOR));
+		}
+		doctors = context.getBean(DoctorDao.class).saveAll(newDoctors);
+		List<Patient> newPatients = new ArrayList<>(PATIENT_COUNT);
+		for (int i = 0; i < PATIENT_COUNT; i++) {
+			newPatients.add(BenchmarkFixtures.patient(null));
+		}
+		patients = context.getBean(PatientDao.class).saveAll(newPatients);
+		int durationInMin = configProvider.getAppointmentDurationMinByDoctorGrade(DoctorGrade.GENERAL);
+		seedActiveDays(durationInMin);
+		long historyEnd = YearMonth.now(calendar.getZoneId()).minusMonths(1).atDay(1).atStartOfDay(calendar.getZoneId()).toInstant().toEpochMilli();
+		long historyStart = YearMonth.now(calendar.getZoneId()).minusMonths(1L + HISTORY_MONTHS).atDay(1).atStartOfDay(calendar.getZoneId())
+				.toInstant().toEpochMilli();
+		AppointmentHistoryGenerator.generate(context.getBean(JdbcTemplate.class), doctors, patients, historyStart, historyEnd, historyRows,
+				durationInMin * 60000L);
+		if (archived) {
+			context.getBean(AppointmentArchiveService.class).archiveBefore(historyEnd);
+		}
+		System.out.println("appointments: " + appointmentDao.count());
+	}
+
+	@TearDown(Level.Trial)
+	public void closeContext() {
+		context.close();
+	}
+
+	@Benchmark
+	public int doctorDayPeriods() {
+		Doctor doctor = randomDoctor();
+		long day = randomDay(doctor);
+		return readOnlyTransaction.execute(status ->
+				appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(doctor.getId(), calendar.startOfDay(day), calendar.endOfDay(day)).size());
+	}
+
+	@Benchmark
+	public int patientDayPeriods() {
+		Patient patient = randomPatient();
+		long day = randomDay(randomDoctor());
+		return readOnlyTransaction.execute(status ->
+				appointmentDao.getPeriodsByPatientIdAndStartTimeBetween(patient.getId(), calendar.startOfDay(day), calendar.endOfDay(day)).size());
+	}
+
+	@Benchmark
+	public long doctorOverlapCount() {
+		Doctor doctor = randomDoctor();
+		long time = BenchmarkFixtures.middleOf(doctor.getPresences().get(ThreadLocalRandom.current().nextInt(PRESENCES_PER_DOCTOR)));
+		return readOnlyTransaction.execute(status ->
+				appointmentDao.countOverlappingByDoctorId(doctor.getId(), calendar.startOfDay(time), time, time + 15 * 60000L));
+	}
+
+	private void seedActiveDays(int durationInMin) {
+		List<Appointment> appointments = new ArrayList<>();
+		int patientIndex = 0;
+		for (Doctor doctor : doctors) {
+			for (Presence presence : doctor.getPresences()) {
+				for (Appointment appointment : BenchmarkFixtures.appointments(doctor, null, presence, APPOINTMENTS_PER_PRESENCE, durationInMin)) {
+					appointment.setPatient(patients.get(patientIndex));
+					patientIndex = (patientIndex + 1) % PATIENT_COUNT;
+					appointments.add(appointment);
+				}
+			}
+		}
+		appointmentDao.saveAll(appointments);
+	}
+
+	private Doctor randomDoctor() {
+		return doctors.get(ThreadLocalRandom.current().nextInt(DOCTOR_COUNT));
+	}
+
+	private Patient randomPatient() {
+		return patients.get(ThreadLocalRandom.current().nextInt(PATIENT_COUNT));
+	}
+
+	private static long randomDay(Doctor doctor) {
+		return doctor.getPresences().get(ThreadLocalRandom.current().nextInt(PRESENCES_PER_DOCTOR)).getStartTime();
+	}
+}
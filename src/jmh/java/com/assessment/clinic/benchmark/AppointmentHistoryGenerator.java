@@ -0,0 +1,57 @@
+package com.assessment.clinic.benchmark;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.model.patient.Patient;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Writes past appointments straight into {@code appointments} with JDBC batches, fast enough to build tens of millions
+ * of rows of history. Rows start in the visiting hours of random days of [from, to) and get ids above
+ * {@link #FIRST_ID}, far from the ids the sequence hands out.
+ */
+final class AppointmentHistoryGenerator {
+
+	static final long FIRST_ID = 1_000_000_000L;
+
+	private static final int BATCH_SIZE = 10_000;
+
+	private static final long DAY_IN_MS = 86_400_000L;
+
+	private static final long HOUR_IN_MS = 3_600_000L;
+
+	private AppointmentHistoryGenerator() {
+	}
+
+	static void generate(JdbcTemplate jdbcTemplate, List<Doctor> doctors, List<Patient> patients, long from, long to, int rowCount,
+			long durationInMS) {
+		SplittableRandom random = new SplittableRandom(42);
+		long days = Math.max(1, (to - from) / DAY_IN_MS);
+		long visitingHours = (BenchmarkFixtures.END_HOUR - BenchmarkFixtures.START_HOUR) * HOUR_IN_MS - durationInMS;
+		long firstVisit = from + BenchmarkFixtures.START_HOUR * HOUR_IN_MS;
+		jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+			try (PreparedStatement insert = connection.prepareStatement(
+					"insert into appointments (id, doctor_id, patient_id, start_time, end_time) values (?, ?, ?, ?, ?)")) {
+				for (int row = 0; row < rowCount; row++) {
+					long startTime = firstVisit + random.nextLong(days) * DAY_IN_MS + random.nextLong(visitingHours);
+					insert.setLong(1, FIRST_ID + row);
+					insert.setLong(2, doctors.get(random.nextInt(doctors.size())).getId());
+					insert.setLong(3, patients.get(random.nextInt(patients.size())).getId());
+					insert.setLong(4, startTime);
+					insert.setLong(5, startTime + durationInMS);
+					insert.addBatch();
+					if ((row + 1) % BATCH_SIZE == 0) {
+						insert.executeBatch();
+					}
+				}
+				insert.executeBatch();
+			}
+			return null;
+		});
+	}
+}
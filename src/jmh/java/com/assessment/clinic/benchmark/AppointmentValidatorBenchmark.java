@@ -0,0 +1,134 @@
+package com.assessment.clinic.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.assessment.clinic.exception.BusinessException;
+import com.assessment.clinic.exception.RejectionReason;
+import com.assessment.clinic.model.appointment.Appointment;
+import com.assessment.clinic.model.appointment.AppointmentPeriod;
+import com.assessment.clinic.model.calendar.Presence;
+import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.model.patient.Patient;
+import com.assessment.clinic.service.appointment.impl.AppointmentIntervals;
+import com.assessment.clinic.service.appointment.impl.AppointmentValidator;
+import com.assessment.clinic.service.doctor.dto.DoctorSchedule;
+import com.assessment.clinic.utli.ConfigProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Single-slot validation cost for a doctor whose candidate day already holds {@code appointmentsPerDay} appointments
+ * and who published {@code presencesPerDoctor} presences. The candidate slot is in the last presence, the worst case
+ * for the presence scan.
+ * <p>
+ * The {@code ...Rejected} pairs validate a slot before the working hours, once through the throwing method and once
+ * through the result code method. Run them with {@code -prof gc} to compare the allocation per rejected slot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppointmentValidatorBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	private int appointmentsPerDay;
+
+	@Param({ "5", "50", "500" })
+	private int presencesPerDoctor;
+
+	private AppointmentValidator validator;
+
+	private Doctor doctor;
+
+	private DoctorSchedule schedule;
+
+	private Patient patient;
+
+	private List<AppointmentPeriod> dayPeriods;
+
+	private AppointmentIntervals dayIntervals;
+
+	private long candidateTime;
+
+	private long rejectedTime;
+
+	@Setup
+	public void setUp() {
+		ConfigProvider configProvider = BenchmarkFixtures.configProvider();
+		validator = new AppointmentValidator(configProvider);
+		doctor = BenchmarkFixtures.doctor(1L, DoctorGrade.SPECIALIST, presencesPerDoctor);
+		schedule = DoctorSchedule.of(doctor);
+		patient = BenchmarkFixtures.patient(1L);
+		Presence lastPresence = doctor.getPresences().get(presencesPerDoctor - 1);
+		int durationInMin = configProvider.getAppointmentDurationMinByDoctorGrade(doctor.getGrade());
+		List<Appointment> dayAppointments = BenchmarkFixtures.appointments(doctor, BenchmarkFixtures.patient(2L), lastPresence, appointmentsPerDay, durationInMin);
+		dayPeriods = new ArrayList<>(appointmentsPerDay);
+		dayIntervals = new AppointmentIntervals();
+		for (Appointment appointment : dayAppointments) {
+			dayPeriods.add(new AppointmentPeriod(appointment.getId(), appointment.getStartTime(), appointment.getEndTime()));
+			dayIntervals.add(appointment.getStartTime(), appointment.getEndTime());
+		}
+		candidateTime = BenchmarkFixtures.middleOf(lastPresence);
+		rejectedTime = lastPresence.getStartTime() - 60 * 60000L;
+	}
+
+	@Benchmark
+	public void isAppointmentValidForDoctorByIntervals(Blackhole blackhole) {
+		try {
+			validator.isAppointmentValidForDoctor(candidateTime, dayIntervals, schedule);
+			blackhole.consume(true);
+		} catch (BusinessException exception) {
+			blackhole.consume(exception);
+		}
+	}
+
+	@Benchmark
+	public void isAppointmentValidForPatient(Blackhole blackhole) {
+		try {
+			validator.isAppointmentValidForPatient(candidateTime, dayPeriods, schedule, patient);
+			blackhole.consume(true);
+		} catch (BusinessException exception) {
+			blackhole.consume(exception);
+		}
+	}
+
+	@Benchmark
+	public void isValidTime(Blackhole blackhole) {
+		try {
+			validator.isValidTime(candidateTime, schedule);
+			blackhole.consume(true);
+		} catch (BusinessException exception) {
+			blackhole.consume(exception);
+		}
+	}
+
+	@Benchmark
+	public void isValidTimeRejected(Blackhole blackhole) {
+		try {
+			validator.isValidTime(rejectedTime, schedule);
+			blackhole.consume(true);
+		} catch (BusinessException exception) {
+			blackhole.consume(exception);
+		}
+	}
+
+	@Benchmark
+	public RejectionReason checkTimeRejected() {
+		return validator.checkTime(rejectedTime, schedule);
+	}
+}
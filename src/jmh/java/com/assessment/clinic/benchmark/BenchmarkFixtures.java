@@ -0,0 +1,118 @@
+package com.assessment.clinic.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.assessment.clinic.model.appointment.Appointment;
+import com.assessment.clinic.model.calendar.Presence;
+import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.model.patient.Patient;
+import com.assessment.clinic.utli.ConfigProvider;
+import com.assessment.clinic.utli.TimeUtil;
+
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+/**
+ * Synthetic doctors, presences and appointments shared by the benchmarks. Presences cover the visiting hours of
+ * consecutive business days starting tomorrow, appointments are spread evenly over a presence.
+ */
+final class BenchmarkFixtures {
+
+	static final int START_HOUR = 9;
+
+	static final int END_HOUR = 18;
+
+	private BenchmarkFixtures() {
+	}
+
+	static ConfigProvider configProvider() {
+		StandardEnvironment environment = new StandardEnvironment();
+		try {
+			environment.getPropertySources().addLast(new ResourcePropertySource(new ClassPathResource("application.properties")));
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		return new ConfigProvider(environment);
+	}
+
+	/**
+	 * Turns {@code key=value} properties into command line arguments. Properties given to
+	 * {@code SpringApplicationBuilder.properties} are only defaults, which {@code application.properties} overrides.
+	 */
+	static String[] arguments(String... properties) {
+		String[] arguments = new String[properties.length];
+		for (int i = 0; i < properties.length; i++) {
+			arguments[i] = "--" + properties[i];
+		}
+		return arguments;
+	}
+
+	static Doctor doctor(Long id, DoctorGrade grade, int presenceCount) {
+		Doctor doctor = new Doctor();
+		doctor.setId(id);
+		doctor.setName("doctor " + id);
+		doctor.setGrade(grade);
+		doctor.setPresences(presences(doctor, presenceCount));
+		return doctor;
+	}
+
+	static Patient patient(Long id) {
+		Patient patient = new Patient();
+		patient.setId(id);
+		patient.setName("patient " + id);
+		return patient;
+	}
+
+	static List<Presence> presences(Doctor doctor, int presenceCount) {
+		List<Presence> presences = new ArrayList<>(presenceCount);
+		LocalDate day = LocalDate.now().plusDays(1);
+		while (presences.size() < presenceCount) {
+			if (isBusinessDay(day)) {
+				Presence presence = new Presence();
+				presence.setDoctor(doctor);
+				presence.setStartTime(TimeUtil.toEpochMilli(day.atTime(START_HOUR, 0)));
+				presence.setEndTime(TimeUtil.toEpochMilli(day.atTime(END_HOUR, 0)));
+				presences.add(presence);
+			}
+			day = day.plusDays(1);
+		}
+		return presences;
+	}
+
+	static List<Appointment> appointments(Doctor doctor, Patient patient, Presence presence, int count, int durationInMin) {
+		List<Appointment> appointments = new ArrayList<>(count);
+		long durationInMS = durationInMin * 60000L;
+		long step = Math.max(1, (presence.getEndTime() - presence.getStartTime() - durationInMS) / Math.max(1, count));
+		for (int i = 0; i < count; i++) {
+			Appointment appointment = new Appointment();
+			appointment.setDoctor(doctor);
+			appointment.setPatient(patient);
+			appointment.setStartTime(presence.getStartTime() + i * step);
+			appointment.setEndTime(appointment.getStartTime() + durationInMS);
+			appointments.add(appointment);
+		}
+		return appointments;
+	}
+
+	static long middleOf(Presence presence) {
+		LocalDateTime start = TimeUtil.longToLocalDateTime(presence.getStartTime());
+		return TimeUtil.toEpochMilli(start.withHour((START_HOUR + END_HOUR) / 2).withMinute(0));
+	}
+
+	private static boolean isBusinessDay(LocalDate day) {
+		switch (day.getDayOfWeek()) {
+			case THURSDAY:
+			case FRIDAY:
+				return false;
+			default:
+				return true;
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package com.assessment.clinic.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.assessment.appointment.ClinicApplication;
+import com.assessment.clinic.exception.BusinessException;
+import com.assessment.clinic.model.appointment.Appointment;
+import com.assessment.clinic.model.appointment.AppointmentDao;
+import com.assessment.clinic.model.calendar.Presence;
+import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.model.doctor.DoctorDao;
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.model.patient.Patient;
+import com.assessment.clinic.model.patient.PatientDao;
+import com.assessment.clinic.service.appointment.AppointmentService;
+import com.assessment.clinic.service.appointment.dto.CreateNewAppointmentRequest;
+import com.assessment.clinic.service.appointment.impl.DoctorAppointmentIndex;
+import com.assessment.clinic.utli.ConfigProvider;
+import com.assessment.clinic.utli.ZonedEpochCalendar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Parallel {@link AppointmentService#setAppointment} calls on random slots of a few doctors. Run it with increasing
+ * thread counts ({@code -t 1}, {@code -t 4}, {@code -t 16}) to see the throughput scale; with one doctor every thread
+ * competes for the same days, with many doctors the day locks are mostly uncontended. {@code conflictCheckMode}
+ * compares counting conflicts in the in-memory index with counting them in the database.
+ * <p>
+ * After every iteration the booked appointments are read back and the iteration fails if any slot holds more
+ * appointments than the doctor conflict limit allows, or if any patient day holds more appointments than the patient
+ * limit allows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentBookingBenchmark {
+
+	private static final int PRESENCES_PER_DOCTOR = 5;
+
+	private static final int PATIENT_COUNT = 5_000;
+
+	@Param({ "1", "64" })
+	private int doctorCount;
+
+	@Param({ "INDEX", "AGGREGATE" })
+	private String conflictCheckMode;
+
+	private ConfigurableApplicationContext context;
+
+	private AppointmentService appointmentService;
+
+	private AppointmentDao appointmentDao;
+
+	private DoctorAppointmentIndex doctorAppointmentIndex;
+
+	private ConfigProvider configProvider;
+
+	private List<Doctor> doctors;
+
+	private List<Patient> patients;
+
+	private int durationInMin;
+
+	private int slotsPerPresence;
+
+	private int maxConflictTimeCount;
+
+	@Setup(Level.Trial)
+	public void startContext() {
+		context = new SpringApplicationBuilder(ClinicApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(BenchmarkFixtures.arguments("spring.datasource.url=jdbc:h2:mem:concurrent-booking;DB_CLOSE_DELAY=-1",
+						"conflict.check.mode=" + conflictCheckMode));
+		appointmentService = context.getBean(AppointmentService.class);
+		appointmentDao = context.getBean(AppointmentDao.class);
+		doctorAppointmentIndex = context.getBean(DoctorAppointmentIndex.class);
+		List<Doctor> newDoctors = new ArrayList<>(doctorCount);
+		for (int i = 0; i < doctorCount; i++) {
+			newDoctors.add(BenchmarkFixtures.doctor(null, DoctorGrade.GENERAL, PRESENCES_PER_DOCTOR));
+		}
+		doctors = context.getBean(DoctorDao.class).saveAll(newDoctors);
+		List<Patient> newPatients = new ArrayList<>(PATIENT_COUNT);
+		for (int i = 0; i < PATIENT_COUNT; i++) {
+			newPatients.add(BenchmarkFixtures.patient(null));
+		}
+		patients = context.getBean(PatientDao.class).saveAll(newPatients);
+		configProvider = context.getBean(ConfigProvider.class);
+		durationInMin = configProvider.getAppointmentDurationMinByDoctorGrade(DoctorGrade.GENERAL);
+		maxConflictTimeCount = configProvider.getBusinessRules().getMaxConflictTimeCount(DoctorGrade.GENERAL);
+		slotsPerPresence = (BenchmarkFixtures.END_HOUR - BenchmarkFixtures.START_HOUR) * 60 / durationInMin;
+	}
+
+	@Setup(Level.Iteration)
+	public void resetSchedule() {
+		appointmentDao.deleteAllInBatch();
+		doctorAppointmentIndex.clear();
+	}
+
+	@TearDown(Level.Iteration)
+	public void verifyConflictLimit() {
+		Map<String, Integer> appointmentsPerSlot = new HashMap<>();
+		Map<String, Integer> appointmentsPerPatientDay = new HashMap<>();
+		int maxAppointmentCountInDay = configProvider.getBusinessRules().getMaxAppointmentCountInDay();
+		ZonedEpochCalendar calendar = configProvider.getBusinessRules().getCalendar();
+		for (Appointment appointment : appointmentDao.findAll()) {
+			String slot = appointment.getDoctor().getId() + "@" + appointment.getStartTime();
+			if (appointmentsPerSlot.merge(slot, 1, Integer::sum) > maxConflictTimeCount) {
+				throw new IllegalStateException("doctor slot " + slot + " is booked more than " + maxConflictTimeCount + " times");
+			}
+			String patientDay = appointment.getPatient().getId() + "@" + calendar.startOfDay(appointment.getStartTime());
+			if (appointmentsPerPatientDay.merge(patientDay, 1, Integer::sum) > maxAppointmentCountInDay) {
+				throw new IllegalStateException("patient day " + patientDay + " is booked more than " + maxAppointmentCountInDay + " times");
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void closeContext() {
+		context.close();
+	}
+
+	@Benchmark
+	public boolean setAppointment() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Doctor doctor = doctors.get(random.nextInt(doctors.size()));
+		Presence presence = doctor.getPresences().get(random.nextInt(PRESENCES_PER_DOCTOR));
+		CreateNewAppointmentRequest request = new CreateNewAppointmentRequest();
+		request.setDoctorId(doctor.getId());
+		request.setPatientId(patients.get(random.nextInt(PATIENT_COUNT)).getId());
+		request.setDurationInMin(durationInMin);
+		request.setAppointmentTime(presence.getStartTime() + random.nextInt(slotsPerPresence) * durationInMin * 60000L);
+		try {
+			appointmentService.setAppointment(request);
+			return true;
+		} catch (BusinessException exception) {
+			return false;
+		}
+	}
+}
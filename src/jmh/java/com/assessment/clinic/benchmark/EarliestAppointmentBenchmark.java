@@ -0,0 +1,129 @@
+package com.assessment.clinic.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.assessment.appointment.ClinicApplication;
+import com.assessment.clinic.exception.BusinessException;
+import com.assessment.clinic.model.appointment.Appointment;
+import com.assessment.clinic.model.appointment.AppointmentDao;
+import com.assessment.clinic.model.calendar.Presence;
+import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.model.doctor.DoctorDao;
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.model.patient.Patient;
+import com.assessment.clinic.model.patient.PatientDao;
+import com.assessment.clinic.service.appointment.AppointmentService;
+import com.assessment.clinic.service.appointment.dto.CreateAutoAppointmentRequest;
+import com.assessment.clinic.service.appointment.impl.DoctorAppointmentIndex;
+import com.assessment.clinic.utli.ConfigProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * End-to-end {@link AppointmentService#setEarliestAppointment} against an in-memory H2 database. Every iteration
+ * starts from the same seeded schedule; each invocation books the earliest slot for the next patient of a pool, so
+ * the search has to walk past the slots taken by earlier invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EarliestAppointmentBenchmark {
+
+	private static final int PATIENT_COUNT = 2_000;
+
+	@Param({ "0", "10", "30" })
+	private int appointmentsPerDay;
+
+	@Param({ "5", "50" })
+	private int presencesPerDoctor;
+
+	@Param({ "BITMAP", "LEGACY" })
+	private String searchMode;
+
+	private ConfigurableApplicationContext context;
+
+	private AppointmentService appointmentService;
+
+	private AppointmentDao appointmentDao;
+
+	private DoctorAppointmentIndex doctorAppointmentIndex;
+
+	private Doctor doctor;
+
+	private List<Patient> patients;
+
+	private int durationInMin;
+
+	private int nextPatient;
+
+	@Setup(Level.Trial)
+	public void startContext() {
+		context = new SpringApplicationBuilder(ClinicApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(BenchmarkFixtures.arguments("spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+						"earliest.appointment.search.mode=" + searchMode));
+		appointmentService = context.getBean(AppointmentService.class);
+		appointmentDao = context.getBean(AppointmentDao.class);
+		doctorAppointmentIndex = context.getBean(DoctorAppointmentIndex.class);
+		Doctor newDoctor = BenchmarkFixtures.doctor(null, DoctorGrade.GENERAL, presencesPerDoctor);
+		doctor = context.getBean(DoctorDao.class).save(newDoctor);
+		List<Patient> newPatients = new ArrayList<>(PATIENT_COUNT);
+		for (int i = 0; i < PATIENT_COUNT; i++) {
+			newPatients.add(BenchmarkFixtures.patient(null));
+		}
+		patients = context.getBean(PatientDao.class).saveAll(newPatients);
+		durationInMin = context.getBean(ConfigProvider.class).getAppointmentDurationMinByDoctorGrade(DoctorGrade.GENERAL);
+	}
+
+	@Setup(Level.Iteration)
+	public void resetSchedule() {
+		appointmentDao.deleteAllInBatch();
+		List<Appointment> seed = new ArrayList<>();
+		for (Presence presence : doctor.getPresences()) {
+			seed.addAll(BenchmarkFixtures.appointments(doctor, patients.get(0), presence, appointmentsPerDay, durationInMin));
+		}
+		appointmentDao.saveAll(seed);
+		doctorAppointmentIndex.clear();
+		nextPatient = 1;
+	}
+
+	@TearDown(Level.Trial)
+	public void closeContext() {
+		context.close();
+	}
+
+	@Benchmark
+	public boolean setEarliestAppointment() {
+		CreateAutoAppointmentRequest request = new CreateAutoAppointmentRequest();
+		request.setDoctorId(doctor.getId());
+		request.setPatientId(patients.get(nextPatient).getId());
+		request.setDurationInMin(durationInMin);
+		nextPatient = nextPatient + 1 < PATIENT_COUNT ? nextPatient + 1 : 1;
+		try {
+			appointmentService.setEarliestAppointment(request);
+			return true;
+		} catch (BusinessException exception) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package com.assessment.clinic.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.assessment.appointment.ClinicApplication;
+import com.assessment.clinic.model.calendar.Presence;
+import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.model.doctor.DoctorDao;
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.model.patient.Patient;
+import com.assessment.clinic.model.patient.PatientDao;
+import com.assessment.clinic.utli.ConfigProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Load test of the HTTP API against the embedded server and an in-memory H2 database. Every JMH thread is one client
+ * sending requests back to back, so run it with many threads to see how the servlet threads, the booking executor
+ * and the connection pool hold up, e.g. {@code -t 500 -p virtualThreads=true,false}.
+ * <p>
+ * Responses are counted per HTTP status and printed after every iteration; 503 responses are requests the booking
+ * executor rejected at its concurrency limit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HttpBookingLoadBenchmark {
+
+	private static final int DOCTOR_COUNT = 64;
+
+	private static final int PRESENCES_PER_DOCTOR = 20;
+
+	private static final int PATIENT_COUNT = 20_000;
+
+	@Param({ "false", "true" })
+	private boolean virtualThreads;
+
+	@Param({ "500" })
+	private int maxConcurrency;
+
+	private ConfigurableApplicationContext context;
+
+	private HttpClient client;
+
+	private String baseUrl;
+
+	private List<Doctor> doctors;
+
+	private List<Patient> patients;
+
+	private int durationInMin;
+
+	private int slotsPerPresence;
+
+	private final Map<Integer, LongAdder> responsesByStatus = new ConcurrentHashMap<>();
+
+	@Setup(Level.Trial)
+	public void startServer() {
+		context = new SpringApplicationBuilder(ClinicApplication.class)
+				.web(WebApplicationType.SERVLET)
+				.run(BenchmarkFixtures.arguments("server.port=0",
+						"spring.datasource.url=jdbc:h2:mem:http-load;DB_CLOSE_DELAY=-1",
+						"booking.executor.virtual-threads=" + virtualThreads,
+						"booking.executor.max-concurrency=" + maxConcurrency));
+		baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/appointments";
+		client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+		List<Doctor> newDoctors = new ArrayList<>(DOCTOR_COUNT);
+		for (int i = 0; i < DOCTOR_COUNT; i++) {
+			newDoctors.add(BenchmarkFixtures.doctor(null, DoctorGrade.GENERAL, PRESENCES_PER_DOCTOR));
+		}
+		doctors = context.getBean(DoctorDao.class).saveAll(newDoctors);
+		List<Patient> newPatients = new ArrayList<>(PATIENT_COUNT);
+		for (int i = 0; i < PATIENT_COUNT; i++) {
+			newPatients.add(BenchmarkFixtures.patient(null));
+		}
+		patients = context.getBean(PatientDao.class).saveAll(newPatients);
+		durationInMin = context.getBean(ConfigProvider.class).getAppointmentDurationMinByDoctorGrade(DoctorGrade.GENERAL);
+		slotsPerPresence = (BenchmarkFixtures.END_HOUR - BenchmarkFixtures.START_HOUR) * 60 / durationInMin;
+	}
+
+	@TearDown(Level.Iteration)
+	public void printResponses() {
+		System.out.println("responses by status: " + responsesByStatus);
+		responsesByStatus.clear();
+	}
+
+	@TearDown(Level.Trial)
+	public void stopServer() {
+		context.close();
+	}
+
+	@Benchmark
+	public int setAppointment() throws IOException, InterruptedException {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Doctor doctor = randomDoctor();
+		Presence presence = doctor.getPresences().get(random.nextInt(PRESENCES_PER_DOCTOR));
+		long appointmentTime = presence.getStartTime() + random.nextInt(slotsPerPresence) * durationInMin * 60000L;
+		return send(HttpRequest.newBuilder(URI.create(baseUrl))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString("{\"doctorId\":" + doctor.getId() + ",\"patientId\":" + randomPatient().getId()
+						+ ",\"appointmentTime\":" + appointmentTime + ",\"durationInMin\":" + durationInMin + "}")));
+	}
+
+	@Benchmark
+	public int setEarliestAppointment() throws IOException, InterruptedException {
+		return send(HttpRequest.newBuilder(URI.create(baseUrl + "/earliest"))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString("{\"doctorId\":" + randomDoctor().getId() + ",\"patientId\":" + randomPatient().getId()
+						+ ",\"durationInMin\":" + durationInMin + "}")));
+	}
+
+	@Benchmark
+	public int findAvailableSlots() throws IOException, InterruptedException {
+		Doctor doctor = randomDoctor();
+		long fromDay = doctor.getPresences().get(0).getStartTime();
+		long toDay = doctor.getPresences().get(PRESENCES_PER_DOCTOR - 1).getStartTime();
+		return send(HttpRequest.newBuilder(URI.create(baseUrl + "/available-slots?doctorId=" + doctor.getId() + "&fromDay=" + fromDay
+				+ "&toDay=" + toDay + "&durationInMin=" + durationInMin + "&limit=50")).GET());
+	}
+
+	private int send(HttpRequest.Builder request) throws IOException, InterruptedException {
+		int status = client.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+		responsesByStatus.computeIfAbsent(status, key -> new LongAdder()).increment();
+		return status;
+	}
+
+	private Doctor randomDoctor() {
+		return doctors.get(ThreadLocalRandom.current().nextInt(DOCTOR_COUNT));
+	}
+
+	private Patient randomPatient() {
+		return patients.get(ThreadLocalRandom.current().nextInt(PATIENT_COUNT));
+	}
+}
@@ -0,0 +1,45 @@
+package com.assessment.clinic.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.assessment.clinic.utli.TimeUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeUtilBenchmark {
+
+	private static final long MINUTE_IN_MS = 60000L;
+
+	private long time;
+
+	@Setup
+	public void setUp() {
+		time = System.currentTimeMillis();
+	}
+
+	@Benchmark
+	public long getFirstMomentOfDay() {
+		time += MINUTE_IN_MS;
+		return TimeUtil.getFirstMomentOfDay(time);
+	}
+
+	@Benchmark
+	public long getLastMomentOfDay() {
+		time += MINUTE_IN_MS;
+		return TimeUtil.getLastMomentOfDay(time);
+	}
+}
@@ -2,8 +2,12 @@ package com.assessment.appointment;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
-@SpringBootApplication
+@SpringBootApplication(scanBasePackages = "com.assessment.clinic")
+@EntityScan("com.assessment.clinic.model")
+@EnableJpaRepositories("com.assessment.clinic.model")
 public class ClinicApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,114 @@
+package com.assessment.clinic.config;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.assessment.clinic.exception.OutcomeUnknownException;
+
+/**
+ * Runs the blocking booking work of the HTTP layer off the servlet threads. At most {@code maxConcurrency} tasks are
+ * admitted at a time, running or waiting; further tasks are rejected at once, so a burst of clients turns into fast
+ * rejections instead of a growing queue that holds memory and waits for database connections.
+ * <p>
+ * Futures returned by {@link #submit} time out after {@code timeoutMs}, which should stay below the async request
+ * timeout of the servlet layer. A task that has not started when its future times out is skipped, and the future
+ * fails with a {@link TimeoutException}, so a booking the client has given up on is not committed later. A task that
+ * is already running still finishes and may commit, so its future fails with an {@link OutcomeUnknownException}
+ * instead.
+ */
+public class BookingExecutor implements Executor {
+
+	private final ExecutorService delegate;
+
+	private final Semaphore permits;
+
+	private final long timeoutMs;
+
+	public BookingExecutor(ExecutorService delegate, int maxConcurrency, long timeoutMs) {
+		this.delegate = delegate;
+		this.permits = new Semaphore(maxConcurrency);
+		this.timeoutMs = timeoutMs;
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		if (!permits.tryAcquire()) {
+			throw new RejectedExecutionException("too many booking requests in progress");
+		}
+		try {
+			delegate.execute(() -> {
+				try {
+					task.run();
+				} finally {
+					permits.release();
+				}
+			});
+		} catch (RejectedExecutionException exception) {
+			permits.release();
+			throw exception;
+		}
+	}
+
+	/**
+	 * Runs the task on this executor; a rejection completes the returned future exceptionally instead of being thrown,
+	 * and so does the timeout once it has passed.
+	 */
+	public <T> CompletableFuture<T> submit(Callable<T> task) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		// claimed by whichever comes first, the task starting or the timeout passing
+		AtomicBoolean claimed = new AtomicBoolean();
+		try {
+			execute(() -> {
+				if (!claimed.compareAndSet(false, true) || result.isDone()) {
+					return;
+				}
+				try {
+					result.complete(task.call());
+				} catch (Throwable exception) {
+					result.completeExceptionally(exception);
+				}
+			});
+		} catch (RejectedExecutionException exception) {
+			result.completeExceptionally(exception);
+			return result;
+		}
+		expireAfterTimeout(result, claimed);
+		return result;
+	}
+
+	/**
+	 * Fails {@code result} when the timeout passes before it completes: with a {@link TimeoutException} when the timeout
+	 * claims the task before it started, otherwise with an {@link OutcomeUnknownException}.
+	 */
+	private void expireAfterTimeout(CompletableFuture<?> result, AtomicBoolean claimed) {
+		if (timeoutMs <= 0) {
+			return;
+		}
+		CompletableFuture<Void> timer = new CompletableFuture<Void>().orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+		timer.whenComplete((ignored, timeout) -> {
+			if (timeout == null) {
+				return;
+			}
+			result.completeExceptionally(claimed.compareAndSet(false, true)
+					? new TimeoutException("booking request timed out before it started")
+					: new OutcomeUnknownException("booking request timed out while running, it may still complete; look up the appointments before retrying"));
+		});
+		// completing the timer cancels its scheduled timeout
+		result.whenComplete((value, exception) -> timer.complete(null));
+	}
+
+	public int getAvailablePermits() {
+		return permits.availablePermits();
+	}
+
+	public void shutdown() {
+		delegate.shutdown();
+	}
+}
@@ -0,0 +1,44 @@
+package com.assessment.clinic.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class BookingExecutorConfiguration {
+
+	/**
+	 * Virtual threads when enabled and the runtime has them, otherwise a fixed pool of platform threads. The pool
+	 * should not be much larger than the database connection pool, since every booking holds a connection.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	public BookingExecutor bookingExecutor(@Value("${booking.executor.virtual-threads:false}") boolean virtualThreads,
+			@Value("${booking.executor.threads:20}") int threads, @Value("${booking.executor.max-concurrency:500}") int maxConcurrency,
+			@Value("${booking.executor.timeout-ms:9000}") long timeoutMs) {
+		ExecutorService delegate = virtualThreads ? newVirtualThreadExecutor() : null;
+		if (delegate == null) {
+			AtomicInteger threadNumber = new AtomicInteger();
+			delegate = Executors.newFixedThreadPool(threads, runnable -> new Thread(runnable, "booking-" + threadNumber.incrementAndGet()));
+		}
+		return new BookingExecutor(delegate, maxConcurrency, timeoutMs);
+	}
+
+	/**
+	 * Looked up reflectively because the project is compiled for Java 17.
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException exception) {
+			log.warn("virtual threads are not available on this runtime, booking falls back to platform threads");
+			return null;
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.assessment.clinic.config;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.utli.BusinessRules;
+import com.assessment.clinic.utli.ConfigProvider;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code /actuator/businessrules}: shows the business rules in effect, and on POST re-reads them from the environment
+ * and swaps the {@link BusinessRules} snapshot. Property sources that change at runtime, such as system properties or
+ * sources updated by the deployment, take effect without a restart; bookings in flight finish on the old snapshot.
+ * The clinic time zone is fixed at startup, a refresh that changes it fails.
+ * <p>
+ * The application has no authentication, so the endpoint is only exposed over JMX, which is local to the host. Add it
+ * to {@code management.endpoints.web.exposure.include} only behind an authenticating proxy or Spring Security, as the
+ * write operation changes the rules every booking is checked against.
+ */
+@Component
+@Endpoint(id = "businessrules")
+@RequiredArgsConstructor
+public class BusinessRulesEndpoint {
+
+	private final ConfigProvider configProvider;
+
+	@ReadOperation
+	public Map<String, Object> businessRules() {
+		return describe(configProvider.getBusinessRules());
+	}
+
+	@WriteOperation
+	public Map<String, Object> refresh() {
+		return describe(configProvider.refresh());
+	}
+
+	private static Map<String, Object> describe(BusinessRules rules) {
+		Map<String, Object> description = new LinkedHashMap<>();
+		description.put("startDayOfWeek", rules.getStartDayOfWeek());
+		description.put("endDayOfWeek", rules.getEndDayOfWeek());
+		description.put("startWorkingHour", rules.getStartWorkingHour());
+		description.put("endWorkingHour", rules.getEndWorkingHour());
+		description.put("maxAppointmentCountInDay", rules.getMaxAppointmentCountInDay());
+		description.put("earliestAppointmentSearchMode", rules.getEarliestAppointmentSearchMode());
+		description.put("conflictCheckMode", rules.getConflictCheckMode());
+		description.put("timeZone", rules.getCalendar().getZoneId().getId());
+		Map<DoctorGrade, Integer> visitDurationsInMin = new EnumMap<>(DoctorGrade.class);
+		Map<DoctorGrade, Integer> maxConflictTimeCounts = new EnumMap<>(DoctorGrade.class);
+		for (DoctorGrade grade : DoctorGrade.values()) {
+			visitDurationsInMin.put(grade, rules.getVisitDurationInMin(grade));
+			maxConflictTimeCounts.put(grade, rules.getMaxConflictTimeCount(grade));
+		}
+		description.put("visitDurationsInMin", visitDurationsInMin);
+		description.put("maxConflictTimeCounts", maxConflictTimeCounts);
+		return description;
+	}
+}
@@ -0,0 +1,18 @@
+package com.assessment.clinic.config;
+
+import java.time.Clock;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ClockConfiguration {
+
+	/**
+	 * Source of "now" for skipping past presences; replaced by a fixed clock in tests.
+	 */
+	@Bean
+	public Clock clock() {
+		return Clock.systemDefaultZone();
+	}
+}
@@ -0,0 +1,14 @@
+package com.assessment.clinic.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the nightly archive job; {@code archive.enabled=false} leaves archiving to manual calls.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "archive.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfiguration {
+}
@@ -0,0 +1,155 @@
+package com.assessment.clinic.config;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.assessment.clinic.service.appointment.impl.AppointmentIntervals;
+import com.assessment.clinic.service.appointment.impl.AppointmentValidator;
+import com.assessment.clinic.service.appointment.impl.DoctorAppointmentIndex;
+import com.assessment.clinic.service.appointment.impl.SlotAvailabilityEngine;
+import com.assessment.clinic.service.doctor.DoctorService;
+import com.assessment.clinic.service.doctor.dto.DoctorSchedule;
+import com.assessment.clinic.utli.ConfigProvider;
+import com.assessment.clinic.utli.ZonedEpochCalendar;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the doctor schedule cache and the {@link DoctorAppointmentIndex} for today and the next days, then runs the
+ * slot search and the validator a few thousand times so the first requests do not pay for class loading and
+ * interpretation.
+ * <p>
+ * Application runners finish before the application is marked ready, so readiness is only reported once the warm-up
+ * is done. A failed warm-up is logged and the application starts with cold caches. {@code warmup.enabled=false}
+ * disables it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StartupWarmUp implements ApplicationRunner {
+
+	private final DoctorService doctorService;
+
+	private final DoctorAppointmentIndex doctorAppointmentIndex;
+
+	private final SlotAvailabilityEngine slotAvailabilityEngine;
+
+	private final AppointmentValidator validator;
+
+	private final ConfigProvider configProvider;
+
+	private final Clock clock;
+
+	@Value("${warmup.enabled:true}")
+	private boolean enabled;
+
+	@Value("${warmup.days:7}")
+	private int days;
+
+	@Value("${warmup.parallelism:4}")
+	private int parallelism;
+
+	@Value("${warmup.jit-iterations:20000}")
+	private int jitIterations;
+
+	@Override
+	public void run(ApplicationArguments args) {
+		if (!enabled) {
+			return;
+		}
+		long start = System.nanoTime();
+		AtomicInteger threadNumber = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism),
+				runnable -> new Thread(runnable, "warm-up-" + threadNumber.incrementAndGet()));
+		try {
+			List<DoctorSchedule> schedules = preloadSchedules(executor);
+			int indexedDays = preloadDays(executor);
+			warmUpSlotSearch(schedules);
+			log.info("warmed up {} doctor schedules and {} doctor days in {} ms", schedules.size(), indexedDays,
+					(System.nanoTime() - start) / 1_000_000);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			log.warn("warm-up interrupted, starting with cold caches");
+		} catch (RuntimeException | ExecutionException exception) {
+			log.warn("warm-up failed, starting with cold caches", exception);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Splits the doctor ids into one contiguous range per thread and loads each range with two queries.
+	 */
+	private List<DoctorSchedule> preloadSchedules(ExecutorService executor) throws InterruptedException, ExecutionException {
+		List<Long> doctorIds = doctorService.getAllDoctorIds();
+		if (doctorIds.isEmpty()) {
+			return List.of();
+		}
+		int chunkSize = (doctorIds.size() + parallelism - 1) / Math.max(1, parallelism);
+		List<Callable<List<DoctorSchedule>>> tasks = new ArrayList<>();
+		for (int from = 0; from < doctorIds.size(); from += chunkSize) {
+			long fromId = doctorIds.get(from);
+			long toId = doctorIds.get(Math.min(from + chunkSize, doctorIds.size()) - 1);
+			tasks.add(() -> doctorService.preloadDoctorSchedules(fromId, toId));
+		}
+		List<DoctorSchedule> schedules = new ArrayList<>(doctorIds.size());
+		for (Future<List<DoctorSchedule>> task : executor.invokeAll(tasks)) {
+			schedules.addAll(task.get());
+		}
+		return schedules;
+	}
+
+	/**
+	 * Loads the appointments of every day in the horizon, one day per task.
+	 */
+	private int preloadDays(ExecutorService executor) throws InterruptedException, ExecutionException {
+		ZonedEpochCalendar calendar = configProvider.getBusinessRules().getCalendar();
+		long now = clock.millis();
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		for (int day = 0; day < days; day++) {
+			long time = calendar.plusDays(now, day);
+			tasks.add(() -> doctorAppointmentIndex.preload(calendar.startOfDay(time), calendar.endOfDay(time)));
+		}
+		int indexedDays = 0;
+		for (Future<Integer> task : executor.invokeAll(tasks)) {
+			indexedDays += task.get();
+		}
+		return indexedDays;
+	}
+
+	/**
+	 * Runs the slot search and the validator over the loaded presences against an empty scratch day, so nothing is
+	 * read from the database or written to the index.
+	 */
+	private void warmUpSlotSearch(List<DoctorSchedule> schedules) {
+		List<DoctorSchedule> doctors = schedules.stream().filter(doctor -> doctor.getPresenceCount() > 0).toList();
+		if (doctors.isEmpty() || jitIterations <= 0) {
+			return;
+		}
+		AppointmentIntervals emptyDay = new AppointmentIntervals();
+		long now = clock.millis();
+		long checksum = 0;
+		for (int i = 0; i < jitIterations; i++) {
+			DoctorSchedule doctor = doctors.get(i % doctors.size());
+			int presence = i % doctor.getPresenceCount();
+			long startTime = doctor.getPresenceStartTime(presence);
+			long stepInMS = configProvider.getBusinessRules().getVisitDurationInMS(doctor.getGrade());
+			checksum += slotAvailabilityEngine.findEarliestSlot(doctor, presence, now, stepInMS, emptyDay, List.of());
+			checksum += validator.checkTime(startTime, doctor) == null ? 1 : 0;
+			checksum += validator.checkDoctor(startTime, emptyDay, doctor) == null ? 1 : 0;
+		}
+		log.debug("slot search warm-up finished, checksum {}", checksum);
+	}
+}
@@ -0,0 +1,74 @@
+package com.assessment.clinic.controller;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import javax.validation.ConstraintViolationException;
+
+import com.assessment.clinic.exception.BusinessException;
+import com.assessment.clinic.exception.RejectionReason;
+import com.assessment.clinic.exception.ResultStatus;
+import com.assessment.clinic.exception.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+@Slf4j
+public class ApiExceptionHandler {
+
+	@ExceptionHandler(BusinessException.class)
+	public ResponseEntity<ErrorResponse> handleBusinessException(BusinessException exception) {
+		ResultStatus status = exception.getResultStatus();
+		ErrorResponse response = new ErrorResponse(status.getStatusCode(), status.getDescription(), exception.getMessage(),
+				exception instanceof ValidationException ? ((ValidationException) exception).getRejectionReason() : null);
+		return new ResponseEntity<>(response, toHttpStatus(status));
+	}
+
+	@ExceptionHandler(RejectedExecutionException.class)
+	public ResponseEntity<ErrorResponse> handleRejectedExecution(RejectedExecutionException exception) {
+		log.debug("booking request rejected: {}", exception.getMessage());
+		ResultStatus status = ResultStatus.SERVICE_BUSY;
+		return new ResponseEntity<>(new ErrorResponse(status.getStatusCode(), status.getDescription(), exception.getMessage(), null),
+				HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+	/**
+	 * A request that timed out before its work started; a timeout after the start is an
+	 * {@link com.assessment.clinic.exception.OutcomeUnknownException}.
+	 */
+	@ExceptionHandler(TimeoutException.class)
+	public ResponseEntity<ErrorResponse> handleTimeout(TimeoutException exception) {
+		log.debug("booking request timed out before it started");
+		ResultStatus status = ResultStatus.SERVICE_BUSY;
+		return new ResponseEntity<>(new ErrorResponse(status.getStatusCode(), status.getDescription(), "booking request timed out", null),
+				HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+	@ExceptionHandler(ConstraintViolationException.class)
+	public ResponseEntity<ErrorResponse> handleConstraintViolation(ConstraintViolationException exception) {
+		ResultStatus status = ResultStatus.VALIDATION_FAILED;
+		return new ResponseEntity<>(new ErrorResponse(status.getStatusCode(), status.getDescription(), exception.getMessage(), RejectionReason.OTHER),
+				HttpStatus.BAD_REQUEST);
+	}
+
+	private static HttpStatus toHttpStatus(ResultStatus status) {
+		switch (status) {
+		case DOCTOR_NOT_FOUND:
+		case PATIENT_NOT_FOUND:
+		case APPOINTMENT_NOT_FOUND:
+			return HttpStatus.NOT_FOUND;
+		case VALIDATION_FAILED:
+			return HttpStatus.BAD_REQUEST;
+		case SERVICE_BUSY:
+			return HttpStatus.SERVICE_UNAVAILABLE;
+		case OUTCOME_UNKNOWN:
+			return HttpStatus.GATEWAY_TIMEOUT;
+		default:
+			return HttpStatus.INTERNAL_SERVER_ERROR;
+		}
+	}
+}
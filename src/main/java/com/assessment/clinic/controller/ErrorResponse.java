@@ -0,0 +1,21 @@
+package com.assessment.clinic.controller;
+
+import com.assessment.clinic.exception.RejectionReason;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ErrorResponse {
+
+	private Integer statusCode;
+
+	private String description;
+
+	private String message;
+
+	/**
+	 * rule that rejected the appointment, only set for validation failures
+	 */
+	private RejectionReason rejectionReason;
+}
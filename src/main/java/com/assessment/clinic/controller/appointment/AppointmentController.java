@@ -0,0 +1,127 @@
+package com.assessment.clinic.controller.appointment;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import javax.validation.Valid;
+
+import com.assessment.clinic.config.BookingExecutor;
+import com.assessment.clinic.exception.ValidationException;
+import com.assessment.clinic.service.appointment.AppointmentService;
+import com.assessment.clinic.service.appointment.dto.AppointmentResult;
+import com.assessment.clinic.service.appointment.dto.AvailableSlot;
+import com.assessment.clinic.service.appointment.dto.BookedAppointment;
+import com.assessment.clinic.service.appointment.dto.CreateAppointmentSeriesRequest;
+import com.assessment.clinic.service.appointment.dto.CreateAutoAppointmentByGradeRequest;
+import com.assessment.clinic.service.appointment.dto.CreateAutoAppointmentRequest;
+import com.assessment.clinic.service.appointment.dto.CreateNewAppointmentRequest;
+import com.assessment.clinic.service.appointment.dto.RescheduleAppointmentRequest;
+import com.assessment.clinic.service.appointment.dto.SeriesOccurrenceResult;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * HTTP API of {@link AppointmentService}. Every call returns a future completed on the {@link BookingExecutor}, so the
+ * servlet thread is released while the blocking JPA work runs, and calls beyond its concurrency limit are answered
+ * with 503 right away, as are calls still queued when the executor timeout passes. Calls whose work was already
+ * running when the timeout passed are answered with 504, as their booking may still commit.
+ */
+@RestController
+@Validated
+@RequestMapping("/appointments")
+@RequiredArgsConstructor
+public class AppointmentController {
+
+	private static final int MAX_SLOT_LIMIT = 1000;
+
+	/**
+	 * A batch is booked by one task in one transaction, so its size bounds how long it holds a thread and a connection.
+	 */
+	private static final int MAX_BATCH_SIZE = 100;
+
+	private final AppointmentService appointmentService;
+
+	private final BookingExecutor bookingExecutor;
+
+	@PostMapping
+	@ResponseStatus(HttpStatus.CREATED)
+	public CompletableFuture<Void> setAppointment(@Valid @RequestBody CreateNewAppointmentRequest appointmentRequest) {
+		return bookingExecutor.submit(() -> {
+			appointmentService.setAppointment(appointmentRequest);
+			return null;
+		});
+	}
+
+	@PostMapping("/earliest")
+	@ResponseStatus(HttpStatus.CREATED)
+	public CompletableFuture<Void> setEarliestAppointment(@Valid @RequestBody CreateAutoAppointmentRequest appointmentRequest) {
+		return bookingExecutor.submit(() -> {
+			appointmentService.setEarliestAppointment(appointmentRequest);
+			return null;
+		});
+	}
+
+	@PostMapping("/earliest/any-doctor")
+	@ResponseStatus(HttpStatus.CREATED)
+	public CompletableFuture<BookedAppointment> setEarliestAppointmentWithAnyDoctor(
+			@Valid @RequestBody CreateAutoAppointmentByGradeRequest appointmentRequest) {
+		return bookingExecutor.submit(() -> appointmentService.setEarliestAppointmentWithAnyDoctor(appointmentRequest));
+	}
+
+	@PostMapping("/batch")
+	public CompletableFuture<List<AppointmentResult>> setAppointments(@RequestBody List<@Valid CreateNewAppointmentRequest> appointmentRequests)
+			throws ValidationException {
+		if (appointmentRequests.size() > MAX_BATCH_SIZE) {
+			throw new ValidationException("At most " + MAX_BATCH_SIZE + " appointments can be booked in one batch: " + appointmentRequests.size());
+		}
+		return bookingExecutor.submit(() -> appointmentService.setAppointments(appointmentRequests));
+	}
+
+	@PostMapping("/series")
+	@ResponseStatus(HttpStatus.CREATED)
+	public CompletableFuture<List<SeriesOccurrenceResult>> setAppointmentSeries(@Valid @RequestBody CreateAppointmentSeriesRequest appointmentRequest) {
+		return bookingExecutor.submit(() -> appointmentService.setAppointmentSeries(appointmentRequest));
+	}
+
+	@PutMapping("/{appointmentId}")
+	public CompletableFuture<BookedAppointment> rescheduleAppointment(@PathVariable("appointmentId") Long appointmentId,
+			@Valid @RequestBody RescheduleAppointmentRequest rescheduleRequest) {
+		return bookingExecutor.submit(() -> appointmentService.rescheduleAppointment(appointmentId, rescheduleRequest.getAppointmentTime()));
+	}
+
+	@DeleteMapping("/{appointmentId}")
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	public CompletableFuture<Void> cancelAppointment(@PathVariable("appointmentId") Long appointmentId) {
+		return bookingExecutor.submit(() -> {
+			appointmentService.cancelAppointment(appointmentId);
+			return null;
+		});
+	}
+
+	/**
+	 * Free slots of a doctor in time order, at most {@code limit} of them. The next page starts from the day of the
+	 * last returned slot.
+	 */
+	@GetMapping("/available-slots")
+	public CompletableFuture<List<AvailableSlot>> findAvailableSlots(@RequestParam("doctorId") Long doctorId, @RequestParam("fromDay") long fromDay,
+			@RequestParam("toDay") long toDay, @RequestParam("durationInMin") int durationInMin,
+			@RequestParam(name = "limit", defaultValue = "100") int limit) {
+		int boundedLimit = Math.max(1, Math.min(limit, MAX_SLOT_LIMIT));
+		return bookingExecutor.submit(() -> appointmentService.findAvailableSlots(doctorId, fromDay, toDay, durationInMin)
+				.limit(boundedLimit)
+				.collect(Collectors.toList()));
+	}
+}
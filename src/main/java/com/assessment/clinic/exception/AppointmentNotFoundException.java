@@ -0,0 +1,12 @@
+package com.assessment.clinic.exception;
+
+public class AppointmentNotFoundException extends BusinessException {
+	public AppointmentNotFoundException(String message) {
+		super(message);
+	}
+
+	@Override
+	public ResultStatus getResultStatus() {
+		return ResultStatus.APPOINTMENT_NOT_FOUND;
+	}
+}
@@ -1,10 +1,14 @@
 package com.assessment.clinic.exception;
 
+/**
+ * Expected outcome of a business call rather than a bug, so exceptions created with a message only do not capture a
+ * stack trace; filling it in is most of the cost of throwing. Exceptions wrapping a cause keep their stack trace.
+ */
 public abstract class BusinessException extends Exception {
 	private static final long serialVersionUID = -3749766539158141005L;
 
 	public BusinessException(String message) {
-		super(message);
+		super(message, null, false, false);
 	}
 
 	public BusinessException(Throwable cause) {
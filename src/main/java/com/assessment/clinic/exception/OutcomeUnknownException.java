@@ -0,0 +1,16 @@
+package com.assessment.clinic.exception;
+
+/**
+ * The request timed out after its work had started. The work still finishes and may commit, so the caller has to look
+ * the result up before retrying.
+ */
+public class OutcomeUnknownException extends BusinessException {
+	public OutcomeUnknownException(String message) {
+		super(message);
+	}
+
+	@Override
+	public ResultStatus getResultStatus() {
+		return ResultStatus.OUTCOME_UNKNOWN;
+	}
+}
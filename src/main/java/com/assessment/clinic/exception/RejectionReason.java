@@ -0,0 +1,27 @@
+package com.assessment.clinic.exception;
+
+/**
+ * Business rule that rejected an appointment. Validators return it as a plain result code on the hot path, and
+ * {@link ValidationException} carries it once a rejection is reported to the caller.
+ */
+public enum RejectionReason {
+	INVALID_TIME("Appointment time is not valid"),
+	BUSINESS_DAY("Appointment day is not in business day"),
+	WORKING_HOUR("Appointment hour is not in working hour"),
+	PRESENCE("Appointment time is not in doctor schedule"),
+	PATIENT_LIMIT("The patient has too many appointments in the day"),
+	PATIENT_CONFLICT("The new appointment date has conflict with older appointment of patient"),
+	DOCTOR_CONFLICT("The allowed max conflict time count of doctor is exceeded"),
+	NO_FREE_SLOT("There is no free slot for appointment"),
+	OTHER("The appointment is not valid");
+
+	private final String description;
+
+	RejectionReason(String description) {
+		this.description = description;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+}
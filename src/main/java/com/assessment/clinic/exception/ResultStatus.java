@@ -4,9 +4,13 @@ import java.io.IOException;
 import java.util.Properties;
 
 public enum ResultStatus {
+	SUCCESS(0, "success"),
 	DOCTOR_NOT_FOUND(1, "doctor.not.found"),
 	VALIDATION_FAILED(2, "validation.failed"),
-	PATIENT_NOT_FOUND(3, "patient.not.found");
+	PATIENT_NOT_FOUND(3, "patient.not.found"),
+	SERVICE_BUSY(4, "service.busy"),
+	APPOINTMENT_NOT_FOUND(5, "appointment.not.found"),
+	OUTCOME_UNKNOWN(6, "outcome.unknown");
 
 	private final String description;
 	private final Integer statusCode;
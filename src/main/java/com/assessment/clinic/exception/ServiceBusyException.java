@@ -0,0 +1,12 @@
+package com.assessment.clinic.exception;
+
+public class ServiceBusyException extends BusinessException {
+	public ServiceBusyException(String message) {
+		super(message);
+	}
+
+	@Override
+	public ResultStatus getResultStatus() {
+		return ResultStatus.SERVICE_BUSY;
+	}
+}
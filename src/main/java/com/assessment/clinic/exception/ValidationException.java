@@ -1,12 +1,45 @@
 package com.assessment.clinic.exception;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 public class ValidationException extends BusinessException {
+
+	private static final Map<RejectionReason, ValidationException> PREALLOCATED = preallocate();
+
+	private final RejectionReason rejectionReason;
+
 	public ValidationException(String message) {
+		this(message, RejectionReason.OTHER);
+	}
+
+	public ValidationException(String message, RejectionReason rejectionReason) {
 		super(message);
+		this.rejectionReason = rejectionReason;
+	}
+
+	/**
+	 * @return shared instance with the generic message of the reason, for rejections whose message carries no details.
+	 * It is stackless and has suppression disabled, so sharing it between threads is safe.
+	 */
+	public static ValidationException of(RejectionReason rejectionReason) {
+		return PREALLOCATED.get(rejectionReason);
+	}
+
+	public RejectionReason getRejectionReason() {
+		return rejectionReason;
 	}
 
 	@Override
 	public ResultStatus getResultStatus() {
 		return ResultStatus.VALIDATION_FAILED;
 	}
+
+	private static Map<RejectionReason, ValidationException> preallocate() {
+		Map<RejectionReason, ValidationException> exceptions = new EnumMap<>(RejectionReason.class);
+		for (RejectionReason reason : RejectionReason.values()) {
+			exceptions.put(reason, new ValidationException(reason.getDescription(), reason));
+		}
+		return exceptions;
+	}
 }
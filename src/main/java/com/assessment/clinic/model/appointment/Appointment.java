@@ -5,7 +5,9 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
 import com.assessment.clinic.model.doctor.Doctor;
@@ -14,13 +16,17 @@ import lombok.Getter;
 import lombok.Setter;
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+		@Index(name = "idx_appointments_doctor_start_time", columnList = "doctor_id, startTime"),
+		@Index(name = "idx_appointments_patient_start_time", columnList = "patient_id, startTime"),
+		@Index(name = "idx_appointments_start_time", columnList = "startTime") })
 @Setter
 @Getter
 public class Appointment {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointment_sequence")
+	@SequenceGenerator(name = "appointment_sequence", sequenceName = "appointments_seq", allocationSize = 50)
 	private Long id;
 
 	@ManyToOne(fetch = FetchType.LAZY)
@@ -29,7 +35,7 @@ public class Appointment {
 	@ManyToOne(fetch = FetchType.LAZY)
 	private Patient patient;
 
-	private Long StartTime;
+	private Long startTime;
 
 	private Long endTime;
 }
@@ -0,0 +1,21 @@
+package com.assessment.clinic.model.appointment;
+
+import lombok.Value;
+
+/**
+ * Id, doctor, patient, start and end time of an appointment, read with a projection query to rebuild the in-memory
+ * booking state without loading entities, and written back by {@link AppointmentBookingWriter}.
+ */
+@Value
+public class AppointmentBooking {
+
+	long id;
+
+	long doctorId;
+
+	long patientId;
+
+	long startTime;
+
+	long endTime;
+}
@@ -0,0 +1,53 @@
+package com.assessment.clinic.model.appointment;
+
+import java.util.List;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Inserts, moves and deletes appointments whose ids were assigned outside of the database, each call as one JDBC batch,
+ * bypassing the id sequence and the persistence context. Runs in the surrounding transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AppointmentBookingWriter {
+
+	private static final String INSERT = "insert into appointments (id, doctor_id, patient_id, start_time, end_time) values (?, ?, ?, ?, ?)";
+
+	private static final String UPDATE = "update appointments set start_time = ?, end_time = ? where id = ?";
+
+	private static final String DELETE = "delete from appointments where id = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public void insert(List<AppointmentBooking> bookings) {
+		jdbcTemplate.batchUpdate(INSERT, bookings, bookings.size(), (statement, booking) -> {
+			statement.setLong(1, booking.getId());
+			statement.setLong(2, booking.getDoctorId());
+			statement.setLong(3, booking.getPatientId());
+			statement.setLong(4, booking.getStartTime());
+			statement.setLong(5, booking.getEndTime());
+		});
+	}
+
+	/**
+	 * Moves the appointments to the times of the bookings; appointments that do not exist are skipped.
+	 */
+	public void update(List<AppointmentBooking> bookings) {
+		jdbcTemplate.batchUpdate(UPDATE, bookings, bookings.size(), (statement, booking) -> {
+			statement.setLong(1, booking.getStartTime());
+			statement.setLong(2, booking.getEndTime());
+			statement.setLong(3, booking.getId());
+		});
+	}
+
+	/**
+	 * Deletes the appointments of the ids; ids that do not exist are skipped.
+	 */
+	public void delete(List<Long> ids) {
+		jdbcTemplate.batchUpdate(DELETE, ids, ids.size(), (statement, id) -> statement.setLong(1, id));
+	}
+}
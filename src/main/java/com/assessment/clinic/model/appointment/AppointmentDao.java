@@ -1,11 +1,20 @@
 package com.assessment.clinic.model.appointment;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 import com.assessment.clinic.model.doctor.Doctor;
 import com.assessment.clinic.model.patient.Patient;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -14,4 +23,82 @@ public interface AppointmentDao extends JpaRepository<Appointment, Long> {
 	List<Appointment> getAllByPatientAndStartTimeBetween(Patient patient, long from, long to);
 
 	List<Appointment> getAllByDoctorAndStartTimeBetween(Doctor doctor, long from, long to);
+
+	@Query("select new com.assessment.clinic.model.appointment.AppointmentPeriod(a.id, a.startTime, a.endTime) from Appointment a "
+			+ "where a.patient.id = :patientId and a.startTime between :from and :to")
+	List<AppointmentPeriod> getPeriodsByPatientIdAndStartTimeBetween(@Param("patientId") long patientId, @Param("from") long from, @Param("to") long to);
+
+	@Query("select new com.assessment.clinic.model.appointment.AppointmentPeriod(a.id, a.startTime, a.endTime) from Appointment a "
+			+ "where a.doctor.id = :doctorId and a.startTime between :from and :to")
+	List<AppointmentPeriod> getPeriodsByDoctorIdAndStartTimeBetween(@Param("doctorId") long doctorId, @Param("from") long from, @Param("to") long to);
+
+	/**
+	 * Appointments of all doctors starting in [from, to]. The result is fetched in chunks and must be consumed inside a
+	 * transaction.
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+	@Query("select new com.assessment.clinic.model.appointment.DoctorAppointmentPeriod(a.doctor.id, a.startTime, a.endTime) from Appointment a "
+			+ "where a.startTime between :from and :to")
+	Stream<DoctorAppointmentPeriod> streamDoctorPeriodsByStartTimeBetween(@Param("from") long from, @Param("to") long to);
+
+	long countByPatientIdAndStartTimeBetween(long patientId, long from, long to);
+
+	/**
+	 * Counts the patient appointments starting from {@code from} that contain {@code startTime} or {@code endTime}.
+	 */
+	@Query("select count(a) from Appointment a where a.patient.id = :patientId and a.startTime between :from and :endTime "
+			+ "and ((:startTime between a.startTime and a.endTime) or (:endTime between a.startTime and a.endTime))")
+	long countConflictingByPatientId(@Param("patientId") long patientId, @Param("from") long from, @Param("startTime") long startTime,
+			@Param("endTime") long endTime);
+
+	/**
+	 * Counts the doctor appointments starting from {@code from} that overlap the closed range [startTime, endTime].
+	 */
+	@Query("select count(a) from Appointment a where a.doctor.id = :doctorId and a.startTime between :from and :endTime and a.endTime >= :startTime")
+	long countOverlappingByDoctorId(@Param("doctorId") long doctorId, @Param("from") long from, @Param("startTime") long startTime,
+			@Param("endTime") long endTime);
+
+	@Query("select min(a.startTime) from Appointment a")
+	Long findMinStartTime();
+
+	/**
+	 * Deletes the appointments starting in [from, to) in one statement, once they are copied to the archive.
+	 */
+	@Modifying
+	@Query("delete from Appointment a where a.startTime >= :from and a.startTime < :to")
+	int deleteByStartTimeRange(@Param("from") long from, @Param("to") long to);
+
+	@Query("select max(a.id) from Appointment a")
+	Long findMaxId();
+
+	@Query("select new com.assessment.clinic.model.appointment.AppointmentBooking(a.id, a.doctor.id, a.patient.id, a.startTime, a.endTime) "
+			+ "from Appointment a where a.id = :id")
+	AppointmentBooking findBookingById(@Param("id") long id);
+
+	/**
+	 * Deletes an appointment in one statement, without loading it.
+	 *
+	 * @return number of deleted appointments, 0 if it was already gone
+	 */
+	@Modifying
+	@Query("delete from Appointment a where a.id = :id")
+	int deleteBookingById(@Param("id") long id);
+
+	/**
+	 * Moves an appointment in one statement, without loading it.
+	 *
+	 * @return number of moved appointments, 0 if it is gone
+	 */
+	@Modifying
+	@Query("update Appointment a set a.startTime = :startTime, a.endTime = :endTime where a.id = :id")
+	int updateTimesById(@Param("id") long id, @Param("startTime") long startTime, @Param("endTime") long endTime);
+
+	/**
+	 * Appointments of all doctors starting from {@code from}. The result is fetched in chunks and must be consumed
+	 * inside a transaction.
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+	@Query("select new com.assessment.clinic.model.appointment.AppointmentBooking(a.id, a.doctor.id, a.patient.id, a.startTime, a.endTime) "
+			+ "from Appointment a where a.startTime >= :from")
+	Stream<AppointmentBooking> streamBookingsStartingFrom(@Param("from") long from);
 }
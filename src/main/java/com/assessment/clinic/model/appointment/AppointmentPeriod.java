@@ -0,0 +1,17 @@
+package com.assessment.clinic.model.appointment;
+
+import lombok.Value;
+
+/**
+ * Start and end time of an appointment, read with a projection query so that day checks neither hydrate
+ * {@link Appointment} entities nor fill the persistence context.
+ */
+@Value
+public class AppointmentPeriod {
+
+	Long id;
+
+	long startTime;
+
+	long endTime;
+}
@@ -0,0 +1,41 @@
+package com.assessment.clinic.model.appointment;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Appointment of a past month, moved out of {@code appointments} so the booking queries only see the active months.
+ * Rows are written once by the archive job and never updated; doctor and patient are plain ids because archived rows
+ * are only read for history.
+ */
+@Entity
+@Immutable
+@Table(name = "appointments_archive", indexes = {
+		@Index(name = "idx_appointments_archive_month", columnList = "archiveMonth"),
+		@Index(name = "idx_appointments_archive_patient_start_time", columnList = "patientId, startTime") })
+@Setter
+@Getter
+public class ArchivedAppointment {
+
+	@Id
+	private Long id;
+
+	private Long doctorId;
+
+	private Long patientId;
+
+	private Long startTime;
+
+	private Long endTime;
+
+	/**
+	 * partition of the appointment as yyyyMM in the clinic time zone
+	 */
+	private Integer archiveMonth;
+}
@@ -0,0 +1,33 @@
+package com.assessment.clinic.model.appointment;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ArchivedAppointmentDao extends JpaRepository<ArchivedAppointment, Long> {
+
+	/**
+	 * Copies the appointments starting in [from, to) into the archive, in the database without loading them.
+	 *
+	 * @return number of copied rows
+	 */
+	@Modifying
+	@Query(value = "insert into appointments_archive (id, doctor_id, patient_id, start_time, end_time, archive_month) "
+			+ "select a.id, a.doctor_id, a.patient_id, a.start_time, a.end_time, :archiveMonth from appointments a "
+			+ "where a.start_time >= :from and a.start_time < :to", nativeQuery = true)
+	int copyFromAppointments(@Param("from") long from, @Param("to") long to, @Param("archiveMonth") int archiveMonth);
+
+	@Query("select new com.assessment.clinic.model.appointment.AppointmentPeriod(a.id, a.startTime, a.endTime) from ArchivedAppointment a "
+			+ "where a.patientId = :patientId and a.startTime between :from and :to")
+	List<AppointmentPeriod> getPeriodsByPatientIdAndStartTimeBetween(@Param("patientId") long patientId, @Param("from") long from, @Param("to") long to);
+
+	long countByArchiveMonth(int archiveMonth);
+
+	@Query("select max(a.id) from ArchivedAppointment a")
+	Long findMaxId();
+}
@@ -0,0 +1,17 @@
+package com.assessment.clinic.model.appointment;
+
+import lombok.Value;
+
+/**
+ * Doctor, start and end time of an appointment, read with a projection query to fill the doctor appointment index of
+ * many doctors at once.
+ */
+@Value
+public class DoctorAppointmentPeriod {
+
+	long doctorId;
+
+	long startTime;
+
+	long endTime;
+}
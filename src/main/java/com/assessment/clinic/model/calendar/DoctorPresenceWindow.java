@@ -0,0 +1,17 @@
+package com.assessment.clinic.model.calendar;
+
+import lombok.Value;
+
+/**
+ * Doctor, start and end time of a presence, read with a projection query to build the schedules of many doctors at
+ * once.
+ */
+@Value
+public class DoctorPresenceWindow {
+
+	long doctorId;
+
+	long startTime;
+
+	long endTime;
+}
@@ -2,6 +2,7 @@ package com.assessment.clinic.model.calendar;
 
 
 import java.security.InvalidParameterException;
+import java.time.DayOfWeek;
 import java.util.stream.Stream;
 
 public enum PersianDayOfWeek {
@@ -13,6 +14,8 @@ public enum PersianDayOfWeek {
 	THURSDAY(6),
 	FRIDAY(7);
 
+	private static final PersianDayOfWeek[] BY_ISO_DAY_OF_WEEK = { MONDAY, TUESDAY, WEDNESDAY, THURSDAY, FRIDAY, SATURDAY, SUNDAY };
+
 	private int value;
 
 	PersianDayOfWeek(int value) {
@@ -24,6 +27,10 @@ public enum PersianDayOfWeek {
 				.orElseThrow(() -> new InvalidParameterException("invalid day found " + dayName));
 	}
 
+	public static PersianDayOfWeek of(DayOfWeek dayOfWeek) {
+		return BY_ISO_DAY_OF_WEEK[dayOfWeek.ordinal()];
+	}
+
 	public int getValue() {
 		return value;
 	}
@@ -1,19 +1,23 @@
 package com.assessment.clinic.model.calendar;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 
 import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.service.doctor.impl.DoctorScheduleInvalidator;
 import lombok.Getter;
 import lombok.Setter;
 
 @Entity
-@Table(name = "doctor_presences")
+@EntityListeners(DoctorScheduleInvalidator.class)
+@Table(name = "doctor_presences", indexes = @Index(name = "idx_doctor_presences_doctor_end_time", columnList = "doctor_id, endTime"))
 @Setter
 @Getter
 public class Presence {
@@ -1,9 +1,32 @@
 package com.assessment.clinic.model.calendar;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface PresenceDao extends JpaRepository<Presence, Long> {
 
+	@Query("select new com.assessment.clinic.model.calendar.PresenceWindow(p.startTime, p.endTime) from Presence p "
+			+ "where p.doctor.id = :doctorId and p.endTime > :time order by p.startTime")
+	List<PresenceWindow> getWindowsByDoctorIdEndingAfter(@Param("doctorId") long doctorId, @Param("time") long time);
+
+	/**
+	 * Presences of the doctors with ids in [fromId, toId] that are not over yet, grouped by doctor. The result is
+	 * fetched in chunks and must be consumed inside a transaction.
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+	@Query("select new com.assessment.clinic.model.calendar.DoctorPresenceWindow(p.doctor.id, p.startTime, p.endTime) from Presence p "
+			+ "where p.doctor.id between :fromId and :toId and p.endTime > :time order by p.doctor.id, p.startTime")
+	Stream<DoctorPresenceWindow> streamWindowsByDoctorIdBetweenEndingAfter(@Param("fromId") long fromId, @Param("toId") long toId,
+			@Param("time") long time);
 }
@@ -0,0 +1,14 @@
+package com.assessment.clinic.model.calendar;
+
+import lombok.Value;
+
+/**
+ * Start and end time of a presence, read with a projection query instead of loading {@link Presence} entities.
+ */
+@Value
+public class PresenceWindow {
+
+	long startTime;
+
+	long endTime;
+}
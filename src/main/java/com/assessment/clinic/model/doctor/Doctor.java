@@ -6,6 +6,7 @@ import java.util.List;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
@@ -15,10 +16,12 @@ import javax.persistence.OneToMany;
 import javax.persistence.Table;
 
 import com.assessment.clinic.model.calendar.Presence;
+import com.assessment.clinic.service.doctor.impl.DoctorScheduleInvalidator;
 import lombok.Getter;
 import lombok.Setter;
 
 @Entity
+@EntityListeners(DoctorScheduleInvalidator.class)
 @Table(name = "doctors")
 @Setter
 @Getter
@@ -1,9 +1,25 @@
 package com.assessment.clinic.model.doctor;
 
+import java.util.List;
+import java.util.Optional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface DoctorDao extends JpaRepository<Doctor, Long> {
 
+	@Query("select d.grade from Doctor d where d.id = :id")
+	Optional<DoctorGrade> findGradeById(@Param("id") Long id);
+
+	@Query("select d.id from Doctor d where d.grade = :grade")
+	List<Long> findIdsByGrade(@Param("grade") DoctorGrade grade);
+
+	@Query("select d.id from Doctor d order by d.id")
+	List<Long> findAllIds();
+
+	@Query("select new com.assessment.clinic.model.doctor.DoctorGradeView(d.id, d.grade) from Doctor d where d.id between :fromId and :toId")
+	List<DoctorGradeView> findGradesByIdBetween(@Param("fromId") long fromId, @Param("toId") long toId);
 }
@@ -0,0 +1,14 @@
+package com.assessment.clinic.model.doctor;
+
+import lombok.Value;
+
+/**
+ * Id and grade of a doctor, read with a projection query instead of loading {@link Doctor} entities.
+ */
+@Value
+public class DoctorGradeView {
+
+	long id;
+
+	DoctorGrade grade;
+}
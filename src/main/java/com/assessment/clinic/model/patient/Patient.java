@@ -2,15 +2,18 @@ package com.assessment.clinic.model.patient;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
 
+import com.assessment.clinic.service.patient.impl.PatientCacheInvalidator;
 import lombok.Getter;
 import lombok.Setter;
 
 @Entity
+@EntityListeners(PatientCacheInvalidator.class)
 @Table(name = "patients")
 @Setter
 @Getter
@@ -1,12 +1,59 @@
 package com.assessment.clinic.service.appointment;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 import com.assessment.clinic.exception.BusinessException;
+import com.assessment.clinic.service.appointment.dto.AppointmentResult;
+import com.assessment.clinic.service.appointment.dto.AvailableSlot;
+import com.assessment.clinic.service.appointment.dto.BookedAppointment;
+import com.assessment.clinic.service.appointment.dto.CreateAppointmentSeriesRequest;
+import com.assessment.clinic.service.appointment.dto.CreateAutoAppointmentByGradeRequest;
 import com.assessment.clinic.service.appointment.dto.CreateAutoAppointmentRequest;
 import com.assessment.clinic.service.appointment.dto.CreateNewAppointmentRequest;
+import com.assessment.clinic.service.appointment.dto.SeriesOccurrenceResult;
 
 public interface AppointmentService {
 
 	void setAppointment(CreateNewAppointmentRequest appointmentRequest) throws BusinessException;
 
 	void setEarliestAppointment(CreateAutoAppointmentRequest appointmentRequest) throws BusinessException;
+
+	/**
+	 * Books the earliest free slot over several doctors, either the given ones or all doctors of a grade. The doctors
+	 * are searched in parallel; the winner is re-checked and booked under its day lock.
+	 */
+	BookedAppointment setEarliestAppointmentWithAnyDoctor(CreateAutoAppointmentByGradeRequest appointmentRequest) throws BusinessException;
+
+	/**
+	 * Books a list of appointments at once. Requests are validated against each other and against the stored
+	 * appointments; the accepted ones are persisted in one batch and every request gets its own result.
+	 */
+	List<AppointmentResult> setAppointments(List<CreateNewAppointmentRequest> appointmentRequests);
+
+	/**
+	 * Books a recurring appointment. All occurrences are validated against one range query for the doctor and one for
+	 * the patient while the doctor days are locked, and the accepted ones are persisted in one batch; with
+	 * {@link SeriesBookingMode#ALL_OR_NOTHING} the first rejection fails the whole series.
+	 */
+	List<SeriesOccurrenceResult> setAppointmentSeries(CreateAppointmentSeriesRequest appointmentRequest) throws BusinessException;
+
+	/**
+	 * Lists the free slots of a doctor from the start of {@code fromDay} to the end of {@code toDay}, in time order,
+	 * without booking anything. Slots start every {@code durationInMin} minutes inside the doctor presences and last
+	 * one visit of the doctor grade. The stream is lazy: a day is read only when the consumer reaches it.
+	 */
+	Stream<AvailableSlot> findAvailableSlots(Long doctorId, long fromDay, long toDay, int durationInMin) throws BusinessException;
+
+	/**
+	 * Cancels an appointment that has not started yet and frees its slot in the in-memory state at once.
+	 */
+	void cancelAppointment(Long appointmentId) throws BusinessException;
+
+	/**
+	 * Moves an appointment that has not started yet to another time of the same doctor. The new time is validated as
+	 * a new booking that ignores the appointment itself, and validation and move happen under the locks of the old and
+	 * the new day, so the appointment is either moved or left untouched.
+	 */
+	BookedAppointment rescheduleAppointment(Long appointmentId, long appointmentTime) throws BusinessException;
 }
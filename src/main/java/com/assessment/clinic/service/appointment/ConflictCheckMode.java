@@ -0,0 +1,12 @@
+package com.assessment.clinic.service.appointment;
+
+public enum ConflictCheckMode {
+	/**
+	 * count overlaps in the in-memory doctor day index and in the loaded patient day
+	 */
+	INDEX,
+	/**
+	 * let the database count overlapping and same-day appointments, only the counts are transferred
+	 */
+	AGGREGATE
+}
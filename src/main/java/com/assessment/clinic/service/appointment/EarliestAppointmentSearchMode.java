@@ -0,0 +1,12 @@
+package com.assessment.clinic.service.appointment;
+
+public enum EarliestAppointmentSearchMode {
+	/**
+	 * scan a free-slot bitmap built from presence, working hours and existing appointments
+	 */
+	BITMAP,
+	/**
+	 * try candidate slots one by one against the validator, kept for comparison
+	 */
+	LEGACY
+}
@@ -0,0 +1,15 @@
+package com.assessment.clinic.service.appointment;
+
+/**
+ * What happens to an appointment series when some of its occurrences are rejected.
+ */
+public enum SeriesBookingMode {
+	/**
+	 * Nothing is booked and the first rejection is reported.
+	 */
+	ALL_OR_NOTHING,
+	/**
+	 * The accepted occurrences are booked and every occurrence gets its own result.
+	 */
+	BEST_EFFORT
+}
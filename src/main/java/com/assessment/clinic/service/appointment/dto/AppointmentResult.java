@@ -0,0 +1,29 @@
+package com.assessment.clinic.service.appointment.dto;
+
+import com.assessment.clinic.exception.BusinessException;
+import com.assessment.clinic.exception.ResultStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class AppointmentResult {
+	/**
+	 * position of the request in the submitted list
+	 */
+	private int index;
+
+	private ResultStatus status;
+
+	private String message;
+
+	private Long appointmentId;
+
+	public static AppointmentResult success(int index, Long appointmentId) {
+		return new AppointmentResult(index, ResultStatus.SUCCESS, null, appointmentId);
+	}
+
+	public static AppointmentResult failure(int index, BusinessException exception) {
+		return new AppointmentResult(index, exception.getResultStatus(), exception.getMessage(), null);
+	}
+}
@@ -0,0 +1,15 @@
+package com.assessment.clinic.service.appointment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class AvailableSlot {
+
+	private long doctorId;
+
+	private long startTime;
+
+	private long endTime;
+}
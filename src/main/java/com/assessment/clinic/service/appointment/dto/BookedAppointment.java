@@ -0,0 +1,17 @@
+package com.assessment.clinic.service.appointment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BookedAppointment {
+
+	private Long appointmentId;
+
+	private long doctorId;
+
+	private long startTime;
+
+	private long endTime;
+}
@@ -0,0 +1,33 @@
+package com.assessment.clinic.service.appointment.dto;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+import com.assessment.clinic.service.appointment.SeriesBookingMode;
+import lombok.Data;
+
+/**
+ * A recurring appointment; {@code appointmentTime} is the earliest possible occurrence and gives the time of day of
+ * all of them. Every occurrence takes the visit duration of the doctor grade.
+ */
+@Data
+public class CreateAppointmentSeriesRequest {
+
+	@NotNull(message = "doctor is mandatory")
+	private Long doctorId;
+
+	@NotNull(message = "patient is mandatory")
+	private Long patientId;
+
+	@NotNull
+	@Positive(message = "time is not negative")
+	private Long appointmentTime;
+
+	@NotNull(message = "recurrence is mandatory")
+	@Valid
+	private RecurrenceRule recurrence;
+
+	@NotNull
+	private SeriesBookingMode mode = SeriesBookingMode.ALL_OR_NOTHING;
+}
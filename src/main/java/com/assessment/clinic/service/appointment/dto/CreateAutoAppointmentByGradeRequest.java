@@ -0,0 +1,31 @@
+package com.assessment.clinic.service.appointment.dto;
+
+import java.util.List;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import lombok.Data;
+
+@Data
+public class CreateAutoAppointmentByGradeRequest {
+	/**
+	 * search every doctor of this grade, used when no doctor ids are given
+	 */
+	private DoctorGrade doctorGrade;
+
+	/**
+	 * search only these doctors
+	 */
+	private List<Long> doctorIds;
+
+	@NotNull(message = "patient is mandatory")
+	private Long patientId;
+
+	@NotNull
+	@Min(value = 5, message = "duration is greater than 5")
+	@Max(value = 30, message = "duration is less than 30")
+	private Integer durationInMin;
+}
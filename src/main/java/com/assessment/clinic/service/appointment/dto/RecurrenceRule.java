@@ -0,0 +1,34 @@
+package com.assessment.clinic.service.appointment.dto;
+
+import java.util.List;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.assessment.clinic.model.calendar.PersianDayOfWeek;
+import lombok.Data;
+
+/**
+ * Weekly recurrence of an appointment. Weeks start on saturday; occurrences fall on the given days of every
+ * {@code intervalInWeeks}-th week, counted from the week of the first appointment, at the time of day of the first
+ * appointment.
+ */
+@Data
+public class RecurrenceRule {
+
+	/**
+	 * days of the week to book, the day of the first appointment when empty
+	 */
+	private List<PersianDayOfWeek> daysOfWeek;
+
+	@NotNull
+	@Min(value = 1, message = "interval is at least one week")
+	@Max(value = 4, message = "interval is at most four weeks")
+	private Integer intervalInWeeks = 1;
+
+	@NotNull(message = "occurrences are mandatory")
+	@Min(value = 1, message = "occurrences are at least 1")
+	@Max(value = 52, message = "occurrences are at most 52")
+	private Integer occurrences;
+}
@@ -0,0 +1,31 @@
+package com.assessment.clinic.service.appointment.dto;
+
+import com.assessment.clinic.exception.BusinessException;
+import com.assessment.clinic.exception.ResultStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SeriesOccurrenceResult {
+	/**
+	 * position of the occurrence in the series
+	 */
+	private int index;
+
+	private long appointmentTime;
+
+	private ResultStatus status;
+
+	private String message;
+
+	private Long appointmentId;
+
+	public static SeriesOccurrenceResult success(int index, long appointmentTime, Long appointmentId) {
+		return new SeriesOccurrenceResult(index, appointmentTime, ResultStatus.SUCCESS, null, appointmentId);
+	}
+
+	public static SeriesOccurrenceResult failure(int index, long appointmentTime, BusinessException exception) {
+		return new SeriesOccurrenceResult(index, appointmentTime, exception.getResultStatus(), exception.getMessage(), null);
+	}
+}
@@ -0,0 +1,236 @@
+package com.assessment.clinic.service.appointment.eventlog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.assessment.clinic.model.appointment.AppointmentBooking;
+import com.assessment.clinic.model.appointment.AppointmentBookingWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes logged bookings to the {@code appointments} table on a background thread. Bookings are coalesced into JDBC
+ * batches of at most {@code batchSize}, and a batch is written at the latest {@code maxDelayMs} after its first
+ * booking, one transaction per batch. Within a batch, consecutive events of the same type share a JDBC batch, so moves
+ * and cancellations keep their order relative to the bookings they change. The table trails the log and is read for
+ * history and reporting only; bookings are validated against the in-memory state. A failing batch is retried after
+ * {@code retryDelayMs}, doubling up to {@value #MAX_RETRY_DELAY_MS} ms, until it is written or the projection stops.
+ * No event is ever skipped: the projected sequence stays before the failing batch, so the log keeps its segments and
+ * projects the batch again on the next start.
+ * <p>
+ * The bookings not yet in the table are bounded by {@code maxBacklog}: writers wait in
+ * {@link #awaitCapacity(int, long)} while the projection falls behind, and are turned away once it is stalled.
+ */
+@Slf4j
+final class AppointmentProjection {
+
+	private static final int QUIET_ATTEMPTS = 5;
+
+	private static final long MAX_RETRY_DELAY_MS = 60_000;
+
+	private final AppointmentBookingWriter writer;
+
+	private final TransactionTemplate transaction;
+
+	private final int batchSize;
+
+	private final long maxDelayNanos;
+
+	private final int maxBacklog;
+
+	private final long retryDelayMs;
+
+	private final BlockingQueue<BookingEvent> queue = new LinkedBlockingQueue<>();
+
+	private final Thread thread = new Thread(this::run, "appointment-projection");
+
+	private volatile long projectedSequence;
+
+	private volatile long enqueuedSequence;
+
+	private volatile boolean running = true;
+
+	AppointmentProjection(AppointmentBookingWriter writer, PlatformTransactionManager transactionManager, long projectedSequence, int batchSize,
+			long maxDelayMs, int maxBacklog, long retryDelayMs) {
+		this.writer = writer;
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.projectedSequence = projectedSequence;
+		this.enqueuedSequence = projectedSequence;
+		this.batchSize = batchSize;
+		this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+		this.maxBacklog = maxBacklog;
+		this.retryDelayMs = retryDelayMs;
+		thread.setDaemon(true);
+	}
+
+	void start() {
+		thread.start();
+	}
+
+	/**
+	 * Events must be enqueued in sequence order.
+	 */
+	void enqueue(BookingEvent event) {
+		enqueuedSequence = event.getSequence();
+		queue.add(event);
+	}
+
+	/**
+	 * Waits until the backlog leaves room for {@code bookings} more, at most {@code timeoutMs}. Writers that check at
+	 * the same time may together overshoot the bound by their own bookings.
+	 *
+	 * @return false when the projection is still too far behind after the timeout
+	 */
+	synchronized boolean awaitCapacity(int bookings, long timeoutMs) throws InterruptedException {
+		long required = Math.min(bookings, maxBacklog);
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		while (getBacklog() + required > maxBacklog) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		return true;
+	}
+
+	/**
+	 * @return sequence up to which every event is in the database
+	 */
+	long getProjectedSequence() {
+		return projectedSequence;
+	}
+
+	/**
+	 * @return number of enqueued bookings that are not in the database yet
+	 */
+	long getBacklog() {
+		return enqueuedSequence - projectedSequence;
+	}
+
+	/**
+	 * Projects what is queued, waiting at most {@code timeoutMs}; whatever is left is projected again from the log on
+	 * the next start.
+	 */
+	void stop(long timeoutMs) throws InterruptedException {
+		running = false;
+		thread.join(timeoutMs);
+		if (thread.isAlive()) {
+			log.warn("appointment projection stopped with {} bookings left, they are projected on the next start", queue.size());
+			thread.interrupt();
+		}
+	}
+
+	private void run() {
+		List<BookingEvent> batch = new ArrayList<>(batchSize);
+		while (running || !queue.isEmpty()) {
+			try {
+				BookingEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				fill(batch, System.nanoTime() + maxDelayNanos);
+				if (!project(batch)) {
+					return;
+				}
+				synchronized (this) {
+					projectedSequence = batch.get(batch.size() - 1).getSequence();
+					notifyAll();
+				}
+				batch.clear();
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Adds queued bookings to the batch until it is full or the deadline has passed.
+	 */
+	private void fill(List<BookingEvent> batch, long deadline) throws InterruptedException {
+		while (batch.size() < batchSize) {
+			queue.drainTo(batch, batchSize - batch.size());
+			long remaining = deadline - System.nanoTime();
+			if (batch.size() >= batchSize || remaining <= 0 || !running) {
+				return;
+			}
+			BookingEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+			if (next == null) {
+				return;
+			}
+			batch.add(next);
+		}
+	}
+
+	/**
+	 * Writes the batch, retrying until it succeeds.
+	 *
+	 * @return false when the projection was stopped before the batch could be written
+	 */
+	private boolean project(List<BookingEvent> batch) throws InterruptedException {
+		long delayMs = retryDelayMs;
+		for (int attempt = 1; ; attempt++) {
+			try {
+				transaction.executeWithoutResult(status -> write(batch));
+				return true;
+			} catch (RuntimeException exception) {
+				if (attempt < QUIET_ATTEMPTS) {
+					log.warn("projecting {} bookings failed, attempt {}: {}", batch.size(), attempt, exception.getMessage());
+				} else {
+					log.error("projecting bookings {} to {} keeps failing, attempt {}, the bookings after them wait in the log",
+							batch.get(0).getSequence(), batch.get(batch.size() - 1).getSequence(), attempt, exception);
+				}
+				if (!running) {
+					return false;
+				}
+				Thread.sleep(delayMs);
+				delayMs = Math.min(delayMs * 2, MAX_RETRY_DELAY_MS);
+			}
+		}
+	}
+
+	/**
+	 * Writes the events in order, one JDBC batch per run of events of the same type.
+	 */
+	private void write(List<BookingEvent> events) {
+		int from = 0;
+		while (from < events.size()) {
+			BookingEvent.Type type = events.get(from).getType();
+			int to = from + 1;
+			while (to < events.size() && events.get(to).getType() == type) {
+				to++;
+			}
+			List<BookingEvent> run = events.subList(from, to);
+			switch (type) {
+			case BOOKED:
+				writer.insert(toBookings(run));
+				break;
+			case RESCHEDULED:
+				writer.update(toBookings(run));
+				break;
+			case CANCELLED:
+				writer.delete(run.stream().map(BookingEvent::getId).collect(Collectors.toList()));
+				break;
+			}
+			from = to;
+		}
+	}
+
+	private static List<AppointmentBooking> toBookings(List<BookingEvent> events) {
+		List<AppointmentBooking> bookings = new ArrayList<>(events.size());
+		events.forEach(event -> bookings.add(toBooking(event)));
+		return bookings;
+	}
+
+	private static AppointmentBooking toBooking(BookingEvent event) {
+		return new AppointmentBooking(event.getId(), event.getDoctorId(), event.getPatientId(), event.getStartTime(), event.getEndTime());
+	}
+}
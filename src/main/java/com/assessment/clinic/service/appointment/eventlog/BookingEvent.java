@@ -0,0 +1,30 @@
+package com.assessment.clinic.service.appointment.eventlog;
+
+import lombok.Value;
+
+/**
+ * One change of an appointment as recorded in the booking log. Sequences are gapless and increase with every append;
+ * ids are the appointment ids the projection writes to the database. Start and end time are those of the appointment
+ * after the change, or before it for a cancellation.
+ */
+@Value
+public class BookingEvent {
+
+	long sequence;
+
+	long id;
+
+	long doctorId;
+
+	long patientId;
+
+	long startTime;
+
+	long endTime;
+
+	Type type;
+
+	public enum Type {
+		BOOKED, RESCHEDULED, CANCELLED
+	}
+}
@@ -0,0 +1,456 @@
+package com.assessment.clinic.service.appointment.eventlog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.assessment.clinic.exception.ServiceBusyException;
+import com.assessment.clinic.model.appointment.AppointmentBooking;
+import com.assessment.clinic.model.appointment.AppointmentBookingWriter;
+import com.assessment.clinic.model.appointment.AppointmentDao;
+import com.assessment.clinic.model.appointment.AppointmentPeriod;
+import com.assessment.clinic.model.appointment.ArchivedAppointmentDao;
+import com.assessment.clinic.service.appointment.impl.DoctorAppointmentIndex;
+import com.assessment.clinic.utli.ConfigProvider;
+import com.assessment.clinic.utli.ZonedEpochCalendar;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Booking engine of {@code booking.engine=event-log}. Every booking is appended to a log of memory-mapped segment
+ * files and applied to the in-memory state, which is what bookings are validated against: the doctor days of the
+ * {@link DoctorAppointmentIndex} and the patient days kept here. The {@code appointments} table becomes a projection
+ * written behind in batches by {@link AppointmentProjection}, so a booking costs an in-memory validation and one
+ * sequential append instead of two day queries and an insert. Bookings wait in {@link #awaitCapacity(int)} before
+ * they are validated while the projection is too far behind.
+ * <p>
+ * On start the state is rebuilt from the newest snapshot and the log events after it; without either it is seeded
+ * from the upcoming appointments in the database. A snapshot is taken every
+ * {@code booking.event-log.snapshot-interval-ms}, and log segments that are both covered by the snapshot and projected
+ * are deleted, which bounds replay time and disk use.
+ * <p>
+ * Appointment ids are assigned here, above the largest id in the database. Switching back to the JPA engine requires
+ * restarting the {@code appointments_seq} sequence above the largest id.
+ */
+@Component
+@ConditionalOnProperty(name = "booking.engine", havingValue = "event-log")
+@RequiredArgsConstructor
+@Slf4j
+public class BookingEventLog {
+
+	private static final String IGNORED_SUFFIX = ".ignored";
+
+	private final DoctorAppointmentIndex doctorAppointmentIndex;
+
+	private final AppointmentDao appointmentDao;
+
+	private final AppointmentBookingWriter appointmentBookingWriter;
+
+	private final ArchivedAppointmentDao archivedAppointmentDao;
+
+	private final ConfigProvider configProvider;
+
+	private final PlatformTransactionManager transactionManager;
+
+	private final Clock clock;
+
+	@Value("${booking.event-log.dir:./data/booking-log}")
+	private String directoryName;
+
+	@Value("${booking.event-log.segment-size:67108864}")
+	private int segmentSize;
+
+	@Value("${booking.event-log.fsync:false}")
+	private boolean fsync;
+
+	@Value("${booking.event-log.snapshot-interval-ms:60000}")
+	private long snapshotIntervalMs;
+
+	@Value("${booking.event-log.projection.batch-size:500}")
+	private int projectionBatchSize;
+
+	@Value("${booking.event-log.projection.max-delay-ms:20}")
+	private long projectionMaxDelayMs;
+
+	@Value("${booking.event-log.projection.max-backlog:50000}")
+	private int projectionMaxBacklog;
+
+	@Value("${booking.event-log.projection.max-wait-ms:500}")
+	private long projectionMaxWaitMs;
+
+	@Value("${booking.event-log.projection.retry-delay-ms:1000}")
+	private long projectionRetryDelayMs;
+
+	private final Map<Long, BookingEvent> bookings = new ConcurrentHashMap<>();
+
+	private final Map<PatientDay, List<AppointmentPeriod>> patientDays = new ConcurrentHashMap<>();
+
+	private final Deque<Long> closedSegments = new ArrayDeque<>();
+
+	private Path directory;
+
+	private BookingSnapshots snapshots;
+
+	private LogSegment segment;
+
+	private AppointmentProjection projection;
+
+	private ScheduledExecutorService snapshotScheduler;
+
+	private long lastSequence;
+
+	private long nextId;
+
+	private long snapshotSequence;
+
+	@PostConstruct
+	public void start() throws IOException {
+		long startTime = System.nanoTime();
+		directory = Files.createDirectories(Paths.get(directoryName));
+		snapshots = new BookingSnapshots(directory);
+		long databaseMaxId = maxIdInDatabase();
+		BookingSnapshots.Snapshot snapshot = snapshots.readLatest();
+		List<Long> segments = listSegments();
+		if (snapshot != null) {
+			snapshot.getBookings().forEach(this::apply);
+			lastSequence = snapshot.getSequence();
+			snapshotSequence = lastSequence;
+			nextId = snapshot.getNextId();
+		}
+		nextId = Math.max(nextId, databaseMaxId + 1);
+		if (snapshot == null && segments.isEmpty()) {
+			seedFromDatabase();
+			snapshots.write(new BookingSnapshots.Snapshot(lastSequence, nextId, new ArrayList<>(bookings.values())));
+		}
+		List<BookingEvent> unprojected = new ArrayList<>();
+		replay(segments, databaseMaxId, unprojected);
+		doctorAppointmentIndex.setAuthoritative(true);
+		projection = new AppointmentProjection(appointmentBookingWriter, transactionManager,
+				unprojected.isEmpty() ? lastSequence : unprojected.get(0).getSequence() - 1, projectionBatchSize, projectionMaxDelayMs,
+				projectionMaxBacklog, projectionRetryDelayMs);
+		unprojected.forEach(projection::enqueue);
+		projection.start();
+		snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "booking-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		snapshotScheduler.scheduleWithFixedDelay(this::scheduledSnapshot, snapshotIntervalMs, snapshotIntervalMs, TimeUnit.MILLISECONDS);
+		log.info("booking log restored {} bookings up to sequence {} in {} ms, {} bookings to project", bookings.size(), lastSequence,
+				(System.nanoTime() - startTime) / 1_000_000, unprojected.size());
+	}
+
+	/**
+	 * Back-pressure of the projection: waits until {@code bookings} more fit into its backlog. Callers check before
+	 * they take any doctor day lock, and append at most that many bookings afterwards.
+	 *
+	 * @throws ServiceBusyException when the projection is still too far behind after
+	 * {@code booking.event-log.projection.max-wait-ms}
+	 */
+	public void awaitCapacity(int bookings) throws ServiceBusyException {
+		try {
+			if (projection.awaitCapacity(bookings, projectionMaxWaitMs)) {
+				return;
+			}
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+		throw new ServiceBusyException("Writing appointments to the database is " + projection.getBacklog() + " bookings behind");
+	}
+
+	/**
+	 * Appends a booking and applies it to the in-memory state. The caller has validated it while holding the doctor
+	 * day lock, which it must keep until this returns.
+	 *
+	 * @return the logged event with the assigned appointment id
+	 */
+	public synchronized BookingEvent append(long doctorId, long patientId, long startTime, long endTime) {
+		BookingEvent event = new BookingEvent(lastSequence + 1, nextId, doctorId, patientId, startTime, endTime, BookingEvent.Type.BOOKED);
+		nextId++;
+		write(event);
+		return event;
+	}
+
+	/**
+	 * Logs the move of a booking and applies it, like {@link #append(long, long, long, long)}; the caller holds the
+	 * locks of the old and the new doctor day.
+	 */
+	public synchronized void reschedule(AppointmentBooking booking, long startTime, long endTime) {
+		write(new BookingEvent(lastSequence + 1, booking.getId(), booking.getDoctorId(), booking.getPatientId(), startTime, endTime,
+				BookingEvent.Type.RESCHEDULED));
+	}
+
+	/**
+	 * Logs the cancellation of a booking and applies it; the caller holds the lock of its doctor day.
+	 */
+	public synchronized void cancel(AppointmentBooking booking) {
+		write(new BookingEvent(lastSequence + 1, booking.getId(), booking.getDoctorId(), booking.getPatientId(), booking.getStartTime(),
+				booking.getEndTime(), BookingEvent.Type.CANCELLED));
+	}
+
+	/**
+	 * @return the booking with the given id, or null when it is not held in memory, i.e. unknown or before today at
+	 * the last snapshot
+	 */
+	public AppointmentBooking getBooking(long id) {
+		BookingEvent booking = bookings.get(id);
+		return booking == null ? null
+				: new AppointmentBooking(booking.getId(), booking.getDoctorId(), booking.getPatientId(), booking.getStartTime(), booking.getEndTime());
+	}
+
+	/**
+	 * @return the patient appointments of the day containing {@code time}, as a copy the caller may change
+	 */
+	public List<AppointmentPeriod> getPatientDay(long patientId, long time) {
+		long startTimeOfDay = configProvider.getBusinessRules().getCalendar().startOfDay(time);
+		List<AppointmentPeriod> appointments = patientDays.get(new PatientDay(patientId, startTimeOfDay));
+		return appointments == null ? new ArrayList<>() : new ArrayList<>(appointments);
+	}
+
+	/**
+	 * @return the patient appointments of the days from {@code from} to {@code to}
+	 */
+	public List<AppointmentPeriod> getPatientPeriods(long patientId, long from, long to) {
+		ZonedEpochCalendar calendar = configProvider.getBusinessRules().getCalendar();
+		List<AppointmentPeriod> appointments = new ArrayList<>();
+		for (long day = calendar.startOfDay(from); day <= to; day = calendar.plusDays(day, 1)) {
+			List<AppointmentPeriod> dayAppointments = patientDays.get(new PatientDay(patientId, day));
+			if (dayAppointments != null) {
+				appointments.addAll(dayAppointments);
+			}
+		}
+		return appointments;
+	}
+
+	/**
+	 * Writes a snapshot of the bookings from today on, then deletes the log segments it makes unnecessary.
+	 */
+	public void snapshot() throws IOException {
+		long startOfToday = configProvider.getBusinessRules().getCalendar().startOfDay(clock.millis());
+		BookingSnapshots.Snapshot snapshot;
+		synchronized (this) {
+			if (lastSequence == snapshotSequence) {
+				snapshot = null;
+			} else {
+				bookings.values().removeIf(booking -> booking.getStartTime() < startOfToday);
+				patientDays.keySet().removeIf(day -> day.getStartTimeOfDay() < startOfToday);
+				snapshot = new BookingSnapshots.Snapshot(lastSequence, nextId, new ArrayList<>(bookings.values()));
+			}
+		}
+		if (snapshot == null) {
+			// the projection may have caught up since the last snapshot
+			deleteObsoleteSegments();
+			return;
+		}
+		snapshots.write(snapshot);
+		snapshotSequence = snapshot.getSequence();
+		deleteObsoleteSegments();
+		log.debug("booking snapshot of {} bookings at sequence {}", snapshot.getBookings().size(), snapshot.getSequence());
+	}
+
+	public long getLastSequence() {
+		return lastSequence;
+	}
+
+	public long getProjectedSequence() {
+		return projection.getProjectedSequence();
+	}
+
+	@PreDestroy
+	public void stop() throws IOException, InterruptedException {
+		snapshotScheduler.shutdown();
+		snapshotScheduler.awaitTermination(10, TimeUnit.SECONDS);
+		projection.stop(10_000);
+		snapshot();
+		synchronized (this) {
+			segment.force();
+			segment.close();
+		}
+	}
+
+	private void write(BookingEvent event) {
+		if (!segment.hasRoom()) {
+			rollSegment(event.getSequence());
+		}
+		segment.append(event);
+		if (fsync) {
+			segment.force();
+		}
+		lastSequence = event.getSequence();
+		apply(event);
+		projection.enqueue(event);
+	}
+
+	private void apply(BookingEvent event) {
+		if (event.getType() != BookingEvent.Type.BOOKED) {
+			BookingEvent previous = bookings.remove(event.getId());
+			discard(previous != null ? previous : event);
+		}
+		if (event.getType() == BookingEvent.Type.CANCELLED) {
+			return;
+		}
+		long startTimeOfDay = configProvider.getBusinessRules().getCalendar().startOfDay(event.getStartTime());
+		bookings.put(event.getId(), event);
+		patientDays.computeIfAbsent(new PatientDay(event.getPatientId(), startTimeOfDay), day -> new CopyOnWriteArrayList<>())
+				.add(new AppointmentPeriod(event.getId(), event.getStartTime(), event.getEndTime()));
+		doctorAppointmentIndex.restore(event.getDoctorId(), event.getStartTime(), event.getEndTime());
+	}
+
+	/**
+	 * Takes a booking out of its patient day and doctor day.
+	 */
+	private void discard(BookingEvent booking) {
+		long startTimeOfDay = configProvider.getBusinessRules().getCalendar().startOfDay(booking.getStartTime());
+		List<AppointmentPeriod> patientDay = patientDays.get(new PatientDay(booking.getPatientId(), startTimeOfDay));
+		if (patientDay != null) {
+			patientDay.removeIf(period -> Long.valueOf(booking.getId()).equals(period.getId()));
+		}
+		doctorAppointmentIndex.retract(booking.getDoctorId(), booking.getStartTime(), booking.getEndTime());
+	}
+
+	/**
+	 * Applies the events after the snapshot and opens the last segment for appending. Bookings with ids above the
+	 * largest id in the database did not reach the projection before the last stop; moves and cancellations cannot
+	 * be told apart that way, so those still in the log are projected again, which repeats them harmlessly.
+	 */
+	private void replay(List<Long> segments, long databaseMaxId, List<BookingEvent> unprojected) throws IOException {
+		for (int i = 0; i < segments.size(); i++) {
+			if (segments.get(i) > lastSequence + 1) {
+				log.warn("booking log is missing the events {} to {}, ignoring the {} segments from there", lastSequence + 1, segments.get(i) - 1,
+						segments.size() - i);
+				setAside(segments.subList(i, segments.size()));
+				break;
+			}
+			LogSegment replayed = LogSegment.open(directory, segments.get(i), segmentSize);
+			boolean truncated = replayed.replay(event -> {
+				if (event.getSequence() > lastSequence) {
+					apply(event);
+					lastSequence = event.getSequence();
+					nextId = Math.max(nextId, event.getId() + 1);
+				}
+				if (event.getId() > databaseMaxId || event.getType() != BookingEvent.Type.BOOKED) {
+					unprojected.add(event);
+				}
+			});
+			if (i < segments.size() - 1 && !truncated) {
+				closedSegments.add(replayed.getFirstSequence());
+				replayed.close();
+				continue;
+			}
+			if (i < segments.size() - 1) {
+				log.warn("booking log segment {} ends early, ignoring the {} segments after it", replayed.getPath(), segments.size() - 1 - i);
+				setAside(segments.subList(i + 1, segments.size()));
+			}
+			segment = replayed;
+			return;
+		}
+		segment = LogSegment.open(directory, lastSequence + 1, segmentSize);
+	}
+
+	/**
+	 * Renames segments that replay could not reach, so that new segments do not take their names and a later start
+	 * does not apply them after the events written in the meantime. They are kept for inspection.
+	 */
+	private void setAside(List<Long> firstSequences) throws IOException {
+		for (long firstSequence : firstSequences) {
+			Path file = directory.resolve(LogSegment.fileName(firstSequence));
+			Files.move(file, file.resolveSibling(file.getFileName() + IGNORED_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private void rollSegment(long firstSequence) {
+		try {
+			segment.force();
+			segment.close();
+			closedSegments.add(segment.getFirstSequence());
+			segment = LogSegment.open(directory, firstSequence, segmentSize);
+		} catch (IOException exception) {
+			throw new UncheckedIOException("rolling the booking log failed", exception);
+		}
+	}
+
+	/**
+	 * Deletes closed segments whose events are all covered by the snapshot and in the database.
+	 */
+	private void deleteObsoleteSegments() throws IOException {
+		long bound = Math.min(snapshotSequence, projection.getProjectedSequence());
+		List<Long> deletable = new ArrayList<>();
+		synchronized (this) {
+			List<Long> firstSequences = new ArrayList<>(closedSegments);
+			firstSequences.add(segment.getFirstSequence());
+			for (int i = 0; i < firstSequences.size() - 1 && firstSequences.get(i + 1) - 1 <= bound; i++) {
+				deletable.add(closedSegments.poll());
+			}
+		}
+		for (long firstSequence : deletable) {
+			Files.deleteIfExists(directory.resolve(LogSegment.fileName(firstSequence)));
+		}
+	}
+
+	private void scheduledSnapshot() {
+		try {
+			snapshot();
+		} catch (IOException | RuntimeException exception) {
+			log.error("booking snapshot failed", exception);
+		}
+	}
+
+	private void seedFromDatabase() {
+		long startOfToday = configProvider.getBusinessRules().getCalendar().startOfDay(clock.millis());
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setReadOnly(true);
+		transaction.executeWithoutResult(status -> {
+			try (Stream<AppointmentBooking> upcoming = appointmentDao.streamBookingsStartingFrom(startOfToday)) {
+				upcoming.forEach(booking -> apply(new BookingEvent(0, booking.getId(), booking.getDoctorId(), booking.getPatientId(),
+						booking.getStartTime(), booking.getEndTime(), BookingEvent.Type.BOOKED)));
+			}
+		});
+		log.info("booking state seeded with {} upcoming appointments from the database", bookings.size());
+	}
+
+	/**
+	 * @return the largest appointment id in the database, archived ones included
+	 */
+	private long maxIdInDatabase() {
+		Long maxId = appointmentDao.findMaxId();
+		Long maxArchivedId = archivedAppointmentDao.findMaxId();
+		return Math.max(maxId == null ? 0 : maxId, maxArchivedId == null ? 0 : maxArchivedId);
+	}
+
+	private List<Long> listSegments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.map(LogSegment::firstSequenceOf).filter(firstSequence -> firstSequence >= 0).sorted().collect(Collectors.toList());
+		}
+	}
+
+	@lombok.Value
+	private static class PatientDay {
+		long patientId;
+		long startTimeOfDay;
+	}
+}
@@ -0,0 +1,135 @@
+package com.assessment.clinic.service.appointment.eventlog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Snapshot files of the booking state: the bookings still relevant for validation, the sequence of the last event they
+ * include and the next appointment id. A snapshot is written to a temporary file, synced and renamed, so a crash never
+ * leaves a half written one; a trailing checksum catches anything else.
+ */
+@Slf4j
+final class BookingSnapshots {
+
+	private static final int MAGIC = 0x424B534E;
+
+	private static final int VERSION = 1;
+
+	private static final String PREFIX = "snapshot-";
+
+	private static final String SUFFIX = ".bin";
+
+	private final Path directory;
+
+	BookingSnapshots(Path directory) {
+		this.directory = directory;
+	}
+
+	void write(Snapshot snapshot) throws IOException {
+		Path file = directory.resolve(String.format("%s%020d%s", PREFIX, snapshot.getSequence(), SUFFIX));
+		Path temporaryFile = directory.resolve(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+			CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)), new CRC32());
+			DataOutputStream output = new DataOutputStream(checked);
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(snapshot.getSequence());
+			output.writeLong(snapshot.getNextId());
+			output.writeInt(snapshot.getBookings().size());
+			for (BookingEvent booking : snapshot.getBookings()) {
+				output.writeLong(booking.getSequence());
+				output.writeLong(booking.getId());
+				output.writeLong(booking.getDoctorId());
+				output.writeLong(booking.getPatientId());
+				output.writeLong(booking.getStartTime());
+				output.writeLong(booking.getEndTime());
+			}
+			output.flush();
+			output.writeLong(checked.getChecksum().getValue());
+			output.flush();
+			channel.force(true);
+		}
+		Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		for (Path older : list()) {
+			if (!older.equals(file)) {
+				Files.deleteIfExists(older);
+			}
+		}
+	}
+
+	/**
+	 * @return the newest readable snapshot, or null when there is none
+	 */
+	Snapshot readLatest() throws IOException {
+		for (Path file : list()) {
+			try {
+				return read(file);
+			} catch (IOException exception) {
+				log.warn("skipping unreadable booking snapshot {}: {}", file, exception.getMessage());
+			}
+		}
+		return null;
+	}
+
+	private Snapshot read(Path file) throws IOException {
+		try (CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file)), new CRC32());
+				DataInputStream input = new DataInputStream(checked)) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				throw new IOException("not a booking snapshot");
+			}
+			long sequence = input.readLong();
+			long nextId = input.readLong();
+			int count = input.readInt();
+			List<BookingEvent> bookings = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				bookings.add(new BookingEvent(input.readLong(), input.readLong(), input.readLong(), input.readLong(), input.readLong(), input.readLong(),
+						BookingEvent.Type.BOOKED));
+			}
+			long checksum = checked.getChecksum().getValue();
+			if (input.readLong() != checksum) {
+				throw new IOException("checksum mismatch");
+			}
+			return new Snapshot(sequence, nextId, bookings);
+		}
+	}
+
+	/**
+	 * @return snapshot files, newest first
+	 */
+	private List<Path> list() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().startsWith(PREFIX) && file.getFileName().toString().endsWith(SUFFIX))
+					.sorted(Comparator.comparing((Path file) -> file.getFileName().toString()).reversed())
+					.collect(Collectors.toList());
+		}
+	}
+
+	@Value
+	static class Snapshot {
+		long sequence;
+		long nextId;
+		Collection<BookingEvent> bookings;
+	}
+}
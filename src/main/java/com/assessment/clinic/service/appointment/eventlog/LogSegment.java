@@ -0,0 +1,202 @@
+package com.assessment.clinic.service.appointment.eventlog;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * A preallocated, memory-mapped file of fixed size booking records. A record is written field by field with plain
+ * stores into the mapping, its checksum next and its magic number last, so a record is valid only once it was written
+ * completely. Reading stops at the first record that is missing, torn or out of sequence; everything after it is
+ * zeroed before the segment is appended to again.
+ * <p>
+ * Record layout, in the default big endian byte order:
+ * magic (int, one per event type), crc32 of the payload (int), sequence, id, doctor id, patient id, start time,
+ * end time (longs), padding.
+ */
+final class LogSegment implements AutoCloseable {
+
+	static final int RECORD_SIZE = 64;
+
+	private static final int BOOKED_MAGIC = 0x424B4E47;
+
+	private static final int RESCHEDULED_MAGIC = 0x52534344;
+
+	private static final int CANCELLED_MAGIC = 0x434E434C;
+
+	private static final int PAYLOAD_OFFSET = 8;
+
+	private static final int PAYLOAD_SIZE = 48;
+
+	private static final String PREFIX = "bookings-";
+
+	private static final String SUFFIX = ".log";
+
+	private final Path path;
+
+	private final long firstSequence;
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer buffer;
+
+	private final CRC32 crc = new CRC32();
+
+	private int position;
+
+	private LogSegment(Path path, long firstSequence, FileChannel channel, MappedByteBuffer buffer) {
+		this.path = path;
+		this.firstSequence = firstSequence;
+		this.channel = channel;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Opens or creates the segment whose first record has {@code firstSequence}, mapping {@code size} bytes.
+	 */
+	static LogSegment open(Path directory, long firstSequence, int size) throws IOException {
+		Path path = directory.resolve(fileName(firstSequence));
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			int mappedSize = (int) Math.max(channel.size(), size - size % RECORD_SIZE);
+			return new LogSegment(path, firstSequence, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize));
+		} catch (IOException | RuntimeException exception) {
+			channel.close();
+			throw exception;
+		}
+	}
+
+	static String fileName(long firstSequence) {
+		return String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX);
+	}
+
+	/**
+	 * @return the first sequence encoded in a segment file name, or -1 if it is not a segment file
+	 */
+	static long firstSequenceOf(Path path) {
+		String name = path.getFileName().toString();
+		if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+		} catch (NumberFormatException exception) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Passes the valid records to {@code consumer} in order, then positions the segment after the last of them.
+	 *
+	 * @return whether the segment ended with a missing, torn or out of sequence record rather than being full
+	 */
+	boolean replay(Consumer<BookingEvent> consumer) {
+		long expectedSequence = firstSequence;
+		position = 0;
+		while (hasRoom()) {
+			BookingEvent event = read(position);
+			if (event == null || event.getSequence() != expectedSequence) {
+				clearFrom(position);
+				return true;
+			}
+			consumer.accept(event);
+			expectedSequence++;
+			position += RECORD_SIZE;
+		}
+		return false;
+	}
+
+	boolean hasRoom() {
+		return position + RECORD_SIZE <= buffer.capacity();
+	}
+
+	void append(BookingEvent event) {
+		int offset = position;
+		buffer.putLong(offset + PAYLOAD_OFFSET, event.getSequence());
+		buffer.putLong(offset + PAYLOAD_OFFSET + 8, event.getId());
+		buffer.putLong(offset + PAYLOAD_OFFSET + 16, event.getDoctorId());
+		buffer.putLong(offset + PAYLOAD_OFFSET + 24, event.getPatientId());
+		buffer.putLong(offset + PAYLOAD_OFFSET + 32, event.getStartTime());
+		buffer.putLong(offset + PAYLOAD_OFFSET + 40, event.getEndTime());
+		buffer.putInt(offset + 4, checksum(offset));
+		buffer.putInt(offset, magicOf(event.getType()));
+		position += RECORD_SIZE;
+	}
+
+	/**
+	 * Writes the mapped pages to the device.
+	 */
+	void force() {
+		buffer.force();
+	}
+
+	long getFirstSequence() {
+		return firstSequence;
+	}
+
+	Path getPath() {
+		return path;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private BookingEvent read(int offset) {
+		BookingEvent.Type type = typeOf(buffer.getInt(offset));
+		if (type == null || buffer.getInt(offset + 4) != checksum(offset)) {
+			return null;
+		}
+		return new BookingEvent(buffer.getLong(offset + PAYLOAD_OFFSET), buffer.getLong(offset + PAYLOAD_OFFSET + 8),
+				buffer.getLong(offset + PAYLOAD_OFFSET + 16), buffer.getLong(offset + PAYLOAD_OFFSET + 24),
+				buffer.getLong(offset + PAYLOAD_OFFSET + 32), buffer.getLong(offset + PAYLOAD_OFFSET + 40), type);
+	}
+
+	private static int magicOf(BookingEvent.Type type) {
+		switch (type) {
+		case RESCHEDULED:
+			return RESCHEDULED_MAGIC;
+		case CANCELLED:
+			return CANCELLED_MAGIC;
+		default:
+			return BOOKED_MAGIC;
+		}
+	}
+
+	/**
+	 * @return the event type of a record magic, or null if there is no valid record
+	 */
+	private static BookingEvent.Type typeOf(int magic) {
+		switch (magic) {
+		case BOOKED_MAGIC:
+			return BookingEvent.Type.BOOKED;
+		case RESCHEDULED_MAGIC:
+			return BookingEvent.Type.RESCHEDULED;
+		case CANCELLED_MAGIC:
+			return BookingEvent.Type.CANCELLED;
+		default:
+			return null;
+		}
+	}
+
+	private int checksum(int offset) {
+		crc.reset();
+		crc.update(buffer.slice(offset + PAYLOAD_OFFSET, PAYLOAD_SIZE));
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Zeroes the rest of the segment, so records left behind a torn one by an earlier crash cannot be read once new
+	 * records are written in front of them.
+	 */
+	private void clearFrom(int offset) {
+		for (int i = offset; i + Long.BYTES <= buffer.capacity(); i += Long.BYTES) {
+			buffer.putLong(i, 0L);
+		}
+	}
+}
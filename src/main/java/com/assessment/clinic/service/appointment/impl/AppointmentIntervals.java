@@ -0,0 +1,283 @@
+package com.assessment.clinic.service.appointment.impl;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Appointment periods of one owner (doctor or patient) in one day, kept as two independently sorted primitive arrays
+ * of start and end times. The number of periods overlapping a closed range [start, end] is
+ * {@code #(starts <= end) - #(ends < start)}, so it is answered with two binary searches.
+ * <p>
+ * For slot searches the day also keeps a materialized view of its blocked start times: the ranges of start times at
+ * which a slot of a given duration would overlap a given number of periods or more. It is built on the first search
+ * and rebuilt only when the duration or the limit changes; {@link #add} and {@link #remove} re-sweep just the start
+ * times the changed period can reach and splice the result into the ranges, so searches only walk the ranges.
+ */
+public final class AppointmentIntervals {
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private long[] starts;
+
+	private long[] ends;
+
+	private int size;
+
+	private long blockedDuration = -1;
+
+	private int blockedThreshold = -1;
+
+	/**
+	 * Blocked start times as half-open ranges [blockedFrom[i], blockedTo[i]), sorted and disjoint.
+	 */
+	private long[] blockedFrom;
+
+	private long[] blockedTo;
+
+	private int blockedCount;
+
+	/**
+	 * Scratch ranges collected by {@link #updateBlocked} before they replace the affected blocked ranges.
+	 */
+	private long[] pieceFrom = new long[INITIAL_CAPACITY];
+
+	private long[] pieceTo = new long[INITIAL_CAPACITY];
+
+	private int pieceCount;
+
+	public AppointmentIntervals() {
+		this.starts = new long[INITIAL_CAPACITY];
+		this.ends = new long[INITIAL_CAPACITY];
+		this.blockedFrom = new long[INITIAL_CAPACITY];
+		this.blockedTo = new long[INITIAL_CAPACITY];
+	}
+
+	public synchronized void add(long startTime, long endTime) {
+		if (size == starts.length) {
+			starts = Arrays.copyOf(starts, size << 1);
+			ends = Arrays.copyOf(ends, size << 1);
+		}
+		insert(starts, size, startTime);
+		insert(ends, size, endTime);
+		size++;
+		updateBlocked(startTime, endTime);
+	}
+
+	/**
+	 * Removes one period previously added with the same bounds; unknown periods are ignored.
+	 */
+	public synchronized void remove(long startTime, long endTime) {
+		int startIndex = lowerBound(starts, size, startTime);
+		int endIndex = lowerBound(ends, size, endTime);
+		if (startIndex == size || starts[startIndex] != startTime || endIndex == size || ends[endIndex] != endTime) {
+			return;
+		}
+		System.arraycopy(starts, startIndex + 1, starts, startIndex, size - startIndex - 1);
+		System.arraycopy(ends, endIndex + 1, ends, endIndex, size - endIndex - 1);
+		size--;
+		updateBlocked(startTime, endTime);
+	}
+
+	public synchronized int countOverlapping(long startTime, long endTime) {
+		return upperBound(starts, size, endTime) - lowerBound(ends, size, startTime);
+	}
+
+	/**
+	 * Clears every slot whose period [first + i * step, first + i * step + duration] already overlaps
+	 * {@code maxOverlapping} or more periods, using the blocked start ranges of that duration and limit.
+	 */
+	public synchronized void clearSaturated(BitSet slots, int slotCount, long firstStartTime, long step, long duration, int maxOverlapping) {
+		if (duration != blockedDuration || maxOverlapping != blockedThreshold) {
+			blockedDuration = duration;
+			blockedThreshold = maxOverlapping;
+			refreshBlocked();
+		}
+		for (int i = 0; i < blockedCount; i++) {
+			long firstSlot = blockedFrom[i] <= firstStartTime ? 0 : ceilDiv(blockedFrom[i] - firstStartTime, step);
+			long endSlot = blockedTo[i] <= firstStartTime ? 0 : Math.min(slotCount, ceilDiv(blockedTo[i] - firstStartTime, step));
+			if (firstSlot < endSlot) {
+				slots.clear((int) firstSlot, (int) endSlot);
+			}
+		}
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Rebuilds the blocked start ranges with one sweep. A slot starting at {@code s} overlaps a period once
+	 * {@code s >= start - duration} and stops overlapping it once {@code s > end}, so every start adds an event at
+	 * {@code start - duration} and every end removes one at {@code end + 1}; both event lists are already sorted.
+	 */
+	private void refreshBlocked() {
+		blockedCount = 0;
+		if (blockedThreshold < 0) {
+			return;
+		}
+		if (blockedThreshold == 0) {
+			addBlocked(Long.MIN_VALUE, Long.MAX_VALUE);
+			return;
+		}
+		int startIndex = 0;
+		int endIndex = 0;
+		int overlapping = 0;
+		long blockedStart = 0;
+		while (startIndex < size || endIndex < size) {
+			long position = Math.min(startIndex < size ? starts[startIndex] - blockedDuration : Long.MAX_VALUE,
+					endIndex < size ? ends[endIndex] + 1 : Long.MAX_VALUE);
+			int before = overlapping;
+			while (startIndex < size && starts[startIndex] - blockedDuration == position) {
+				overlapping++;
+				startIndex++;
+			}
+			while (endIndex < size && ends[endIndex] + 1 == position) {
+				overlapping--;
+				endIndex++;
+			}
+			if (before < blockedThreshold && overlapping >= blockedThreshold) {
+				blockedStart = position;
+			} else if (before >= blockedThreshold && overlapping < blockedThreshold) {
+				addBlocked(blockedStart, position);
+			}
+		}
+	}
+
+	/**
+	 * Updates the blocked start ranges after the period [startTime, endTime] was added or removed. Only slot starts in
+	 * [startTime - duration, endTime] see a different overlap count, so that window is swept from the count at its
+	 * first start and the blocked ranges touching it are replaced by the swept ones.
+	 */
+	private void updateBlocked(long startTime, long endTime) {
+		if (blockedThreshold <= 0) {
+			return;
+		}
+		long from = startTime - blockedDuration;
+		long to = endTime + 1;
+		int first = lowerBound(blockedTo, blockedCount, from);
+		int last = upperBound(blockedFrom, blockedCount, to);
+		pieceCount = 0;
+		if (first < last && blockedFrom[first] < from) {
+			addPiece(blockedFrom[first], Math.min(blockedTo[first], from));
+		}
+		int startIndex = upperBound(starts, size, from + blockedDuration);
+		int startLimit = lowerBound(starts, size, to + blockedDuration);
+		int endIndex = lowerBound(ends, size, from);
+		int endLimit = lowerBound(ends, size, to - 1);
+		int overlapping = countOverlapping(from, from + blockedDuration);
+		long blockedStart = from;
+		while (startIndex < startLimit || endIndex < endLimit) {
+			long position = Math.min(startIndex < startLimit ? starts[startIndex] - blockedDuration : Long.MAX_VALUE,
+					endIndex < endLimit ? ends[endIndex] + 1 : Long.MAX_VALUE);
+			int before = overlapping;
+			while (startIndex < startLimit && starts[startIndex] - blockedDuration == position) {
+				overlapping++;
+				startIndex++;
+			}
+			while (endIndex < endLimit && ends[endIndex] + 1 == position) {
+				overlapping--;
+				endIndex++;
+			}
+			if (before < blockedThreshold && overlapping >= blockedThreshold) {
+				blockedStart = position;
+			} else if (before >= blockedThreshold && overlapping < blockedThreshold) {
+				addPiece(blockedStart, position);
+			}
+		}
+		if (overlapping >= blockedThreshold) {
+			addPiece(blockedStart, to);
+		}
+		if (first < last && blockedTo[last - 1] > to) {
+			addPiece(Math.max(blockedFrom[last - 1], to), blockedTo[last - 1]);
+		}
+		spliceBlocked(first, last);
+	}
+
+	/**
+	 * Appends a range to the pieces of {@link #updateBlocked}, merging it into the previous one when they touch.
+	 */
+	private void addPiece(long from, long to) {
+		if (pieceCount > 0 && pieceTo[pieceCount - 1] == from) {
+			pieceTo[pieceCount - 1] = to;
+			return;
+		}
+		if (pieceCount == pieceFrom.length) {
+			pieceFrom = Arrays.copyOf(pieceFrom, pieceCount << 1);
+			pieceTo = Arrays.copyOf(pieceTo, pieceCount << 1);
+		}
+		pieceFrom[pieceCount] = from;
+		pieceTo[pieceCount] = to;
+		pieceCount++;
+	}
+
+	/**
+	 * Replaces the blocked ranges [first, last) with the collected pieces.
+	 */
+	private void spliceBlocked(int first, int last) {
+		int newCount = blockedCount - (last - first) + pieceCount;
+		if (newCount > blockedFrom.length) {
+			int capacity = Math.max(newCount, blockedFrom.length << 1);
+			blockedFrom = Arrays.copyOf(blockedFrom, capacity);
+			blockedTo = Arrays.copyOf(blockedTo, capacity);
+		}
+		System.arraycopy(blockedFrom, last, blockedFrom, first + pieceCount, blockedCount - last);
+		System.arraycopy(blockedTo, last, blockedTo, first + pieceCount, blockedCount - last);
+		System.arraycopy(pieceFrom, 0, blockedFrom, first, pieceCount);
+		System.arraycopy(pieceTo, 0, blockedTo, first, pieceCount);
+		blockedCount = newCount;
+	}
+
+	private void addBlocked(long from, long to) {
+		if (blockedCount == blockedFrom.length) {
+			blockedFrom = Arrays.copyOf(blockedFrom, blockedCount << 1);
+			blockedTo = Arrays.copyOf(blockedTo, blockedCount << 1);
+		}
+		blockedFrom[blockedCount] = from;
+		blockedTo[blockedCount] = to;
+		blockedCount++;
+	}
+
+	private static long ceilDiv(long dividend, long divisor) {
+		return -Math.floorDiv(-dividend, divisor);
+	}
+
+	private static void insert(long[] values, int size, long value) {
+		int index = upperBound(values, size, value);
+		System.arraycopy(values, index, values, index + 1, size - index);
+		values[index] = value;
+	}
+
+	/**
+	 * @return index of the first value greater than or equal to {@code key}
+	 */
+	static int lowerBound(long[] values, int size, long key) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return index of the first value strictly greater than {@code key}
+	 */
+	static int upperBound(long[] values, int size, long key) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] <= key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
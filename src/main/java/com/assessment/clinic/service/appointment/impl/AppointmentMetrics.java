@@ -0,0 +1,186 @@
+package com.assessment.clinic.service.appointment.impl;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import com.assessment.clinic.exception.BusinessException;
+import com.assessment.clinic.exception.RejectionReason;
+import com.assessment.clinic.exception.ResultStatus;
+import com.assessment.clinic.exception.ValidationException;
+import com.assessment.clinic.service.appointment.EarliestAppointmentSearchMode;
+import com.assessment.clinic.service.doctor.impl.DoctorScheduleCache;
+import com.assessment.clinic.service.patient.impl.KnownPatientCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer meters of the booking path. All meters are registered up front, so recording is an array or map lookup
+ * and never builds tags on the hot path. Without a {@link MeterRegistry} bean the meters go to the global registry,
+ * which drops them unless something is attached to it.
+ * <ul>
+ * <li>{@code appointment.booking} timer per operation and {@link ResultStatus}, its count is the result counter</li>
+ * <li>{@code appointment.validation} timer per validation stage</li>
+ * <li>{@code appointment.rejections} counter per {@link RejectionReason}</li>
+ * <li>{@code appointment.earliest.presences} histogram of presences searched per earliest appointment search</li>
+ * <li>{@code cache.gets} per result, {@code cache.evictions}, {@code cache.size} and {@code cache.hit.ratio} of the
+ * {@code doctorSchedules} and {@code knownPatients} caches, read from their own counters when scraped</li>
+ * </ul>
+ * Repository queries are timed by Spring Boot itself as {@code spring.data.repository.invocations}.
+ */
+@Component
+public class AppointmentMetrics {
+
+	public enum Operation {
+		SET_APPOINTMENT, SET_EARLIEST_APPOINTMENT, SET_EARLIEST_APPOINTMENT_WITH_ANY_DOCTOR, SET_APPOINTMENTS, SET_APPOINTMENT_SERIES,
+		CANCEL_APPOINTMENT, RESCHEDULE_APPOINTMENT
+	}
+
+	public enum ValidationStage {
+		TIME, PATIENT, DOCTOR
+	}
+
+	@FunctionalInterface
+	public interface Booking<T> {
+		T book() throws BusinessException;
+	}
+
+	private static final String ERROR_STATUS = "ERROR";
+
+	private final Map<Operation, Map<ResultStatus, Timer>> bookingTimers = new EnumMap<>(Operation.class);
+
+	private final Map<Operation, Timer> bookingErrorTimers = new EnumMap<>(Operation.class);
+
+	private final Map<ValidationStage, Timer> validationTimers = new EnumMap<>(ValidationStage.class);
+
+	private final Map<RejectionReason, Counter> rejectionCounters = new EnumMap<>(RejectionReason.class);
+
+	private final Map<EarliestAppointmentSearchMode, DistributionSummary> earliestSearchPresences = new EnumMap<>(EarliestAppointmentSearchMode.class);
+
+	public AppointmentMetrics(ObjectProvider<MeterRegistry> meterRegistry, ObjectProvider<DoctorScheduleCache> doctorScheduleCache,
+			ObjectProvider<KnownPatientCache> knownPatientCache) {
+		MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+		doctorScheduleCache.ifAvailable(cache -> bindCache(registry, "doctorSchedules", cache, DoctorScheduleCache::getHitCount,
+				DoctorScheduleCache::getMissCount, DoctorScheduleCache::getEvictionCount, DoctorScheduleCache::size));
+		knownPatientCache.ifAvailable(cache -> bindCache(registry, "knownPatients", cache, KnownPatientCache::getHitCount,
+				KnownPatientCache::getMissCount, KnownPatientCache::getEvictionCount, KnownPatientCache::size));
+		for (Operation operation : Operation.values()) {
+			Map<ResultStatus, Timer> timers = new EnumMap<>(ResultStatus.class);
+			for (ResultStatus status : ResultStatus.values()) {
+				timers.put(status, bookingTimer(registry, operation, status.name()));
+			}
+			bookingTimers.put(operation, timers);
+			bookingErrorTimers.put(operation, bookingTimer(registry, operation, ERROR_STATUS));
+		}
+		for (ValidationStage stage : ValidationStage.values()) {
+			validationTimers.put(stage, Timer.builder("appointment.validation")
+					.description("time of one appointment validation stage")
+					.tag("stage", stage.name())
+					.register(registry));
+		}
+		for (RejectionReason reason : RejectionReason.values()) {
+			rejectionCounters.put(reason, Counter.builder("appointment.rejections")
+					.description("appointments rejected by a business rule")
+					.tag("reason", reason.name())
+					.register(registry));
+		}
+		for (EarliestAppointmentSearchMode mode : EarliestAppointmentSearchMode.values()) {
+			earliestSearchPresences.put(mode, DistributionSummary.builder("appointment.earliest.presences")
+					.description("doctor presences searched by one earliest appointment search")
+					.tag("mode", mode.name())
+					.publishPercentileHistogram()
+					.register(registry));
+		}
+	}
+
+	/**
+	 * Runs a booking operation and records its time under its result status; a rejected booking is also counted
+	 * under its rejection reason.
+	 */
+	public <T> T timeBooking(Operation operation, Booking<T> booking) throws BusinessException {
+		long startTime = System.nanoTime();
+		try {
+			T result = booking.book();
+			recordBooking(operation, ResultStatus.SUCCESS, startTime);
+			return result;
+		} catch (BusinessException exception) {
+			recordBooking(operation, exception.getResultStatus(), startTime);
+			recordRejection(exception);
+			throw exception;
+		} catch (RuntimeException exception) {
+			recordBooking(operation, null, startTime);
+			throw exception;
+		}
+	}
+
+	/**
+	 * @param status result of the operation, {@code null} when it failed with an unexpected error
+	 */
+	public void recordBooking(Operation operation, ResultStatus status, long startTime) {
+		record(status == null ? bookingErrorTimers.get(operation) : bookingTimers.get(operation).get(status), startTime);
+	}
+
+	public void recordRejection(BusinessException exception) {
+		if (exception instanceof ValidationException) {
+			rejectionCounters.get(((ValidationException) exception).getRejectionReason()).increment();
+		}
+	}
+
+	public void recordValidation(ValidationStage stage, long startTime) {
+		record(validationTimers.get(stage), startTime);
+	}
+
+	public void recordEarliestSearch(EarliestAppointmentSearchMode mode, int presencesSearched) {
+		earliestSearchPresences.get(mode).record(presencesSearched);
+	}
+
+	private static <C> void bindCache(MeterRegistry registry, String name, C cache, ToLongFunction<C> hits, ToLongFunction<C> misses,
+			ToLongFunction<C> evictions, ToIntFunction<C> size) {
+		FunctionCounter.builder("cache.gets", cache, value -> hits.applyAsLong(value))
+				.description("cache lookups answered from the cache")
+				.tags("cache", name, "result", "hit")
+				.register(registry);
+		FunctionCounter.builder("cache.gets", cache, value -> misses.applyAsLong(value))
+				.description("cache lookups that had to load")
+				.tags("cache", name, "result", "miss")
+				.register(registry);
+		FunctionCounter.builder("cache.evictions", cache, value -> evictions.applyAsLong(value))
+				.description("entries evicted because the cache was full")
+				.tag("cache", name)
+				.register(registry);
+		Gauge.builder("cache.size", cache, value -> size.applyAsInt(value))
+				.description("entries in the cache")
+				.tag("cache", name)
+				.register(registry);
+		Gauge.builder("cache.hit.ratio", cache, value -> {
+			long hitCount = hits.applyAsLong(value);
+			long lookups = hitCount + misses.applyAsLong(value);
+			return lookups == 0 ? 0 : (double) hitCount / lookups;
+		}).description("share of lookups answered from the cache, 0 before the first lookup")
+				.tag("cache", name)
+				.register(registry);
+	}
+
+	private static Timer bookingTimer(MeterRegistry registry, Operation operation, String status) {
+		return Timer.builder("appointment.booking")
+				.description("time of one booking operation")
+				.tag("operation", operation.name())
+				.tag("status", status)
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+
+	private static void record(Timer timer, long startTime) {
+		timer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+	}
+}
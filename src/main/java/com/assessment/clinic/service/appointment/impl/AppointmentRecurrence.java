@@ -0,0 +1,45 @@
+package com.assessment.clinic.service.appointment.impl;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.assessment.clinic.model.calendar.PersianDayOfWeek;
+import com.assessment.clinic.service.appointment.dto.RecurrenceRule;
+import com.assessment.clinic.utli.ZonedEpochCalendar;
+
+/**
+ * Expands a {@link RecurrenceRule} into the start times of its occurrences.
+ */
+final class AppointmentRecurrence {
+
+	private static final int DAYS_IN_WEEK = 7;
+
+	private AppointmentRecurrence() {
+	}
+
+	/**
+	 * @return start times of the occurrences in ascending order, at most one per day, the first one not before
+	 * {@code firstTime}
+	 */
+	static long[] occurrences(long firstTime, RecurrenceRule rule, ZonedEpochCalendar calendar) {
+		Set<PersianDayOfWeek> days = rule.getDaysOfWeek() == null || rule.getDaysOfWeek().isEmpty()
+				? EnumSet.of(calendar.persianDayOfWeek(firstTime))
+				: EnumSet.copyOf(rule.getDaysOfWeek());
+		int intervalInWeeks = rule.getIntervalInWeeks() == null ? 1 : rule.getIntervalInWeeks();
+		long[] occurrences = new long[rule.getOccurrences()];
+		int firstDayInWeek = calendar.persianDayOfWeek(firstTime).getValue() - 1;
+		int count = 0;
+		for (int day = 0; count < occurrences.length; day++) {
+			int week = (firstDayInWeek + day) / DAYS_IN_WEEK;
+			if (week % intervalInWeeks != 0) {
+				day += DAYS_IN_WEEK - 1 - (firstDayInWeek + day) % DAYS_IN_WEEK;
+				continue;
+			}
+			long time = calendar.plusDays(firstTime, day);
+			if (days.contains(calendar.persianDayOfWeek(time))) {
+				occurrences[count++] = time;
+			}
+		}
+		return occurrences;
+	}
+}
@@ -1,36 +1,75 @@
 package com.assessment.clinic.service.appointment.impl;
 
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.validation.Valid;
 
+import com.assessment.clinic.exception.AppointmentNotFoundException;
 import com.assessment.clinic.exception.BusinessException;
 import com.assessment.clinic.exception.DoctorNotFoundException;
+import com.assessment.clinic.exception.PatientNotFoundException;
+import com.assessment.clinic.exception.RejectionReason;
+import com.assessment.clinic.exception.ResultStatus;
+import com.assessment.clinic.exception.ServiceBusyException;
 import com.assessment.clinic.exception.ValidationException;
 import com.assessment.clinic.model.appointment.Appointment;
+import com.assessment.clinic.model.appointment.AppointmentBooking;
 import com.assessment.clinic.model.appointment.AppointmentDao;
-import com.assessment.clinic.model.calendar.Presence;
-import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.model.appointment.AppointmentPeriod;
 import com.assessment.clinic.model.patient.Patient;
 import com.assessment.clinic.service.appointment.AppointmentService;
+import com.assessment.clinic.service.appointment.ConflictCheckMode;
+import com.assessment.clinic.service.appointment.EarliestAppointmentSearchMode;
+import com.assessment.clinic.service.appointment.SeriesBookingMode;
+import com.assessment.clinic.service.appointment.dto.AppointmentResult;
+import com.assessment.clinic.service.appointment.dto.AvailableSlot;
+import com.assessment.clinic.service.appointment.dto.BookedAppointment;
+import com.assessment.clinic.service.appointment.dto.CreateAppointmentSeriesRequest;
+import com.assessment.clinic.service.appointment.dto.CreateAutoAppointmentByGradeRequest;
 import com.assessment.clinic.service.appointment.dto.CreateAutoAppointmentRequest;
 import com.assessment.clinic.service.appointment.dto.CreateNewAppointmentRequest;
+import com.assessment.clinic.service.appointment.dto.SeriesOccurrenceResult;
+import com.assessment.clinic.service.appointment.eventlog.BookingEventLog;
+import com.assessment.clinic.service.appointment.impl.AppointmentMetrics.Operation;
+import com.assessment.clinic.service.appointment.impl.AppointmentMetrics.ValidationStage;
 import com.assessment.clinic.service.appointment.mapper.AppointmentServiceMapper;
 import com.assessment.clinic.service.doctor.DoctorService;
+import com.assessment.clinic.service.doctor.dto.DoctorSchedule;
 import com.assessment.clinic.service.patient.PatientService;
+import com.assessment.clinic.utli.BusinessRules;
 import com.assessment.clinic.utli.ConfigProvider;
-import com.assessment.clinic.utli.TimeUtil;
+import com.assessment.clinic.utli.ZonedEpochCalendar;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AppointmentServiceImpl implements AppointmentService {
 
+	/**
+	 * Number of searches a multi doctor booking runs before giving up, when the found slot keeps being taken by
+	 * parallel bookings before it can be booked.
+	 */
+	private static final int MAX_MULTI_DOCTOR_BOOKING_ATTEMPTS = 3;
+
 	private final AppointmentValidator validator;
 
 	private final DoctorService doctorService;
@@ -43,78 +82,752 @@ public class AppointmentServiceImpl implements AppointmentService {
 
 	private final ConfigProvider configProvider;
 
+	private final DoctorAppointmentIndex doctorAppointmentIndex;
+
+	private final PatientDayLocks patientDayLocks;
+
+	private final SlotAvailabilityEngine slotAvailabilityEngine;
+
+	private final MultiDoctorSlotSearch multiDoctorSlotSearch;
+
+	private final AppointmentMetrics metrics;
+
+	private final Clock clock;
+
+	/**
+	 * present with {@code booking.engine=event-log}; bookings are then appended to the log instead of saved
+	 */
+	private final Optional<BookingEventLog> eventLog;
+
 	@Override
+	@Transactional
 	public void setAppointment(@Valid CreateNewAppointmentRequest appointmentRequest) throws BusinessException {
-		Doctor doctor = getDoctor(appointmentRequest.getDoctorId());
-		validator.isValidTime(appointmentRequest.getAppointmentTime(), doctor);
+		metrics.timeBooking(Operation.SET_APPOINTMENT, () -> {
+			bookAppointment(appointmentRequest);
+			return null;
+		});
+	}
+
+	@Override
+	@Transactional
+	public void cancelAppointment(Long appointmentId) throws BusinessException {
+		metrics.timeBooking(Operation.CANCEL_APPOINTMENT, () -> {
+			cancel(appointmentId);
+			return null;
+		});
+	}
+
+	private void cancel(Long appointmentId) throws BusinessException {
+		AppointmentBooking booking = getUpcomingBooking(appointmentId);
+		awaitLogCapacity(1);
+		Lock dayLock = doctorAppointmentIndex.getDayLock(booking.getDoctorId(), booking.getStartTime());
+		dayLock.lock();
+		boolean cancelled = false;
+		try {
+			requireUnchanged(booking);
+			if (eventLog.isPresent()) {
+				eventLog.get().cancel(booking);
+			} else if (appointmentDao.deleteBookingById(booking.getId()) == 1) {
+				doctorAppointmentIndex.unregister(booking.getDoctorId(), booking.getStartTime(), booking.getEndTime());
+				cancelled = true;
+			}
+		} finally {
+			unlockDay(dayLock, cancelled);
+		}
+	}
+
+	@Override
+	@Transactional
+	public BookedAppointment rescheduleAppointment(Long appointmentId, long appointmentTime) throws BusinessException {
+		return metrics.timeBooking(Operation.RESCHEDULE_APPOINTMENT, () -> reschedule(appointmentId, appointmentTime));
+	}
+
+	private BookedAppointment reschedule(Long appointmentId, long appointmentTime) throws BusinessException {
+		AppointmentBooking booking = getUpcomingBooking(appointmentId);
+		DoctorSchedule doctor = getDoctor(booking.getDoctorId());
+		validateTime(appointmentTime, doctor);
+		Patient patient = getPatient(booking.getPatientId());
+		awaitLogCapacity(1);
+		Lock patientDayLock = patientDayLocks.getDayLock(patient.getId(), appointmentTime);
+		patientDayLock.lock();
+		List<Lock> dayLocks = doctorAppointmentIndex.getDayLocks(doctor.getDoctorId(), new long[] { booking.getStartTime(), appointmentTime });
+		dayLocks.forEach(Lock::lock);
+		boolean booked = false;
+		try {
+			requireUnchanged(booking);
+			List<AppointmentPeriod> prevPatientAppointments = new ArrayList<>();
+			List<AppointmentPeriod> patientDay = getAllPreviousAppointmentsByDateAndPatient(patient, appointmentTime);
+			if (patientDay != null) {
+				patientDay.stream().filter(period -> !appointmentId.equals(period.getId())).forEach(prevPatientAppointments::add);
+			}
+			validatePatient(appointmentTime, prevPatientAppointments, doctor, patient);
+			// the appointment must not count as a conflict of its own new time; the day locks keep other bookings out meanwhile
+			AppointmentIntervals oldDayIntervals = doctorAppointmentIndex.getDayIntervals(doctor.getDoctorId(), booking.getStartTime());
+			AppointmentIntervals doctorDayIntervals = doctorAppointmentIndex.getDayIntervals(doctor.getDoctorId(), appointmentTime);
+			RejectionReason rejectionReason;
+			oldDayIntervals.remove(booking.getStartTime(), booking.getEndTime());
+			try {
+				rejectionReason = checkDoctor(appointmentTime, doctorDayIntervals, doctor);
+			} finally {
+				oldDayIntervals.add(booking.getStartTime(), booking.getEndTime());
+			}
+			if (rejectionReason != null) {
+				throw validator.rejection(rejectionReason, appointmentTime, patient);
+			}
+			long endAppointmentTime = appointmentTime + configProvider.getBusinessRules().getVisitDurationInMS(doctor.getGrade());
+			if (eventLog.isPresent()) {
+				eventLog.get().reschedule(booking, appointmentTime, endAppointmentTime);
+			} else {
+				appointmentDao.updateTimesById(booking.getId(), appointmentTime, endAppointmentTime);
+				doctorAppointmentIndex.unregister(doctor.getDoctorId(), booking.getStartTime(), booking.getEndTime());
+				doctorAppointmentIndex.register(doctor.getDoctorId(), appointmentTime, endAppointmentTime);
+			}
+			booked = true;
+			return new BookedAppointment(booking.getId(), doctor.getDoctorId(), appointmentTime, endAppointmentTime);
+		} finally {
+			for (Lock dayLock : dayLocks) {
+				unlockDay(dayLock, booked);
+			}
+			unlockDay(patientDayLock, booked);
+		}
+	}
+
+	private void bookAppointment(CreateNewAppointmentRequest appointmentRequest) throws BusinessException {
+		DoctorSchedule doctor = getDoctor(appointmentRequest.getDoctorId());
+		validateTime(appointmentRequest.getAppointmentTime(), doctor);
 		Patient patient = getPatient(appointmentRequest.getPatientId());
-		List<Appointment> prevPatientAppointments = getAllPreviousAppointmentsByDateAndPatient(patient, appointmentRequest.getAppointmentTime());
-		validator.isAppointmentValidForPatient(appointmentRequest.getAppointmentTime(), prevPatientAppointments, doctor, patient);
-		List<Appointment> prevDoctorAppointments = getAllPreviousAppointmentsByDateAndDoctor(doctor, appointmentRequest.getAppointmentTime());
-		validator.isAppointmentValidForDoctor(appointmentRequest.getAppointmentTime(), prevDoctorAppointments, doctor);
-		save(appointmentRequest.getAppointmentTime(), doctor, patient);
+		awaitLogCapacity(1);
+		Lock patientDayLock = patientDayLocks.getDayLock(patient.getId(), appointmentRequest.getAppointmentTime());
+		patientDayLock.lock();
+		Lock dayLock = doctorAppointmentIndex.getDayLock(doctor.getDoctorId(), appointmentRequest.getAppointmentTime());
+		dayLock.lock();
+		boolean booked = false;
+		try {
+			if (configProvider.getBusinessRules().getConflictCheckMode() == ConflictCheckMode.AGGREGATE && eventLog.isEmpty()) {
+				validateByCounting(appointmentRequest.getAppointmentTime(), doctor, patient);
+			} else {
+				List<AppointmentPeriod> prevPatientAppointments = getAllPreviousAppointmentsByDateAndPatient(patient, appointmentRequest.getAppointmentTime());
+				validatePatient(appointmentRequest.getAppointmentTime(), prevPatientAppointments, doctor, patient);
+				AppointmentIntervals doctorDayIntervals = doctorAppointmentIndex.getDayIntervals(doctor.getDoctorId(), appointmentRequest.getAppointmentTime());
+				validateDoctor(appointmentRequest.getAppointmentTime(), doctorDayIntervals, doctor);
+			}
+			save(appointmentRequest.getAppointmentTime(), doctor, patient);
+			booked = true;
+		} finally {
+			unlockDay(dayLock, booked);
+			unlockDay(patientDayLock, booked);
+		}
 	}
 
 	@Override
+	@Transactional
 	public void setEarliestAppointment(@Valid CreateAutoAppointmentRequest appointmentRequest) throws BusinessException {
-		Doctor doctor = getDoctor(appointmentRequest.getDoctorId());
+		metrics.timeBooking(Operation.SET_EARLIEST_APPOINTMENT, () -> {
+			bookEarliestAppointment(appointmentRequest);
+			return null;
+		});
+	}
+
+	private void bookEarliestAppointment(CreateAutoAppointmentRequest appointmentRequest) throws BusinessException {
+		DoctorSchedule doctor = getDoctor(appointmentRequest.getDoctorId());
 		Patient patient = getPatient(appointmentRequest.getPatientId());
-		if (CollectionUtils.isEmpty(doctor.getPresences())) {
-			throw new ValidationException("There is no doctor schedule for appointment");
+		if (doctor.getPresenceCount() == 0) {
+			throw new ValidationException("There is no doctor schedule for appointment", RejectionReason.PRESENCE);
 		}
-		for (Presence presence : doctor.getPresences()) {
-			if (findAppointment(appointmentRequest, doctor, patient, presence)) {
+		awaitLogCapacity(1);
+		EarliestAppointmentSearchMode searchMode = configProvider.getBusinessRules().getEarliestAppointmentSearchMode();
+		boolean legacySearch = searchMode == EarliestAppointmentSearchMode.LEGACY;
+		long now = clock.millis();
+		int firstPresence = doctor.firstPresenceEndingAfter(now);
+		int presence = firstPresence;
+		for (; presence < doctor.getPresenceCount(); presence++) {
+			Lock patientDayLock = patientDayLocks.getDayLock(patient.getId(), doctor.getPresenceStartTime(presence));
+			patientDayLock.lock();
+			Lock dayLock = doctorAppointmentIndex.getDayLock(doctor.getDoctorId(), doctor.getPresenceStartTime(presence));
+			dayLock.lock();
+			boolean found = false;
+			try {
+				found = legacySearch
+						? findAppointmentByTrial(appointmentRequest, doctor, patient, presence)
+						: findAppointment(appointmentRequest, doctor, patient, presence, now);
+			} finally {
+				unlockDay(dayLock, found);
+				unlockDay(patientDayLock, found);
+			}
+			if (found) {
 				break;
 			}
 		}
+		metrics.recordEarliestSearch(searchMode, Math.min(presence + 1, doctor.getPresenceCount()) - firstPresence);
+	}
+
+	@Override
+	@Transactional
+	public BookedAppointment setEarliestAppointmentWithAnyDoctor(@Valid CreateAutoAppointmentByGradeRequest appointmentRequest) throws BusinessException {
+		return metrics.timeBooking(Operation.SET_EARLIEST_APPOINTMENT_WITH_ANY_DOCTOR, () -> bookEarliestAppointmentWithAnyDoctor(appointmentRequest));
+	}
+
+	private BookedAppointment bookEarliestAppointmentWithAnyDoctor(CreateAutoAppointmentByGradeRequest appointmentRequest) throws BusinessException {
+		List<DoctorSchedule> doctors = new ArrayList<>();
+		for (Long doctorId : getCandidateDoctorIds(appointmentRequest)) {
+			doctors.add(getDoctor(doctorId));
+		}
+		Patient patient = getPatient(appointmentRequest.getPatientId());
+		awaitLogCapacity(1);
+		long stepInMS = appointmentRequest.getDurationInMin() * 60000L;
+		for (int attempt = 1; attempt <= MAX_MULTI_DOCTOR_BOOKING_ATTEMPTS; attempt++) {
+			MultiDoctorSlotSearch.Slot slot;
+			try {
+				slot = multiDoctorSlotSearch.findEarliestSlot(doctors, patient.getId(), clock.millis(), stepInMS);
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				throw new ValidationException("The earliest appointment search is interrupted");
+			}
+			if (slot == null) {
+				throw ValidationException.of(RejectionReason.NO_FREE_SLOT);
+			}
+			DoctorSchedule doctor = slot.getDoctor();
+			Lock patientDayLock = patientDayLocks.getDayLock(patient.getId(), slot.getStartTime());
+			patientDayLock.lock();
+			Lock dayLock = doctorAppointmentIndex.getDayLock(doctor.getDoctorId(), slot.getStartTime());
+			dayLock.lock();
+			boolean booked = false;
+			try {
+				List<AppointmentPeriod> prevPatientAppointments = getAllPreviousAppointmentsByDateAndPatient(patient, slot.getStartTime());
+				RejectionReason rejectionReason = checkPatient(slot.getStartTime(), prevPatientAppointments, doctor);
+				if (rejectionReason == null) {
+					AppointmentIntervals doctorDayIntervals = doctorAppointmentIndex.getDayIntervals(doctor.getDoctorId(), slot.getStartTime());
+					rejectionReason = checkDoctor(slot.getStartTime(), doctorDayIntervals, doctor);
+				}
+				if (rejectionReason == null) {
+					Appointment appointment = save(slot.getStartTime(), doctor, patient);
+					booked = true;
+					return new BookedAppointment(appointment.getId(), doctor.getDoctorId(), appointment.getStartTime(), appointment.getEndTime());
+				}
+				log.debug("slot {} of doctor {} is taken before booking, attempt {}: {}", slot.getStartTime(), doctor.getDoctorId(), attempt, rejectionReason);
+			} finally {
+				unlockDay(dayLock, booked);
+				unlockDay(patientDayLock, booked);
+			}
+		}
+		throw ValidationException.of(RejectionReason.NO_FREE_SLOT);
+	}
+
+	private List<Long> getCandidateDoctorIds(CreateAutoAppointmentByGradeRequest appointmentRequest) throws ValidationException {
+		if (appointmentRequest.getDoctorIds() != null && !appointmentRequest.getDoctorIds().isEmpty()) {
+			return appointmentRequest.getDoctorIds();
+		}
+		if (appointmentRequest.getDoctorGrade() == null) {
+			throw new ValidationException("Doctor grade or doctors are mandatory");
+		}
+		List<Long> doctorIds = doctorService.getDoctorIdsByGrade(appointmentRequest.getDoctorGrade());
+		if (doctorIds.isEmpty()) {
+			throw new ValidationException("There is no doctor of grade " + appointmentRequest.getDoctorGrade());
+		}
+		return doctorIds;
+	}
+
+	@Override
+	@Transactional
+	public List<AppointmentResult> setAppointments(List<CreateNewAppointmentRequest> appointmentRequests) {
+		long startTime = System.nanoTime();
+		try {
+			List<AppointmentResult> results = bookAppointments(appointmentRequests);
+			metrics.recordBooking(Operation.SET_APPOINTMENTS, ResultStatus.SUCCESS, startTime);
+			return results;
+		} catch (RuntimeException exception) {
+			metrics.recordBooking(Operation.SET_APPOINTMENTS, null, startTime);
+			throw exception;
+		}
+	}
+
+	private List<AppointmentResult> bookAppointments(List<CreateNewAppointmentRequest> appointmentRequests) {
+		ZonedEpochCalendar calendar = configProvider.getBusinessRules().getCalendar();
+		Map<Long, List<Integer>> requestIndexesByDoctor = new LinkedHashMap<>();
+		for (int i = 0; i < appointmentRequests.size(); i++) {
+			requestIndexesByDoctor.computeIfAbsent(appointmentRequests.get(i).getDoctorId(), doctorId -> new ArrayList<>()).add(i);
+		}
+		AppointmentResult[] results = new AppointmentResult[appointmentRequests.size()];
+		Appointment[] bookedAppointments = new Appointment[appointmentRequests.size()];
+		BatchPatients patients = new BatchPatients();
+		// the patient and doctor days of the whole batch are locked up front, each in a global order, as its bookings are
+		// committed together
+		List<Lock> batchPatientDayLocks = getPatientDayLocks(appointmentRequests);
+		batchPatientDayLocks.forEach(Lock::lock);
+		List<Lock> batchDoctorDayLocks = getDoctorDayLocks(appointmentRequests);
+		batchDoctorDayLocks.forEach(Lock::lock);
+		try {
+			bookByDoctor(appointmentRequests, requestIndexesByDoctor, calendar, patients, results, bookedAppointments);
+		} finally {
+			batchDoctorDayLocks.forEach(dayLock -> unlockDay(dayLock, true));
+			batchPatientDayLocks.forEach(patientDayLock -> unlockDay(patientDayLock, true));
+		}
+		for (int i = 0; i < bookedAppointments.length; i++) {
+			if (bookedAppointments[i] != null) {
+				results[i] = AppointmentResult.success(i, bookedAppointments[i].getId());
+			}
+		}
+		return Arrays.asList(results);
+	}
+
+	private void bookByDoctor(List<CreateNewAppointmentRequest> appointmentRequests, Map<Long, List<Integer>> requestIndexesByDoctor,
+			ZonedEpochCalendar calendar, BatchPatients patients, AppointmentResult[] results, Appointment[] bookedAppointments) {
+		for (Map.Entry<Long, List<Integer>> doctorRequests : requestIndexesByDoctor.entrySet()) {
+			DoctorSchedule doctor;
+			try {
+				doctor = getDoctor(doctorRequests.getKey());
+			} catch (DoctorNotFoundException exception) {
+				doctorRequests.getValue().forEach(index -> results[index] = AppointmentResult.failure(index, exception));
+				continue;
+			}
+			List<Integer> requestIndexes = doctorRequests.getValue();
+			requestIndexes.sort(Comparator.comparingLong(index -> startOfDayOrZero(calendar, appointmentRequests.get(index).getAppointmentTime())));
+			for (int index : requestIndexes) {
+				try {
+					bookedAppointments[index] = bookInBatch(appointmentRequests.get(index), doctor, patients, calendar);
+				} catch (BusinessException exception) {
+					metrics.recordRejection(exception);
+					results[index] = AppointmentResult.failure(index, exception);
+				}
+			}
+		}
+		List<Appointment> accepted = new ArrayList<>();
+		for (Appointment appointment : bookedAppointments) {
+			if (appointment != null) {
+				accepted.add(appointment);
+			}
+		}
+		if (eventLog.isEmpty()) {
+			appointmentDao.saveAll(accepted);
+		}
+	}
+
+	private List<Lock> getPatientDayLocks(List<CreateNewAppointmentRequest> appointmentRequests) {
+		long[] patientIds = new long[appointmentRequests.size()];
+		long[] times = new long[appointmentRequests.size()];
+		int count = 0;
+		for (CreateNewAppointmentRequest appointmentRequest : appointmentRequests) {
+			if (appointmentRequest.getPatientId() != null && appointmentRequest.getAppointmentTime() != null) {
+				patientIds[count] = appointmentRequest.getPatientId();
+				times[count++] = appointmentRequest.getAppointmentTime();
+			}
+		}
+		return patientDayLocks.getDayLocks(Arrays.copyOf(patientIds, count), Arrays.copyOf(times, count));
+	}
+
+	private List<Lock> getDoctorDayLocks(List<CreateNewAppointmentRequest> appointmentRequests) {
+		long[] doctorIds = new long[appointmentRequests.size()];
+		long[] times = new long[appointmentRequests.size()];
+		int count = 0;
+		for (CreateNewAppointmentRequest appointmentRequest : appointmentRequests) {
+			if (appointmentRequest.getDoctorId() != null && appointmentRequest.getAppointmentTime() != null) {
+				doctorIds[count] = appointmentRequest.getDoctorId();
+				times[count++] = appointmentRequest.getAppointmentTime();
+			}
+		}
+		return doctorAppointmentIndex.getDayLocks(Arrays.copyOf(doctorIds, count), Arrays.copyOf(times, count));
+	}
+
+	@Override
+	@Transactional
+	public List<SeriesOccurrenceResult> setAppointmentSeries(@Valid CreateAppointmentSeriesRequest appointmentRequest) throws BusinessException {
+		return metrics.timeBooking(Operation.SET_APPOINTMENT_SERIES, () -> bookAppointmentSeries(appointmentRequest));
+	}
+
+	private List<SeriesOccurrenceResult> bookAppointmentSeries(CreateAppointmentSeriesRequest appointmentRequest) throws BusinessException {
+		DoctorSchedule doctor = getDoctor(appointmentRequest.getDoctorId());
+		Patient patient = getPatient(appointmentRequest.getPatientId());
+		ZonedEpochCalendar calendar = configProvider.getBusinessRules().getCalendar();
+		long[] times = AppointmentRecurrence.occurrences(appointmentRequest.getAppointmentTime(), appointmentRequest.getRecurrence(), calendar);
+		awaitLogCapacity(times.length);
+		List<Lock> seriesPatientDayLocks = patientDayLocks.getDayLocks(patient.getId(), times);
+		seriesPatientDayLocks.forEach(Lock::lock);
+		try {
+			return bookAppointmentSeries(appointmentRequest, doctor, patient, times);
+		} finally {
+			seriesPatientDayLocks.forEach(patientDayLock -> unlockDay(patientDayLock, true));
+		}
+	}
+
+	private List<SeriesOccurrenceResult> bookAppointmentSeries(CreateAppointmentSeriesRequest appointmentRequest, DoctorSchedule doctor, Patient patient,
+			long[] times) throws BusinessException {
+		BusinessRules rules = configProvider.getBusinessRules();
+		ZonedEpochCalendar calendar = rules.getCalendar();
+		Map<Long, List<AppointmentPeriod>> patientDays = new HashMap<>();
+		long seriesStartTime = calendar.startOfDay(times[0]);
+		long seriesEndTime = calendar.endOfDay(times[times.length - 1]);
+		List<AppointmentPeriod> patientAppointments = eventLog.isPresent()
+				? eventLog.get().getPatientPeriods(patient.getId(), seriesStartTime, seriesEndTime)
+				: appointmentDao.getPeriodsByPatientIdAndStartTimeBetween(patient.getId(), seriesStartTime, seriesEndTime);
+		if (patientAppointments != null) {
+			for (AppointmentPeriod appointment : patientAppointments) {
+				patientDays.computeIfAbsent(calendar.startOfDay(appointment.getStartTime()), day -> new ArrayList<>()).add(appointment);
+			}
+		}
+		List<Lock> dayLocks = doctorAppointmentIndex.getDayLocks(doctor.getDoctorId(), times);
+		dayLocks.forEach(Lock::lock);
+		boolean booked = false;
+		try {
+			doctorAppointmentIndex.loadDays(doctor.getDoctorId(), times);
+			SeriesOccurrenceResult[] results = new SeriesOccurrenceResult[times.length];
+			Appointment[] bookedAppointments = new Appointment[times.length];
+			long durationInMS = rules.getVisitDurationInMS(doctor.getGrade());
+			for (int i = 0; i < times.length; i++) {
+				List<AppointmentPeriod> prevPatientAppointments = patientDays.computeIfAbsent(calendar.startOfDay(times[i]), day -> new ArrayList<>());
+				RejectionReason rejectionReason = checkTime(times[i], doctor);
+				if (rejectionReason == null) {
+					rejectionReason = checkPatient(times[i], prevPatientAppointments, doctor);
+				}
+				if (rejectionReason == null) {
+					rejectionReason = checkDoctor(times[i], doctorAppointmentIndex.getDayIntervals(doctor.getDoctorId(), times[i]), doctor);
+				}
+				if (rejectionReason != null) {
+					ValidationException rejection = validator.rejection(rejectionReason, times[i], patient);
+					if (appointmentRequest.getMode() != SeriesBookingMode.BEST_EFFORT) {
+						throw rejection;
+					}
+					metrics.recordRejection(rejection);
+					results[i] = SeriesOccurrenceResult.failure(i, times[i], rejection);
+					continue;
+				}
+				bookedAppointments[i] = mapper.toAppointment(doctorService.getDoctorReference(doctor.getDoctorId()), patient, times[i], times[i] + durationInMS);
+				prevPatientAppointments.add(new AppointmentPeriod(null, times[i], times[i] + durationInMS));
+			}
+			List<Appointment> accepted = new ArrayList<>();
+			for (Appointment appointment : bookedAppointments) {
+				if (appointment != null) {
+					accepted.add(appointment);
+				}
+			}
+			booked = !accepted.isEmpty();
+			if (eventLog.isPresent()) {
+				accepted.forEach(appointment -> appointment.setId(
+						eventLog.get().append(doctor.getDoctorId(), patient.getId(), appointment.getStartTime(), appointment.getEndTime()).getId()));
+			} else {
+				appointmentDao.saveAll(accepted);
+			}
+			for (int i = 0; i < bookedAppointments.length; i++) {
+				if (bookedAppointments[i] != null) {
+					if (eventLog.isEmpty()) {
+						doctorAppointmentIndex.register(doctor.getDoctorId(), times[i], times[i] + durationInMS);
+					}
+					results[i] = SeriesOccurrenceResult.success(i, times[i], bookedAppointments[i].getId());
+				}
+			}
+			return Arrays.asList(results);
+		} finally {
+			for (Lock dayLock : dayLocks) {
+				unlockDay(dayLock, booked);
+			}
+		}
+	}
+
+	@Override
+	public Stream<AvailableSlot> findAvailableSlots(Long doctorId, long fromDay, long toDay, int durationInMin) throws BusinessException {
+		DoctorSchedule doctor = getDoctor(doctorId);
+		if (durationInMin <= 0) {
+			throw new ValidationException("Duration should greater than zero : " + durationInMin);
+		}
+		BusinessRules rules = configProvider.getBusinessRules();
+		long notBefore = Math.max(clock.millis(), rules.getCalendar().startOfDay(fromDay));
+		long notAfter = rules.getCalendar().endOfDay(toDay);
+		if (notAfter < notBefore) {
+			return Stream.empty();
+		}
+		return StreamSupport.stream(new AvailableSlotSpliterator(doctor, slotAvailabilityEngine, doctorAppointmentIndex, notBefore, notAfter,
+				durationInMin * 60000L, rules.getVisitDurationInMS(doctor.getGrade())), false);
+	}
+
+	/**
+	 * Books one request of a batch; the caller holds the patient and doctor day locks of the whole batch.
+	 */
+	private Appointment bookInBatch(CreateNewAppointmentRequest appointmentRequest, DoctorSchedule doctor, BatchPatients patients, ZonedEpochCalendar calendar)
+			throws BusinessException {
+		Long appointmentTime = appointmentRequest.getAppointmentTime();
+		if (appointmentTime == null) {
+			throw new ValidationException("Appointment time is mandatory", RejectionReason.INVALID_TIME);
+		}
+		validateTime(appointmentTime, doctor);
+		Patient patient = patients.get(appointmentRequest.getPatientId());
+		awaitLogCapacity(1);
+		List<AppointmentPeriod> prevPatientAppointments = patients.getDayAppointments(patient, calendar.startOfDay(appointmentTime), appointmentTime);
+		validatePatient(appointmentTime, prevPatientAppointments, doctor, patient);
+		AppointmentIntervals doctorDayIntervals = doctorAppointmentIndex.getDayIntervals(doctor.getDoctorId(), appointmentTime);
+		validateDoctor(appointmentTime, doctorDayIntervals, doctor);
+		long endAppointmentTime = appointmentTime + configProvider.getBusinessRules().getVisitDurationInMS(doctor.getGrade());
+		Appointment appointment = mapper.toAppointment(doctorService.getDoctorReference(doctor.getDoctorId()), patient, appointmentTime, endAppointmentTime);
+		prevPatientAppointments.add(new AppointmentPeriod(null, appointmentTime, endAppointmentTime));
+		if (eventLog.isPresent()) {
+			appointment.setId(eventLog.get().append(doctor.getDoctorId(), patient.getId(), appointmentTime, endAppointmentTime).getId());
+		} else {
+			doctorAppointmentIndex.register(doctor.getDoctorId(), appointmentTime, endAppointmentTime);
+		}
+		return appointment;
+	}
+
+	private static long startOfDayOrZero(ZonedEpochCalendar calendar, Long time) {
+		return time == null ? 0 : calendar.startOfDay(time);
 	}
 
-	private boolean findAppointment(CreateAutoAppointmentRequest appointmentRequest, Doctor doctor, Patient patient, Presence presence) {
+	private boolean findAppointment(CreateAutoAppointmentRequest appointmentRequest, DoctorSchedule doctor, Patient patient, int presence, long now) {
+		long presenceStartTime = doctor.getPresenceStartTime(presence);
+		List<AppointmentPeriod> prevPatientAppointments = getAllPreviousAppointmentsByDateAndPatient(patient, presenceStartTime);
+		AppointmentIntervals doctorDayIntervals = doctorAppointmentIndex.getDayIntervals(doctor.getDoctorId(), presenceStartTime);
+		long stepInMS = appointmentRequest.getDurationInMin() * 60000L;
+		long startTime = slotAvailabilityEngine.findEarliestSlot(doctor, presence, now, stepInMS, doctorDayIntervals, prevPatientAppointments);
+		if (startTime == SlotAvailabilityEngine.NO_FREE_SLOT) {
+			log.debug("couldn't find free slot in presence {} of doctor {}", presence, doctor.getDoctorId());
+			return false;
+		}
+		save(startTime, doctor, patient);
+		return true;
+	}
+
+	private boolean findAppointmentByTrial(CreateAutoAppointmentRequest appointmentRequest, DoctorSchedule doctor, Patient patient, int presence) {
 		int windowTime = 0;
-		long startTime = presence.getStartTime();
+		long startTime = doctor.getPresenceStartTime(presence);
 		long endTime = 0;
-		List<Appointment> prevPatientAppointments = getAllPreviousAppointmentsByDateAndPatient(patient, startTime);
-		List<Appointment> prevDoctorAppointments = getAllPreviousAppointmentsByDateAndDoctor(doctor, startTime);
+		List<AppointmentPeriod> prevPatientAppointments = getAllPreviousAppointmentsByDateAndPatient(patient, startTime);
+		AppointmentIntervals doctorDayIntervals = doctorAppointmentIndex.getDayIntervals(doctor.getDoctorId(), startTime);
 		do {
-			try {
-				validator.isValidTime(startTime, doctor);
-				validator.isAppointmentValidForPatient(startTime, prevPatientAppointments, doctor, patient);
-				validator.isAppointmentValidForDoctor(startTime, prevDoctorAppointments, doctor);
+			RejectionReason rejectionReason = checkTime(startTime, doctor);
+			if (rejectionReason == null) {
+				rejectionReason = checkPatient(startTime, prevPatientAppointments, doctor);
+			}
+			if (rejectionReason == null) {
+				rejectionReason = checkDoctor(startTime, doctorDayIntervals, doctor);
+			}
+			if (rejectionReason == null) {
 				save(startTime, doctor, patient);
 				return true;
-			} catch (BusinessException exception) {
-				log.debug("couldn't find time in windowTime {} and presence {}", windowTime, presence);
-				windowTime++;
-				startTime = startTime + (windowTime * appointmentRequest.getDurationInMin() * 60000L);
-				endTime = startTime + (appointmentRequest.getDurationInMin() * 60000L);
 			}
-		} while (endTime <= presence.getEndTime());
+			log.debug("couldn't find time in windowTime {} and presence {} of doctor {}: {}", windowTime, presence, doctor.getDoctorId(), rejectionReason);
+			windowTime++;
+			startTime = startTime + (windowTime * appointmentRequest.getDurationInMin() * 60000L);
+			endTime = startTime + (appointmentRequest.getDurationInMin() * 60000L);
+		} while (endTime <= doctor.getPresenceEndTime(presence));
 		return false;
 	}
 
-	private List<Appointment> getAllPreviousAppointmentsByDateAndPatient(Patient patient, Long appointmentTime) {
-		long startTimeOfDay = TimeUtil.getFirstMomentOfDay(appointmentTime);
-		long endTimeOfDay = TimeUtil.getLastMomentOfDay(appointmentTime);
-		return appointmentDao.getAllByPatientAndStartTimeBetween(patient, startTimeOfDay, endTimeOfDay);
+	/**
+	 * Patient and doctor checks of {@link ConflictCheckMode#AGGREGATE}: the database counts the relevant appointments,
+	 * so only one number per check is transferred and nothing is loaded into memory.
+	 */
+	private void validateByCounting(long appointmentTime, DoctorSchedule doctor, Patient patient) throws BusinessException {
+		BusinessRules rules = configProvider.getBusinessRules();
+		long startTimeOfDay = rules.getCalendar().startOfDay(appointmentTime);
+		long endAppointmentTime = appointmentTime + rules.getVisitDurationInMS(doctor.getGrade());
+		long patientStartTime = System.nanoTime();
+		try {
+			validator.isAppointmentCountValidForPatient(
+					appointmentDao.countByPatientIdAndStartTimeBetween(patient.getId(), startTimeOfDay, rules.getCalendar().endOfDay(appointmentTime)), patient);
+			validator.isAppointmentConflictValidForPatient(
+					appointmentDao.countConflictingByPatientId(patient.getId(), startTimeOfDay, appointmentTime, endAppointmentTime), patient);
+		} finally {
+			metrics.recordValidation(ValidationStage.PATIENT, patientStartTime);
+		}
+		long doctorStartTime = System.nanoTime();
+		try {
+			validator.isAppointmentValidForDoctor(
+					appointmentDao.countOverlappingByDoctorId(doctor.getDoctorId(), startTimeOfDay, appointmentTime, endAppointmentTime), doctor);
+		} finally {
+			metrics.recordValidation(ValidationStage.DOCTOR, doctorStartTime);
+		}
+	}
+
+	private void validateTime(long appointmentTime, DoctorSchedule doctor) throws BusinessException {
+		RejectionReason rejectionReason = checkTime(appointmentTime, doctor);
+		if (rejectionReason != null) {
+			throw validator.rejection(rejectionReason, appointmentTime, null);
+		}
+	}
+
+	private void validatePatient(long appointmentTime, List<AppointmentPeriod> prevPatientAppointments, DoctorSchedule doctor, Patient patient)
+			throws BusinessException {
+		RejectionReason rejectionReason = checkPatient(appointmentTime, prevPatientAppointments, doctor);
+		if (rejectionReason != null) {
+			throw validator.rejection(rejectionReason, appointmentTime, patient);
+		}
+	}
+
+	private void validateDoctor(long appointmentTime, AppointmentIntervals doctorDayIntervals, DoctorSchedule doctor) throws BusinessException {
+		RejectionReason rejectionReason = checkDoctor(appointmentTime, doctorDayIntervals, doctor);
+		if (rejectionReason != null) {
+			throw validator.rejection(rejectionReason, appointmentTime, null);
+		}
+	}
+
+	private RejectionReason checkTime(long appointmentTime, DoctorSchedule doctor) {
+		long startTime = System.nanoTime();
+		try {
+			return validator.checkTime(appointmentTime, doctor);
+		} finally {
+			metrics.recordValidation(ValidationStage.TIME, startTime);
+		}
+	}
+
+	private RejectionReason checkPatient(long appointmentTime, List<AppointmentPeriod> prevPatientAppointments, DoctorSchedule doctor) {
+		long startTime = System.nanoTime();
+		try {
+			return validator.checkPatient(appointmentTime, prevPatientAppointments, doctor);
+		} finally {
+			metrics.recordValidation(ValidationStage.PATIENT, startTime);
+		}
+	}
+
+	private RejectionReason checkDoctor(long appointmentTime, AppointmentIntervals doctorDayIntervals, DoctorSchedule doctor) {
+		long startTime = System.nanoTime();
+		try {
+			return validator.checkDoctor(appointmentTime, doctorDayIntervals, doctor);
+		} finally {
+			metrics.recordValidation(ValidationStage.DOCTOR, startTime);
+		}
+	}
+
+	/**
+	 * Keeps a day lock until the surrounding transaction has completed. The checks of the next booking of the day read
+	 * the patient appointments, and in {@link ConflictCheckMode#AGGREGATE} the doctor ones, from the database, where
+	 * this booking is visible only once committed; releasing the lock before would let both pass. The doctor index
+	 * undoes the changes of a rolled back transaction before the lock is released.
+	 *
+	 * @return true when the lock is released by the transaction, false when the caller has to release it
+	 */
+	private boolean unlockAfterCompletion(Lock dayLock) {
+		if (eventLog.isPresent() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+			return false;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				dayLock.unlock();
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Releases a patient or doctor day lock; when the day was changed under it, only once the transaction has
+	 * completed, like {@link #unlockAfterCompletion(Lock)}.
+	 */
+	private void unlockDay(Lock dayLock, boolean changed) {
+		if (!changed || !unlockAfterCompletion(dayLock)) {
+			dayLock.unlock();
+		}
 	}
 
-	private List<Appointment> getAllPreviousAppointmentsByDateAndDoctor(Doctor doctor, Long appointmentTime) {
-		long startTimeOfDay = TimeUtil.getFirstMomentOfDay(appointmentTime);
-		long endTimeOfDay = TimeUtil.getLastMomentOfDay(appointmentTime);
-		return appointmentDao.getAllByDoctorAndStartTimeBetween(doctor, startTimeOfDay, endTimeOfDay);
+	private void awaitLogCapacity(int bookings) throws ServiceBusyException {
+		if (eventLog.isPresent()) {
+			eventLog.get().awaitCapacity(bookings);
+		}
 	}
 
-	private Doctor getDoctor(Long doctorId) throws DoctorNotFoundException {
-		return doctorService.getDoctorById(doctorId);
+	private List<AppointmentPeriod> getAllPreviousAppointmentsByDateAndPatient(Patient patient, Long appointmentTime) {
+		if (eventLog.isPresent()) {
+			return eventLog.get().getPatientDay(patient.getId(), appointmentTime);
+		}
+		ZonedEpochCalendar calendar = configProvider.getBusinessRules().getCalendar();
+		long startTimeOfDay = calendar.startOfDay(appointmentTime);
+		long endTimeOfDay = calendar.endOfDay(appointmentTime);
+		return appointmentDao.getPeriodsByPatientIdAndStartTimeBetween(patient.getId(), startTimeOfDay, endTimeOfDay);
+	}
+
+	/**
+	 * Patients and their day appointments loaded once per batch. Appointments accepted in the batch are appended to
+	 * the day lists so that later requests of the same patient see them.
+	 */
+	private class BatchPatients {
+
+		private final Map<Long, Patient> patients = new HashMap<>();
+
+		private final Map<Long, PatientNotFoundException> missingPatients = new HashMap<>();
+
+		private final Map<PatientDay, List<AppointmentPeriod>> dayAppointments = new HashMap<>();
+
+		Patient get(Long patientId) throws BusinessException {
+			Patient patient = patients.get(patientId);
+			if (patient != null) {
+				return patient;
+			}
+			PatientNotFoundException missing = missingPatients.get(patientId);
+			if (missing != null) {
+				throw missing;
+			}
+			try {
+				patient = getPatient(patientId);
+			} catch (PatientNotFoundException exception) {
+				missingPatients.put(patientId, exception);
+				throw exception;
+			}
+			patients.put(patientId, patient);
+			return patient;
+		}
+
+		List<AppointmentPeriod> getDayAppointments(Patient patient, long startTimeOfDay, long appointmentTime) {
+			return dayAppointments.computeIfAbsent(new PatientDay(patient.getId(), startTimeOfDay), key -> {
+				List<AppointmentPeriod> appointments = getAllPreviousAppointmentsByDateAndPatient(patient, appointmentTime);
+				return appointments == null ? new ArrayList<>() : new ArrayList<>(appointments);
+			});
+		}
+	}
+
+	@Value
+	private static class PatientDay {
+		long patientId;
+		long startTimeOfDay;
+	}
+
+	/**
+	 * With the event log only bookings from today on are held in memory, so older ones are not found; they have
+	 * started anyway.
+	 */
+	private AppointmentBooking findBooking(Long appointmentId) {
+		if (appointmentId == null) {
+			return null;
+		}
+		return eventLog.isPresent() ? eventLog.get().getBooking(appointmentId) : appointmentDao.findBookingById(appointmentId);
+	}
+
+	private AppointmentBooking getUpcomingBooking(Long appointmentId) throws BusinessException {
+		AppointmentBooking booking = findBooking(appointmentId);
+		if (booking == null) {
+			throw new AppointmentNotFoundException("Appointment not found : " + appointmentId);
+		}
+		if (booking.getStartTime() <= clock.millis()) {
+			throw new ValidationException("Appointment has already started : " + appointmentId, RejectionReason.INVALID_TIME);
+		}
+		return booking;
+	}
+
+	/**
+	 * Checks under the day lock that the booking read before taking it was not cancelled or moved meanwhile.
+	 */
+	private void requireUnchanged(AppointmentBooking booking) throws BusinessException {
+		AppointmentBooking current = findBooking(booking.getId());
+		if (current == null) {
+			throw new AppointmentNotFoundException("Appointment not found : " + booking.getId());
+		}
+		if (!current.equals(booking)) {
+			throw new ValidationException("Appointment is changed by a parallel request : " + booking.getId());
+		}
+	}
+
+	private DoctorSchedule getDoctor(Long doctorId) throws DoctorNotFoundException {
+		return doctorService.getDoctorSchedule(doctorId);
 	}
 
 	private Patient getPatient(Long patientId) throws BusinessException {
-		return patientService.getPatientById(patientId);
+		return patientService.getPatientReference(patientId);
 	}
 
-	private void save(long time, Doctor doctor, Patient patient) {
-		long appointmentDurationInMS = configProvider.getAppointmentDurationMinByDoctorGrade(doctor.getGrade()) * 60000L;
-		long endAppointmentTime = time + appointmentDurationInMS;
-		appointmentDao.save(mapper.toAppointment(doctor, patient, time, endAppointmentTime));
+	private Appointment save(long time, DoctorSchedule doctor, Patient patient) {
+		long endAppointmentTime = time + configProvider.getBusinessRules().getVisitDurationInMS(doctor.getGrade());
+		Appointment appointment = mapper.toAppointment(doctorService.getDoctorReference(doctor.getDoctorId()), patient, time, endAppointmentTime);
+		if (eventLog.isPresent()) {
+			appointment.setId(eventLog.get().append(doctor.getDoctorId(), patient.getId(), time, endAppointmentTime).getId());
+			return appointment;
+		}
+		appointmentDao.save(appointment);
+		doctorAppointmentIndex.register(doctor.getDoctorId(), time, endAppointmentTime);
+		return appointment;
 	}
 }
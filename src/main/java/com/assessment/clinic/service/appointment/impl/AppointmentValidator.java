@@ -1,17 +1,16 @@
 package com.assessment.clinic.service.appointment.impl;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 import com.assessment.clinic.exception.BusinessException;
+import com.assessment.clinic.exception.RejectionReason;
 import com.assessment.clinic.exception.ValidationException;
-import com.assessment.clinic.model.appointment.Appointment;
-import com.assessment.clinic.model.calendar.PersianDayOfWeek;
-import com.assessment.clinic.model.calendar.Presence;
-import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.model.appointment.AppointmentPeriod;
 import com.assessment.clinic.model.patient.Patient;
+import com.assessment.clinic.service.doctor.dto.DoctorSchedule;
+import com.assessment.clinic.utli.BusinessRules;
 import com.assessment.clinic.utli.ConfigProvider;
-import com.assessment.clinic.utli.TimeUtil;
+import com.assessment.clinic.utli.ZonedEpochCalendar;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -24,92 +23,137 @@ public class AppointmentValidator {
 
 	private final ConfigProvider configProvider;
 
-	public void isAppointmentValidForDoctor(long startAppointmentTime, List<Appointment> prevDoctorAppointments, Doctor doctor) throws BusinessException {
-		if (prevDoctorAppointments == null || prevDoctorAppointments.isEmpty()) {
-			return;
+	public void isAppointmentValidForDoctor(long startAppointmentTime, AppointmentIntervals doctorDayIntervals, DoctorSchedule doctor) throws BusinessException {
+		if (checkDoctor(startAppointmentTime, doctorDayIntervals, doctor) != null) {
+			log.debug("The allowed max conflict time count of doctor {} is exceeded", doctor.getDoctorId());
+			throw ValidationException.of(RejectionReason.DOCTOR_CONFLICT);
 		}
-		long appointmentDurationInMS = configProvider.getAppointmentDurationMinByDoctorGrade(doctor.getGrade()) * 60000L;
-		long endAppointmentTime = startAppointmentTime + appointmentDurationInMS;
-		int maxDoctorConflictTime = configProvider.getValidConflictTimeCountByDoctorGrade(doctor.getGrade());
-		int conflictTimeCount = 0;
-		for (Appointment appointment : prevDoctorAppointments) {
-			boolean startTimeHasConflict = startAppointmentTime >= appointment.getStartTime() && startAppointmentTime <= appointment.getEndTime();
-			boolean endTimeHasConflict = endAppointmentTime >= appointment.getStartTime() && endAppointmentTime <= appointment.getEndTime();
-			if (startTimeHasConflict || endTimeHasConflict) {
-				conflictTimeCount++;
-			}
-			if (conflictTimeCount >= maxDoctorConflictTime) {
-				log.debug("The allowed max conflict time count of doctor {} is exceeded: {}", doctor.getId(), conflictTimeCount);
-				throw new ValidationException("The allowed max conflict time count of doctor is exceeded: " + conflictTimeCount);
-			}
+	}
+
+	/**
+	 * @return {@link RejectionReason#DOCTOR_CONFLICT} when the doctor day is saturated at the given time, otherwise null
+	 */
+	public RejectionReason checkDoctor(long startAppointmentTime, AppointmentIntervals doctorDayIntervals, DoctorSchedule doctor) {
+		BusinessRules rules = configProvider.getBusinessRules();
+		long endAppointmentTime = startAppointmentTime + rules.getVisitDurationInMS(doctor.getGrade());
+		int conflictTimeCount = doctorDayIntervals.countOverlapping(startAppointmentTime, endAppointmentTime);
+		return conflictTimeCount >= rules.getMaxConflictTimeCount(doctor.getGrade()) ? RejectionReason.DOCTOR_CONFLICT : null;
+	}
+
+	/**
+	 * Checks an overlap count already computed by the database.
+	 */
+	public void isAppointmentValidForDoctor(long conflictTimeCount, DoctorSchedule doctor) throws BusinessException {
+		int maxDoctorConflictTime = configProvider.getBusinessRules().getMaxConflictTimeCount(doctor.getGrade());
+		if (conflictTimeCount >= maxDoctorConflictTime) {
+			log.debug("The allowed max conflict time count of doctor {} is exceeded: {}", doctor.getDoctorId(), conflictTimeCount);
+			throw new ValidationException("The allowed max conflict time count of doctor is exceeded: " + conflictTimeCount, RejectionReason.DOCTOR_CONFLICT);
+		}
+	}
+
+	public void isAppointmentCountValidForPatient(long dayAppointmentCount, Patient patient) throws BusinessException {
+		int maxAppointmentCount = configProvider.getBusinessRules().getMaxAppointmentCountInDay();
+		if (dayAppointmentCount >= maxAppointmentCount) {
+			throw new ValidationException("The patient " + patient.getId() + " has previous appointments more than " + maxAppointmentCount, RejectionReason.PATIENT_LIMIT);
 		}
 	}
 
-	public void isAppointmentValidForPatient(long startAppointmentTime, List<Appointment> prevPatientAppointments, Doctor doctor, Patient patient) throws BusinessException {
+	public void isAppointmentConflictValidForPatient(long conflictingAppointmentCount, Patient patient) throws BusinessException {
+		if (conflictingAppointmentCount > 0) {
+			throw new ValidationException("The new appointment date has conflict with older appointment of patient " + patient.getId(), RejectionReason.PATIENT_CONFLICT);
+		}
+	}
+
+	public void isAppointmentValidForPatient(long startAppointmentTime, List<AppointmentPeriod> prevPatientAppointments, DoctorSchedule doctor, Patient patient) throws BusinessException {
+		RejectionReason rejectionReason = checkPatient(startAppointmentTime, prevPatientAppointments, doctor);
+		if (rejectionReason != null) {
+			throw rejection(rejectionReason, startAppointmentTime, patient);
+		}
+	}
+
+	/**
+	 * @return {@link RejectionReason#PATIENT_LIMIT} or {@link RejectionReason#PATIENT_CONFLICT} when the patient day
+	 * does not allow the appointment, otherwise null
+	 */
+	public RejectionReason checkPatient(long startAppointmentTime, List<AppointmentPeriod> prevPatientAppointments, DoctorSchedule doctor) {
 		if (prevPatientAppointments == null || prevPatientAppointments.isEmpty()) {
-			return;
+			return null;
 		}
-		int maxAppointmentCount = configProvider.getMaxAppointmentCountByDay();
-		if (prevPatientAppointments.size() >= maxAppointmentCount) {
-			throw new ValidationException("The patient " + patient.getId() + " has previous appointments more than " + maxAppointmentCount);
+		BusinessRules rules = configProvider.getBusinessRules();
+		if (prevPatientAppointments.size() >= rules.getMaxAppointmentCountInDay()) {
+			return RejectionReason.PATIENT_LIMIT;
 		}
-		long appointmentDurationInMS = configProvider.getAppointmentDurationMinByDoctorGrade(doctor.getGrade()) * 60000L;
-		long endAppointmentTime = startAppointmentTime + appointmentDurationInMS;
-		for (Appointment appointment : prevPatientAppointments) {
+		long endAppointmentTime = startAppointmentTime + rules.getVisitDurationInMS(doctor.getGrade());
+		for (AppointmentPeriod appointment : prevPatientAppointments) {
 			boolean startTimeHasConflict = startAppointmentTime >= appointment.getStartTime() && startAppointmentTime <= appointment.getEndTime();
 			boolean endTimeHasConflict = endAppointmentTime >= appointment.getStartTime() && endAppointmentTime <= appointment.getEndTime();
 			if (startTimeHasConflict || endTimeHasConflict) {
-				throw new ValidationException("The new appointment date has conflict with older appointment of patient " + appointment.getId());
+				return RejectionReason.PATIENT_CONFLICT;
 			}
 		}
+		return null;
+	}
+
+	public void isValidTime(long appointmentTime, DoctorSchedule doctor) throws BusinessException {
+		RejectionReason rejectionReason = checkTime(appointmentTime, doctor);
+		if (rejectionReason != null) {
+			throw rejection(rejectionReason, appointmentTime, null);
+		}
 	}
 
-	public void isValidTime(long appointmentTime, Doctor doctor) throws BusinessException {
+	/**
+	 * @return the broken time rule (positive time, business day, working hours, doctor presence) or null
+	 */
+	public RejectionReason checkTime(long appointmentTime, DoctorSchedule doctor) {
 		if (appointmentTime == 0) {
-			throw new ValidationException("Appointment time should greater than zero : " + appointmentTime);
+			return RejectionReason.INVALID_TIME;
 		}
-		LocalDateTime startAppointmentTime = TimeUtil.longToLocalDateTime(appointmentTime);
-		LocalDateTime endAppointmentTime = startAppointmentTime.plusMinutes(configProvider.getAppointmentDurationMinByDoctorGrade(doctor.getGrade()));
-		if (isInBusinessDay(startAppointmentTime)) {
-			if (isInWorkingHours(startAppointmentTime, endAppointmentTime)) {
-				if (!isInDoctorPresence(appointmentTime, TimeUtil.toEpochMilli(endAppointmentTime), doctor.getPresences())) {
-					throw new ValidationException("Appointment time is not in doctor schedule");
-				}
-			} else {
-				throw new ValidationException("Appointment hour is not in working hour : " + startAppointmentTime);
-			}
-		} else {
-			throw new ValidationException("Appointment day is not in business day : " + startAppointmentTime);
+		BusinessRules rules = configProvider.getBusinessRules();
+		long endAppointmentTime = appointmentTime + rules.getVisitDurationInMS(doctor.getGrade());
+		if (!isInBusinessDay(appointmentTime, rules)) {
+			return RejectionReason.BUSINESS_DAY;
 		}
-
+		if (!isInWorkingHours(appointmentTime, endAppointmentTime, rules)) {
+			return RejectionReason.WORKING_HOUR;
+		}
+		return doctor.isInPresence(appointmentTime, endAppointmentTime) ? null : RejectionReason.PRESENCE;
 	}
 
-	private boolean isInDoctorPresence(long startAppointmentTime, long endAppointmentTime, List<Presence> presences) {
-		for (Presence presence : presences) {
-			boolean startTimeInSchedule = startAppointmentTime >= presence.getStartTime() && startAppointmentTime < presence.getEndTime();
-			boolean endTimeIsInSchedule = endAppointmentTime > presence.getStartTime() && endAppointmentTime <= presence.getEndTime();
-			if (startTimeInSchedule && endTimeIsInSchedule) {
-				return true;
-			}
+	/**
+	 * Builds the exception reported for a failed check, with the details the caller needs. Only called once a check
+	 * failed, so the hot path never formats messages.
+	 */
+	public ValidationException rejection(RejectionReason rejectionReason, long appointmentTime, Patient patient) {
+		BusinessRules rules = configProvider.getBusinessRules();
+		switch (rejectionReason) {
+		case INVALID_TIME:
+			return new ValidationException("Appointment time should greater than zero : " + appointmentTime, rejectionReason);
+		case BUSINESS_DAY:
+			return new ValidationException("Appointment day is not in business day : " + rules.getCalendar().toLocalDateTime(appointmentTime), rejectionReason);
+		case WORKING_HOUR:
+			return new ValidationException("Appointment hour is not in working hour : " + rules.getCalendar().toLocalDateTime(appointmentTime), rejectionReason);
+		case PATIENT_LIMIT:
+			return new ValidationException("The patient " + patient.getId() + " has previous appointments more than " + rules.getMaxAppointmentCountInDay(),
+					rejectionReason);
+		case PATIENT_CONFLICT:
+			return new ValidationException("The new appointment date has conflict with older appointment of patient " + patient.getId(), rejectionReason);
+		default:
+			return ValidationException.of(rejectionReason);
 		}
-		return false;
 	}
 
-	private boolean isInBusinessDay(LocalDateTime startAppointmentTime) {
-		String day = startAppointmentTime.getDayOfWeek().toString();
-		PersianDayOfWeek startDay = PersianDayOfWeek.fromValue(configProvider.getStartDayOfWeek());
-		PersianDayOfWeek endDay = PersianDayOfWeek.fromValue(configProvider.getEndDayOfWeek());
-		PersianDayOfWeek appointmentDay = PersianDayOfWeek.fromValue(day);
-		return appointmentDay.getValue() >= startDay.getValue() && appointmentDay.getValue() <= endDay.getValue();
+	boolean isInBusinessDay(long appointmentTime, BusinessRules rules) {
+		return rules.isBusinessDay(appointmentTime);
 	}
 
-	private boolean isInWorkingHours(LocalDateTime start, LocalDateTime end) {
-		int startHour = start.getHour();
-		int endHour = end.getHour();
-		int endMinutes = end.getMinute();
-		if (startHour >= configProvider.getStartWorkingHour() && endHour < configProvider.getEndWorkingHour()) {
+	private boolean isInWorkingHours(long start, long end, BusinessRules rules) {
+		ZonedEpochCalendar calendar = rules.getCalendar();
+		int startHour = calendar.hourOfDay(start);
+		int endHour = calendar.hourOfDay(end);
+		int endMinutes = calendar.minuteOfHour(end);
+		if (startHour >= rules.getStartWorkingHour() && endHour < rules.getEndWorkingHour()) {
 			return true;
 		}
-		return endHour == configProvider.getEndWorkingHour() && endMinutes == 0;
+		return endHour == rules.getEndWorkingHour() && endMinutes == 0;
 	}
 }
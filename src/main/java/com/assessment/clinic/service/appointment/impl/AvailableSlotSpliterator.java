@@ -0,0 +1,80 @@
+package com.assessment.clinic.service.appointment.impl;
+
+import java.util.BitSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+import com.assessment.clinic.service.appointment.dto.AvailableSlot;
+import com.assessment.clinic.service.doctor.dto.DoctorSchedule;
+
+/**
+ * Walks the free slots of a doctor in time order. The free slots of a presence are computed only when the previous
+ * presence is used up, so a consumer that stops early never loads the later days.
+ */
+class AvailableSlotSpliterator extends Spliterators.AbstractSpliterator<AvailableSlot> {
+
+	private final DoctorSchedule doctor;
+
+	private final SlotAvailabilityEngine slotAvailabilityEngine;
+
+	private final DoctorAppointmentIndex doctorAppointmentIndex;
+
+	private final long notBefore;
+
+	private final long notAfter;
+
+	private final long stepInMS;
+
+	private final long durationInMS;
+
+	private int presence;
+
+	private long presenceStartTime;
+
+	private BitSet slots;
+
+	private int nextSlot;
+
+	AvailableSlotSpliterator(DoctorSchedule doctor, SlotAvailabilityEngine slotAvailabilityEngine, DoctorAppointmentIndex doctorAppointmentIndex,
+			long notBefore, long notAfter, long stepInMS, long durationInMS) {
+		super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+		this.doctor = doctor;
+		this.slotAvailabilityEngine = slotAvailabilityEngine;
+		this.doctorAppointmentIndex = doctorAppointmentIndex;
+		this.notBefore = notBefore;
+		this.notAfter = notAfter;
+		this.stepInMS = stepInMS;
+		this.durationInMS = durationInMS;
+		this.presence = doctor.firstPresenceEndingAfter(notBefore);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super AvailableSlot> action) {
+		while (true) {
+			if (slots != null) {
+				int slot = slots.nextSetBit(nextSlot);
+				if (slot >= 0) {
+					long startTime = presenceStartTime + slot * stepInMS;
+					if (startTime > notAfter) {
+						presence = doctor.getPresenceCount();
+						slots = null;
+						return false;
+					}
+					nextSlot = slot + 1;
+					action.accept(new AvailableSlot(doctor.getDoctorId(), startTime, startTime + durationInMS));
+					return true;
+				}
+				slots = null;
+				presence++;
+			}
+			if (presence >= doctor.getPresenceCount() || doctor.getPresenceStartTime(presence) > notAfter) {
+				return false;
+			}
+			presenceStartTime = doctor.getPresenceStartTime(presence);
+			AppointmentIntervals doctorDayIntervals = doctorAppointmentIndex.getDayIntervals(doctor.getDoctorId(), presenceStartTime);
+			slots = slotAvailabilityEngine.findFreeSlots(doctor, presence, notBefore, stepInMS, doctorDayIntervals, null);
+			nextSlot = 0;
+		}
+	}
+}
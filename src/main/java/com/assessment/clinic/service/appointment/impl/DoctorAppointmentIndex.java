@@ -0,0 +1,337 @@
+package com.assessment.clinic.service.appointment.impl;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import com.assessment.clinic.model.appointment.AppointmentDao;
+import com.assessment.clinic.model.appointment.AppointmentPeriod;
+import com.assessment.clinic.model.appointment.DoctorAppointmentPeriod;
+import com.assessment.clinic.utli.ConfigProvider;
+import com.assessment.clinic.utli.ZonedEpochCalendar;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory index of doctor appointments per day. A day is loaded from {@link AppointmentDao} on first use and is kept
+ * consistent afterwards by {@link #register(long, long, long)}, which must be called for every saved appointment, and
+ * {@link #unregister(long, long, long)}, which must be called for every cancelled or moved one.
+ * <p>
+ * When the index is {@linkplain #setAuthoritative(boolean) authoritative} it is filled by {@link #restore(long, long, long)}
+ * from a complete source instead, and days it does not hold are empty rather than loaded from the database.
+ * <p>
+ * Validating a booking against a day and registering it must happen while holding {@link #getDayLock(long, long)},
+ * otherwise two parallel bookings can both pass the conflict check. Inside a transaction the lock must be held until
+ * the transaction has completed: the database shows the booking to other checks only then, and a rollback takes it out
+ * of the index again on completion, before synchronizations registered with the default order release the lock.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DoctorAppointmentIndex {
+
+	/**
+	 * Number of indexed days past which days before today are evicted. It is a threshold, not a hard cap: loads of
+	 * different days run in parallel under different locks and may each add their days after the same check, and days
+	 * from today on are never evicted, as bookings are validated against them.
+	 */
+	private static final int MAX_INDEXED_DAYS = 10_000;
+
+	/**
+	 * Number of doctor day locks, a power of two. Days are hashed onto the stripes, so unrelated days rarely share one.
+	 */
+	private static final int LOCK_STRIPES = 256;
+
+	private final AppointmentDao appointmentDao;
+
+	private final ConfigProvider configProvider;
+
+	private final Clock clock;
+
+	private final Map<DayKey, AppointmentIntervals> days = new ConcurrentHashMap<>();
+
+	private final Lock[] dayLocks = createDayLocks();
+
+	/**
+	 * Per lock stripe, the registered and unregistered appointments whose transaction has not completed yet, and the
+	 * number whose transaction has. {@link #preload(long, long)} uses them to skip days that changed while it read.
+	 */
+	private final AtomicIntegerArray pendingChanges = new AtomicIntegerArray(LOCK_STRIPES);
+
+	private final AtomicLongArray completedChanges = new AtomicLongArray(LOCK_STRIPES);
+
+	private volatile boolean authoritative;
+
+	public AppointmentIntervals getDayIntervals(long doctorId, long time) {
+		ZonedEpochCalendar calendar = configProvider.getBusinessRules().getCalendar();
+		long startTimeOfDay = calendar.startOfDay(time);
+		DayKey key = new DayKey(doctorId, startTimeOfDay);
+		AppointmentIntervals intervals = days.get(key);
+		if (intervals != null) {
+			return intervals;
+		}
+		intervals = authoritative ? new AppointmentIntervals() : load(doctorId, startTimeOfDay, calendar.endOfDay(time));
+		if (days.size() >= MAX_INDEXED_DAYS) {
+			evictPastDays();
+		}
+		AppointmentIntervals previous = days.putIfAbsent(key, intervals);
+		return previous != null ? previous : intervals;
+	}
+
+	public Lock getDayLock(long doctorId, long time) {
+		return dayLocks[stripe(doctorId, time)];
+	}
+
+	/**
+	 * @return the distinct locks of the days of {@code times}, in a fixed global order so that callers locking several
+	 * days cannot deadlock each other
+	 */
+	public List<Lock> getDayLocks(long doctorId, long[] times) {
+		long[] doctorIds = new long[times.length];
+		Arrays.fill(doctorIds, doctorId);
+		return getDayLocks(doctorIds, times);
+	}
+
+	/**
+	 * Like {@link #getDayLocks(long, long[])} for the days of several doctors, {@code doctorIds[i]} booking at
+	 * {@code times[i]}.
+	 */
+	public List<Lock> getDayLocks(long[] doctorIds, long[] times) {
+		BitSet stripes = new BitSet(LOCK_STRIPES);
+		for (int i = 0; i < times.length; i++) {
+			stripes.set(stripe(doctorIds[i], times[i]));
+		}
+		List<Lock> locks = new ArrayList<>(stripes.cardinality());
+		for (int stripe = stripes.nextSetBit(0); stripe >= 0; stripe = stripes.nextSetBit(stripe + 1)) {
+			locks.add(dayLocks[stripe]);
+		}
+		return locks;
+	}
+
+	/**
+	 * Indexes the days of {@code times} that are not indexed yet with one query over the range they span. Like
+	 * {@link #getDayIntervals(long, long)}, it must be called while holding the locks of those days.
+	 */
+	public void loadDays(long doctorId, long[] times) {
+		if (authoritative) {
+			return;
+		}
+		ZonedEpochCalendar calendar = configProvider.getBusinessRules().getCalendar();
+		Map<Long, AppointmentIntervals> missingDays = new HashMap<>();
+		long from = Long.MAX_VALUE;
+		long to = Long.MIN_VALUE;
+		for (long time : times) {
+			long startTimeOfDay = calendar.startOfDay(time);
+			if (!days.containsKey(new DayKey(doctorId, startTimeOfDay))) {
+				missingDays.put(startTimeOfDay, new AppointmentIntervals());
+				from = Math.min(from, startTimeOfDay);
+				to = Math.max(to, calendar.endOfDay(time));
+			}
+		}
+		if (missingDays.isEmpty()) {
+			return;
+		}
+		List<AppointmentPeriod> appointments = appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(doctorId, from, to);
+		if (appointments != null) {
+			for (AppointmentPeriod appointment : appointments) {
+				AppointmentIntervals intervals = missingDays.get(calendar.startOfDay(appointment.getStartTime()));
+				if (intervals != null) {
+					intervals.add(appointment.getStartTime(), appointment.getEndTime());
+				}
+			}
+		}
+		if (days.size() + missingDays.size() > MAX_INDEXED_DAYS) {
+			evictPastDays();
+		}
+		missingDays.forEach((startTimeOfDay, intervals) -> days.putIfAbsent(new DayKey(doctorId, startTimeOfDay), intervals));
+	}
+
+	/**
+	 * Adds a saved appointment to its day. Inside a transaction the appointment is taken out again if the transaction
+	 * rolls back, so the index never keeps a booking that is not in the database.
+	 */
+	public void register(long doctorId, long startTime, long endTime) {
+		long startTimeOfDay = configProvider.getBusinessRules().getCalendar().startOfDay(startTime);
+		AppointmentIntervals intervals = days.get(new DayKey(doctorId, startTimeOfDay));
+		if (intervals != null) {
+			intervals.add(startTime, endTime);
+		}
+		trackChange(doctorId, startTime, intervals == null ? null : () -> intervals.remove(startTime, endTime));
+	}
+
+	/**
+	 * Takes a cancelled or moved appointment out of its day, the counterpart of {@link #register(long, long, long)}:
+	 * inside a transaction the appointment is put back if the transaction rolls back.
+	 */
+	public void unregister(long doctorId, long startTime, long endTime) {
+		long startTimeOfDay = configProvider.getBusinessRules().getCalendar().startOfDay(startTime);
+		AppointmentIntervals intervals = days.get(new DayKey(doctorId, startTimeOfDay));
+		if (intervals != null) {
+			intervals.remove(startTime, endTime);
+		}
+		trackChange(doctorId, startTime, intervals == null ? null : () -> intervals.add(startTime, endTime));
+	}
+
+	/**
+	 * Loads every doctor day with appointments starting in [from, to] with a single streamed query. Days that are
+	 * already indexed are kept, and loading stops once the index holds about {@link #MAX_INDEXED_DAYS} days.
+	 * <p>
+	 * Bookings run while it reads, and one committed after the read would be missing from the loaded day. So a day is
+	 * only added under its lock and only when no appointment of its lock stripe is in flight or was completed since the
+	 * read began; other days are left to be loaded on first use.
+	 *
+	 * @return number of days added to the index
+	 */
+	@Transactional(readOnly = true)
+	public int preload(long from, long to) {
+		if (authoritative) {
+			return 0;
+		}
+		ZonedEpochCalendar calendar = configProvider.getBusinessRules().getCalendar();
+		long[] completedBefore = new long[LOCK_STRIPES];
+		for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+			completedBefore[stripe] = completedChanges.get(stripe);
+		}
+		Map<DayKey, AppointmentIntervals> loaded = new HashMap<>();
+		try (Stream<DoctorAppointmentPeriod> appointments = appointmentDao.streamDoctorPeriodsByStartTimeBetween(from, to)) {
+			appointments.forEach(appointment -> {
+				DayKey key = new DayKey(appointment.getDoctorId(), calendar.startOfDay(appointment.getStartTime()));
+				loaded.computeIfAbsent(key, dayKey -> new AppointmentIntervals()).add(appointment.getStartTime(), appointment.getEndTime());
+			});
+		}
+		int added = 0;
+		for (Map.Entry<DayKey, AppointmentIntervals> day : loaded.entrySet()) {
+			if (days.size() >= MAX_INDEXED_DAYS) {
+				break;
+			}
+			int stripe = stripe(day.getKey().getDoctorId(), day.getKey().getStartTimeOfDay());
+			dayLocks[stripe].lock();
+			try {
+				if (pendingChanges.get(stripe) == 0 && completedChanges.get(stripe) == completedBefore[stripe]
+						&& days.putIfAbsent(day.getKey(), day.getValue()) == null) {
+					added++;
+				}
+			} finally {
+				dayLocks[stripe].unlock();
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Adds an appointment of a complete source, creating its day if needed. Unlike {@link #register(long, long, long)}
+	 * it is not tied to a transaction; the caller holds the day lock or has the index to itself.
+	 */
+	public void restore(long doctorId, long startTime, long endTime) {
+		long startTimeOfDay = configProvider.getBusinessRules().getCalendar().startOfDay(startTime);
+		days.computeIfAbsent(new DayKey(doctorId, startTimeOfDay), key -> new AppointmentIntervals()).add(startTime, endTime);
+	}
+
+	/**
+	 * Removes an appointment of a complete source, the counterpart of {@link #restore(long, long, long)}.
+	 */
+	public void retract(long doctorId, long startTime, long endTime) {
+		long startTimeOfDay = configProvider.getBusinessRules().getCalendar().startOfDay(startTime);
+		AppointmentIntervals intervals = days.get(new DayKey(doctorId, startTimeOfDay));
+		if (intervals != null) {
+			intervals.remove(startTime, endTime);
+		}
+	}
+
+	/**
+	 * Marks whether the index holds every appointment, so days missing from it are known to be empty.
+	 */
+	public void setAuthoritative(boolean authoritative) {
+		this.authoritative = authoritative;
+	}
+
+	public void clear() {
+		days.clear();
+	}
+
+	/**
+	 * Counts a registered or unregistered appointment as in flight until its transaction completes, and runs
+	 * {@code rollback} if it does not commit. Both happen ahead of the synchronizations that release the day locks.
+	 */
+	private void trackChange(long doctorId, long time, Runnable rollback) {
+		int stripe = stripe(doctorId, time);
+		pendingChanges.incrementAndGet(stripe);
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			completeChange(stripe);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public int getOrder() {
+				return Ordered.HIGHEST_PRECEDENCE;
+			}
+
+			@Override
+			public void afterCompletion(int status) {
+				if (status != STATUS_COMMITTED && rollback != null) {
+					rollback.run();
+				}
+				completeChange(stripe);
+			}
+		});
+	}
+
+	private void completeChange(int stripe) {
+		completedChanges.incrementAndGet(stripe);
+		pendingChanges.decrementAndGet(stripe);
+	}
+
+	private AppointmentIntervals load(long doctorId, long startTimeOfDay, long endTimeOfDay) {
+		AppointmentIntervals intervals = new AppointmentIntervals();
+		List<AppointmentPeriod> appointments = appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(doctorId, startTimeOfDay, endTimeOfDay);
+		if (appointments != null) {
+			for (AppointmentPeriod appointment : appointments) {
+				intervals.add(appointment.getStartTime(), appointment.getEndTime());
+			}
+		}
+		return intervals;
+	}
+
+	private void evictPastDays() {
+		long today = configProvider.getBusinessRules().getCalendar().startOfDay(clock.millis());
+		days.keySet().removeIf(key -> key.getStartTimeOfDay() < today);
+		log.debug("evicted past days from doctor appointment index, {} days remain", days.size());
+	}
+
+	private int stripe(long doctorId, long time) {
+		long startTimeOfDay = configProvider.getBusinessRules().getCalendar().startOfDay(time);
+		int hash = 31 * Long.hashCode(doctorId) + Long.hashCode(startTimeOfDay);
+		return (hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1);
+	}
+
+	private static Lock[] createDayLocks() {
+		Lock[] locks = new Lock[LOCK_STRIPES];
+		for (int i = 0; i < LOCK_STRIPES; i++) {
+			locks[i] = new ReentrantLock();
+		}
+		return locks;
+	}
+
+	@Value
+	private static class DayKey {
+		long doctorId;
+		long startTimeOfDay;
+	}
+}
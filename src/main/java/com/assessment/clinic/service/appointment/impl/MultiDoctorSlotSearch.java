@@ -0,0 +1,210 @@
+package com.assessment.clinic.service.appointment.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PreDestroy;
+
+import com.assessment.clinic.model.appointment.AppointmentDao;
+import com.assessment.clinic.model.appointment.AppointmentPeriod;
+import com.assessment.clinic.service.appointment.eventlog.BookingEventLog;
+import com.assessment.clinic.service.doctor.dto.DoctorSchedule;
+import com.assessment.clinic.utli.ConfigProvider;
+import com.assessment.clinic.utli.ZonedEpochCalendar;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Searches the earliest free slot over several doctors in parallel. Doctors are handed to the workers in the order of
+ * their lower bound, the start of their first presence that is not over yet; a worker stops as soon as the next lower
+ * bound is not earlier than the best slot found so far, because no remaining doctor can beat it.
+ * <p>
+ * The search only reads; the caller books the returned slot under the doctor day lock and searches again if the slot
+ * was taken in the meantime.
+ */
+@Component
+@Slf4j
+public class MultiDoctorSlotSearch {
+
+	private static final long NO_LOWER_BOUND = Long.MAX_VALUE;
+
+	private final SlotAvailabilityEngine slotAvailabilityEngine;
+
+	private final DoctorAppointmentIndex doctorAppointmentIndex;
+
+	private final AppointmentDao appointmentDao;
+
+	private final ConfigProvider configProvider;
+
+	private final Optional<BookingEventLog> eventLog;
+
+	private final int parallelism = Runtime.getRuntime().availableProcessors();
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+		Thread thread = new Thread(runnable, "multi-doctor-slot-search");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	public MultiDoctorSlotSearch(SlotAvailabilityEngine slotAvailabilityEngine, DoctorAppointmentIndex doctorAppointmentIndex,
+			AppointmentDao appointmentDao, ConfigProvider configProvider, Optional<BookingEventLog> eventLog) {
+		this.slotAvailabilityEngine = slotAvailabilityEngine;
+		this.doctorAppointmentIndex = doctorAppointmentIndex;
+		this.appointmentDao = appointmentDao;
+		this.configProvider = configProvider;
+		this.eventLog = eventLog;
+	}
+
+	/**
+	 * @return the earliest free slot of the given doctors that does not start before {@code now}, ties going to the
+	 * doctor with the smaller id, or {@code null} when none of them has a free slot
+	 */
+	public Slot findEarliestSlot(List<DoctorSchedule> doctors, long patientId, long now, long stepInMS) throws InterruptedException {
+		List<Candidate> candidates = new ArrayList<>(doctors.size());
+		for (DoctorSchedule doctor : doctors) {
+			int firstPresence = doctor.firstPresenceEndingAfter(now);
+			if (firstPresence < doctor.getPresenceCount()) {
+				candidates.add(new Candidate(doctor, firstPresence, Math.max(now, doctor.getPresenceStartTime(firstPresence))));
+			}
+		}
+		if (candidates.isEmpty()) {
+			return null;
+		}
+		candidates.sort(Comparator.comparingLong(Candidate::getLowerBound).thenComparingLong(candidate -> candidate.getDoctor().getDoctorId()));
+		Search search = new Search(candidates, patientId, now, stepInMS);
+		int workerCount = Math.min(parallelism, candidates.size());
+		if (workerCount == 1) {
+			search.run();
+			return search.best.get();
+		}
+		List<Callable<Void>> workers = new ArrayList<>(workerCount);
+		for (int i = 0; i < workerCount; i++) {
+			workers.add(() -> {
+				search.run();
+				return null;
+			});
+		}
+		for (Future<Void> worker : executor.invokeAll(workers)) {
+			try {
+				worker.get();
+			} catch (ExecutionException exception) {
+				throw new IllegalStateException("multi doctor slot search failed", exception.getCause());
+			}
+		}
+		return search.best.get();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * State of one search, shared by its workers.
+	 */
+	private class Search {
+
+		private final List<Candidate> candidates;
+
+		private final long patientId;
+
+		private final long now;
+
+		private final long stepInMS;
+
+		private final AtomicInteger nextCandidate = new AtomicInteger();
+
+		private final AtomicReference<Slot> best = new AtomicReference<>();
+
+		private final Map<Long, List<AppointmentPeriod>> patientDays = new ConcurrentHashMap<>();
+
+		Search(List<Candidate> candidates, long patientId, long now, long stepInMS) {
+			this.candidates = candidates;
+			this.patientId = patientId;
+			this.now = now;
+			this.stepInMS = stepInMS;
+		}
+
+		void run() {
+			int index;
+			while ((index = nextCandidate.getAndIncrement()) < candidates.size()) {
+				Candidate candidate = candidates.get(index);
+				if (candidate.getLowerBound() >= bestStartTime()) {
+					return;
+				}
+				search(candidate);
+			}
+		}
+
+		private void search(Candidate candidate) {
+			DoctorSchedule doctor = candidate.getDoctor();
+			for (int presence = candidate.getFirstPresence(); presence < doctor.getPresenceCount(); presence++) {
+				long presenceStartTime = doctor.getPresenceStartTime(presence);
+				if (Math.max(now, presenceStartTime) > bestStartTime()) {
+					return;
+				}
+				AppointmentIntervals doctorDayIntervals = doctorAppointmentIndex.getDayIntervals(doctor.getDoctorId(), presenceStartTime);
+				long startTime = slotAvailabilityEngine.findEarliestSlot(doctor, presence, now, stepInMS, doctorDayIntervals,
+						getPatientDay(presenceStartTime));
+				if (startTime != SlotAvailabilityEngine.NO_FREE_SLOT) {
+					offer(new Slot(doctor, startTime));
+					return;
+				}
+			}
+			log.debug("couldn't find free slot for doctor {}", doctor.getDoctorId());
+		}
+
+		private List<AppointmentPeriod> getPatientDay(long time) {
+			ZonedEpochCalendar calendar = configProvider.getBusinessRules().getCalendar();
+			return patientDays.computeIfAbsent(calendar.startOfDay(time), startTimeOfDay -> eventLog.isPresent()
+					? eventLog.get().getPatientDay(patientId, time)
+					: appointmentDao.getPeriodsByPatientIdAndStartTimeBetween(patientId, startTimeOfDay, calendar.endOfDay(time)));
+		}
+
+		private long bestStartTime() {
+			Slot slot = best.get();
+			return slot == null ? NO_LOWER_BOUND : slot.getStartTime();
+		}
+
+		private void offer(Slot slot) {
+			Slot current;
+			do {
+				current = best.get();
+				if (current != null && !slot.isEarlierThan(current)) {
+					return;
+				}
+			} while (!best.compareAndSet(current, slot));
+		}
+	}
+
+	@Value
+	private static class Candidate {
+		DoctorSchedule doctor;
+		int firstPresence;
+		long lowerBound;
+	}
+
+	@Value
+	public static class Slot {
+		DoctorSchedule doctor;
+		long startTime;
+
+		boolean isEarlierThan(Slot other) {
+			return startTime < other.startTime
+					|| (startTime == other.startTime && doctor.getDoctorId() < other.doctor.getDoctorId());
+		}
+	}
+}
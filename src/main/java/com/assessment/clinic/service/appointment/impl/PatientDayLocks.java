@@ -0,0 +1,167 @@
+package com.assessment.clinic.service.appointment.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.assessment.clinic.utli.ConfigProvider;
+import com.assessment.clinic.utli.ZonedEpochCalendar;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Locks of patient days. The patient checks of a booking read the appointments of the patient on that day, which
+ * bookings with any doctor change, so the doctor day locks alone let two bookings of the same patient day with
+ * different doctors both pass them. Every booking path takes the patient day lock before any doctor day lock.
+ * <p>
+ * Unlike the doctor day locks these are not striped: a lock exists only while it is held or waited for, so bookings of
+ * different patient days never wait for each other.
+ */
+@Component
+@RequiredArgsConstructor
+public class PatientDayLocks {
+
+	private final ConfigProvider configProvider;
+
+	private final Map<PatientDay, HeldLock> locks = new ConcurrentHashMap<>();
+
+	public Lock getDayLock(long patientId, long time) {
+		return new PatientDayLock(new PatientDay(patientId, configProvider.getBusinessRules().getCalendar().startOfDay(time)));
+	}
+
+	/**
+	 * @return the distinct locks of the days of {@code times}, in a fixed global order so that callers locking several
+	 * days cannot deadlock each other
+	 */
+	public List<Lock> getDayLocks(long patientId, long[] times) {
+		long[] patientIds = new long[times.length];
+		Arrays.fill(patientIds, patientId);
+		return getDayLocks(patientIds, times);
+	}
+
+	/**
+	 * Like {@link #getDayLocks(long, long[])} for the days of several patients, {@code patientIds[i]} booking at
+	 * {@code times[i]}.
+	 */
+	public List<Lock> getDayLocks(long[] patientIds, long[] times) {
+		ZonedEpochCalendar calendar = configProvider.getBusinessRules().getCalendar();
+		TreeSet<PatientDay> days = new TreeSet<>();
+		for (int i = 0; i < times.length; i++) {
+			days.add(new PatientDay(patientIds[i], calendar.startOfDay(times[i])));
+		}
+		List<Lock> dayLocks = new ArrayList<>(days.size());
+		days.forEach(day -> dayLocks.add(new PatientDayLock(day)));
+		return dayLocks;
+	}
+
+	private static class HeldLock {
+
+		final ReentrantLock lock = new ReentrantLock();
+
+		/**
+		 * holders and waiters, changed only inside the map operations on the key
+		 */
+		int users;
+	}
+
+	/**
+	 * Handle of the lock of one patient day; the lock is created by the first user and removed with the last.
+	 */
+	@RequiredArgsConstructor
+	private class PatientDayLock implements Lock {
+
+		private final PatientDay day;
+
+		@Override
+		public void lock() {
+			acquire().lock.lock();
+		}
+
+		@Override
+		public void lockInterruptibly() throws InterruptedException {
+			HeldLock held = acquire();
+			try {
+				held.lock.lockInterruptibly();
+			} catch (InterruptedException exception) {
+				release(false);
+				throw exception;
+			}
+		}
+
+		@Override
+		public boolean tryLock() {
+			HeldLock held = acquire();
+			if (held.lock.tryLock()) {
+				return true;
+			}
+			release(false);
+			return false;
+		}
+
+		@Override
+		public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+			HeldLock held = acquire();
+			boolean locked = false;
+			try {
+				locked = held.lock.tryLock(time, unit);
+				return locked;
+			} finally {
+				if (!locked) {
+					release(false);
+				}
+			}
+		}
+
+		@Override
+		public void unlock() {
+			HeldLock held = locks.get(day);
+			if (held == null || !held.lock.isHeldByCurrentThread()) {
+				throw new IllegalMonitorStateException("patient day " + day + " is not locked by this thread");
+			}
+			release(true);
+		}
+
+		@Override
+		public Condition newCondition() {
+			throw new UnsupportedOperationException("patient day locks have no conditions");
+		}
+
+		private HeldLock acquire() {
+			return locks.compute(day, (key, held) -> {
+				HeldLock acquired = held == null ? new HeldLock() : held;
+				acquired.users++;
+				return acquired;
+			});
+		}
+
+		private void release(boolean unlock) {
+			locks.computeIfPresent(day, (key, current) -> {
+				if (unlock) {
+					current.lock.unlock();
+				}
+				return --current.users == 0 ? null : current;
+			});
+		}
+	}
+
+	@Value
+	private static class PatientDay implements Comparable<PatientDay> {
+		long patientId;
+		long startTimeOfDay;
+
+		@Override
+		public int compareTo(PatientDay other) {
+			int byPatient = Long.compare(patientId, other.patientId);
+			return byPatient != 0 ? byPatient : Long.compare(startTimeOfDay, other.startTimeOfDay);
+		}
+	}
+}
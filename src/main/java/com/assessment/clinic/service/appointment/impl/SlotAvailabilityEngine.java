@@ -0,0 +1,94 @@
+package com.assessment.clinic.service.appointment.impl;
+
+import java.util.BitSet;
+import java.util.List;
+
+import com.assessment.clinic.model.appointment.AppointmentPeriod;
+import com.assessment.clinic.service.doctor.dto.DoctorSchedule;
+import com.assessment.clinic.utli.BusinessRules;
+import com.assessment.clinic.utli.ConfigProvider;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Finds free appointment slots of a doctor presence without trial and error. Candidate slots start at the presence
+ * start and advance by a fixed step; each one is a bit in a {@link BitSet} that is cleared when the slot breaks a
+ * business rule, so the earliest free slot is the first set bit.
+ */
+@Component
+@RequiredArgsConstructor
+public class SlotAvailabilityEngine {
+
+	public static final long NO_FREE_SLOT = -1L;
+
+	private final ConfigProvider configProvider;
+
+	/**
+	 * @return start time of the earliest free slot in the given presence of the doctor that does not start before
+	 * {@code notBefore}, or {@link #NO_FREE_SLOT}
+	 */
+	public long findEarliestSlot(DoctorSchedule doctor, int presence, long notBefore, long stepInMS, AppointmentIntervals doctorDayIntervals,
+			List<AppointmentPeriod> prevPatientAppointments) {
+		BitSet slots = findFreeSlots(doctor, presence, notBefore, stepInMS, doctorDayIntervals, prevPatientAppointments);
+		int slot = slots.nextSetBit(0);
+		return slot < 0 ? NO_FREE_SLOT : doctor.getPresenceStartTime(presence) + slot * stepInMS;
+	}
+
+	/**
+	 * @return the free slots of the given presence that do not start before {@code notBefore}; bit {@code i} is the
+	 * slot starting {@code i * stepInMS} after the presence start. Patient rules are skipped when
+	 * {@code prevPatientAppointments} is null.
+	 */
+	public BitSet findFreeSlots(DoctorSchedule doctor, int presence, long notBefore, long stepInMS, AppointmentIntervals doctorDayIntervals,
+			List<AppointmentPeriod> prevPatientAppointments) {
+		BusinessRules rules = configProvider.getBusinessRules();
+		long durationInMS = rules.getVisitDurationInMS(doctor.getGrade());
+		long firstStartTime = doctor.getPresenceStartTime(presence);
+		int slotCount = slotCount(firstStartTime, doctor.getPresenceEndTime(presence), stepInMS, durationInMS);
+		if (slotCount == 0 || !rules.isBusinessDay(firstStartTime)) {
+			return new BitSet();
+		}
+		if (prevPatientAppointments != null && prevPatientAppointments.size() >= rules.getMaxAppointmentCountInDay()) {
+			return new BitSet();
+		}
+		BitSet slots = new BitSet(slotCount);
+		slots.set(0, slotCount);
+		clearOverlapping(slots, slotCount, firstStartTime, stepInMS, Long.MIN_VALUE, notBefore - 1);
+		clearOutsideWorkingHours(slots, slotCount, firstStartTime, stepInMS, durationInMS, rules);
+		if (prevPatientAppointments != null) {
+			for (AppointmentPeriod appointment : prevPatientAppointments) {
+				clearOverlapping(slots, slotCount, firstStartTime, stepInMS, appointment.getStartTime() - durationInMS, appointment.getEndTime());
+			}
+		}
+		int maxDoctorConflictTime = rules.getMaxConflictTimeCount(doctor.getGrade());
+		doctorDayIntervals.clearSaturated(slots, slotCount, firstStartTime, stepInMS, durationInMS, maxDoctorConflictTime);
+		return slots;
+	}
+
+	private static void clearOutsideWorkingHours(BitSet slots, int slotCount, long firstStartTime, long stepInMS, long durationInMS, BusinessRules rules) {
+		long startWorkingTime = rules.getCalendar().atHourOfDay(firstStartTime, rules.getStartWorkingHour());
+		long endWorkingTime = rules.getCalendar().atHourOfDay(firstStartTime, rules.getEndWorkingHour());
+		clearOverlapping(slots, slotCount, firstStartTime, stepInMS, Long.MIN_VALUE, startWorkingTime - 1);
+		clearOverlapping(slots, slotCount, firstStartTime, stepInMS, endWorkingTime - durationInMS + 1, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Clears the slots whose start time is in the closed range [from, to].
+	 */
+	private static void clearOverlapping(BitSet slots, int slotCount, long firstStartTime, long stepInMS, long from, long to) {
+		long firstSlot = from <= firstStartTime ? 0 : Math.floorDiv(from - firstStartTime + stepInMS - 1, stepInMS);
+		long lastSlot = Math.min(slotCount - 1L, Math.floorDiv(to - firstStartTime, stepInMS));
+		if (firstSlot <= lastSlot) {
+			slots.clear((int) firstSlot, (int) lastSlot + 1);
+		}
+	}
+
+	private static int slotCount(long startTime, long endTime, long stepInMS, long durationInMS) {
+		long lastStartTime = endTime - durationInMS;
+		if (lastStartTime < startTime || stepInMS <= 0) {
+			return 0;
+		}
+		return (int) ((lastStartTime - startTime) / stepInMS) + 1;
+	}
+}
@@ -0,0 +1,22 @@
+package com.assessment.clinic.service.archive;
+
+/**
+ * Moves appointments of past months from {@code appointments} to {@code appointments_archive}, so the table the
+ * booking queries run against only holds the active months however long the history grows.
+ */
+public interface AppointmentArchiveService {
+
+	/**
+	 * Archives every month before the last {@code archive.active-months} months.
+	 *
+	 * @return number of archived appointments
+	 */
+	long archivePastMonths();
+
+	/**
+	 * Archives the appointments starting before {@code time}, one day per transaction.
+	 *
+	 * @return number of archived appointments
+	 */
+	long archiveBefore(long time);
+}
@@ -0,0 +1,84 @@
+package com.assessment.clinic.service.archive.impl;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import com.assessment.clinic.model.appointment.AppointmentDao;
+import com.assessment.clinic.model.appointment.ArchivedAppointmentDao;
+import com.assessment.clinic.service.archive.AppointmentArchiveService;
+import com.assessment.clinic.utli.ConfigProvider;
+import com.assessment.clinic.utli.ZonedEpochCalendar;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Copies a day of appointments into the archive and deletes it from {@code appointments} in the same transaction, both
+ * as single statements in the database. Days are small enough to keep every transaction short while bookings go on.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AppointmentArchiveServiceImpl implements AppointmentArchiveService {
+
+	private final AppointmentDao appointmentDao;
+
+	private final ArchivedAppointmentDao archivedAppointmentDao;
+
+	private final ConfigProvider configProvider;
+
+	private final PlatformTransactionManager transactionManager;
+
+	private final Clock clock;
+
+	@Value("${archive.active-months:3}")
+	private int activeMonths;
+
+	@Override
+	@Scheduled(cron = "${archive.cron:0 30 3 * * *}")
+	public long archivePastMonths() {
+		ZonedEpochCalendar calendar = configProvider.getBusinessRules().getCalendar();
+		YearMonth firstActiveMonth = YearMonth.now(clock.withZone(calendar.getZoneId())).minusMonths(Math.max(1, activeMonths) - 1L);
+		return archiveBefore(firstActiveMonth.atDay(1).atStartOfDay(calendar.getZoneId()).toInstant().toEpochMilli());
+	}
+
+	@Override
+	public long archiveBefore(long time) {
+		Long oldestStartTime = appointmentDao.findMinStartTime();
+		if (oldestStartTime == null || oldestStartTime >= time) {
+			return 0;
+		}
+		ZonedEpochCalendar calendar = configProvider.getBusinessRules().getCalendar();
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		long archived = 0;
+		for (long day = calendar.startOfDay(oldestStartTime); day < time; day = calendar.plusDays(day, 1)) {
+			long from = day;
+			long to = Math.min(calendar.plusDays(day, 1), time);
+			int archiveMonth = archiveMonth(calendar, day);
+			archived += transaction.execute(status -> {
+				int copied = archivedAppointmentDao.copyFromAppointments(from, to, archiveMonth);
+				if (copied == 0) {
+					return 0;
+				}
+				int deleted = appointmentDao.deleteByStartTimeRange(from, to);
+				if (deleted != copied) {
+					throw new IllegalStateException("appointments of day " + from + " changed while archiving: copied " + copied + ", deleted " + deleted);
+				}
+				return copied;
+			});
+		}
+		log.info("archived {} appointments starting before {}", archived, calendar.toLocalDateTime(time));
+		return archived;
+	}
+
+	private static int archiveMonth(ZonedEpochCalendar calendar, long time) {
+		LocalDateTime dateTime = calendar.toLocalDateTime(time);
+		return dateTime.getYear() * 100 + dateTime.getMonthValue();
+	}
+}
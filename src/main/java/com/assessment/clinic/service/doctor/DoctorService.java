@@ -1,9 +1,38 @@
 package com.assessment.clinic.service.doctor;
 
+import java.util.List;
+
 import com.assessment.clinic.exception.DoctorNotFoundException;
 import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.service.doctor.dto.DoctorSchedule;
 
 public interface DoctorService {
 
 	Doctor getDoctorById(Long id) throws DoctorNotFoundException;
+
+	/**
+	 * @return cached schedule of the doctor, loaded with its presences in one query on a cache miss
+	 */
+	DoctorSchedule getDoctorSchedule(Long id) throws DoctorNotFoundException;
+
+	/**
+	 * @return an uninitialized reference to the doctor, enough to link a new appointment without loading the doctor
+	 */
+	Doctor getDoctorReference(Long id);
+
+	List<Long> getDoctorIdsByGrade(DoctorGrade grade);
+
+	/**
+	 * @return ids of all doctors in ascending order
+	 */
+	List<Long> getAllDoctorIds();
+
+	/**
+	 * Loads the schedules of the doctors with ids in [fromId, toId] with two queries and puts them into the schedule
+	 * cache.
+	 *
+	 * @return the loaded schedules
+	 */
+	List<DoctorSchedule> preloadDoctorSchedules(long fromId, long toId);
 }
@@ -0,0 +1,106 @@
+package com.assessment.clinic.service.doctor.dto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.assessment.clinic.model.calendar.Presence;
+import com.assessment.clinic.model.calendar.PresenceWindow;
+import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.model.doctor.DoctorGrade;
+
+/**
+ * Immutable snapshot of what booking needs from a doctor: the grade and the presences, kept as primitive arrays of
+ * start-sorted windows in which overlapping or touching presences are merged. Containment and the first window that
+ * is not over yet are found with a binary search. It is detached from the persistence context, so it can be cached
+ * and shared between threads.
+ */
+public final class DoctorSchedule {
+
+	private final long doctorId;
+
+	private final DoctorGrade grade;
+
+	private final long[] presenceStartTimes;
+
+	private final long[] presenceEndTimes;
+
+	private DoctorSchedule(long doctorId, DoctorGrade grade, long[] presenceStartTimes, long[] presenceEndTimes) {
+		this.doctorId = doctorId;
+		this.grade = grade;
+		this.presenceStartTimes = presenceStartTimes;
+		this.presenceEndTimes = presenceEndTimes;
+	}
+
+	public static DoctorSchedule of(Doctor doctor) {
+		List<Presence> presences = doctor.getPresences() == null ? new ArrayList<>() : doctor.getPresences();
+		List<PresenceWindow> windows = new ArrayList<>(presences.size());
+		for (Presence presence : presences) {
+			windows.add(new PresenceWindow(presence.getStartTime(), presence.getEndTime()));
+		}
+		return of(doctor.getId(), doctor.getGrade(), windows);
+	}
+
+	public static DoctorSchedule of(long doctorId, DoctorGrade grade, List<PresenceWindow> presences) {
+		PresenceWindow[] sorted = presences.toArray(new PresenceWindow[0]);
+		Arrays.sort(sorted, (first, second) -> Long.compare(first.getStartTime(), second.getStartTime()));
+		long[] startTimes = new long[sorted.length];
+		long[] endTimes = new long[sorted.length];
+		int count = 0;
+		for (PresenceWindow presence : sorted) {
+			if (count > 0 && presence.getStartTime() <= endTimes[count - 1]) {
+				endTimes[count - 1] = Math.max(endTimes[count - 1], presence.getEndTime());
+			} else {
+				startTimes[count] = presence.getStartTime();
+				endTimes[count] = presence.getEndTime();
+				count++;
+			}
+		}
+		return new DoctorSchedule(doctorId, grade, Arrays.copyOf(startTimes, count), Arrays.copyOf(endTimes, count));
+	}
+
+	public long getDoctorId() {
+		return doctorId;
+	}
+
+	public DoctorGrade getGrade() {
+		return grade;
+	}
+
+	public int getPresenceCount() {
+		return presenceStartTimes.length;
+	}
+
+	public long getPresenceStartTime(int presence) {
+		return presenceStartTimes[presence];
+	}
+
+	public long getPresenceEndTime(int presence) {
+		return presenceEndTimes[presence];
+	}
+
+	/**
+	 * @return index of the first presence ending after {@code time}, or {@link #getPresenceCount()} if all are over
+	 */
+	public int firstPresenceEndingAfter(long time) {
+		int low = 0;
+		int high = presenceEndTimes.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (presenceEndTimes[mid] <= time) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return whether one presence covers the whole period [startTime, endTime]
+	 */
+	public boolean isInPresence(long startTime, long endTime) {
+		int presence = firstPresenceEndingAfter(startTime);
+		return presence < presenceStartTimes.length && presenceStartTimes[presence] <= startTime && endTime <= presenceEndTimes[presence];
+	}
+}
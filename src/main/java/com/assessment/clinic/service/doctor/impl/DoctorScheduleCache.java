@@ -0,0 +1,121 @@
+package com.assessment.clinic.service.doctor.impl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+import com.assessment.clinic.service.doctor.dto.DoctorSchedule;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded read-through cache of {@link DoctorSchedule} snapshots. When full, an arbitrary entry is evicted to make
+ * room. Writes to doctors and presences invalidate the affected entry through {@link DoctorScheduleInvalidator}; a
+ * load that overlaps an invalidation is returned to its caller but not cached, so a stale snapshot never survives a
+ * write.
+ */
+@Component
+@Slf4j
+public class DoctorScheduleCache {
+
+	static final int MAX_SIZE = 10_000;
+
+	private final Map<Long, DoctorSchedule> schedules = new ConcurrentHashMap<>();
+
+	private final AtomicLong invalidations = new AtomicLong();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @return the cached schedule, or the one returned by {@code loader}, which may be {@code null} for an unknown doctor
+	 */
+	public DoctorSchedule get(long doctorId, LongFunction<DoctorSchedule> loader) {
+		DoctorSchedule schedule = schedules.get(doctorId);
+		if (schedule != null) {
+			hits.increment();
+			return schedule;
+		}
+		misses.increment();
+		long invalidationsBeforeLoad = invalidations.get();
+		schedule = loader.apply(doctorId);
+		if (schedule == null) {
+			return null;
+		}
+		if (schedules.size() >= MAX_SIZE) {
+			evictOne();
+		}
+		schedules.put(doctorId, schedule);
+		if (invalidations.get() != invalidationsBeforeLoad) {
+			schedules.remove(doctorId, schedule);
+		}
+		return schedule;
+	}
+
+	/**
+	 * @return the current invalidation generation, to be taken before a bulk load and passed to {@link #putIfAbsent}
+	 */
+	public long getGeneration() {
+		return invalidations.get();
+	}
+
+	/**
+	 * Adds a schedule loaded outside of {@link #get}, unless the doctor is cached already, the cache is full or any
+	 * entry was invalidated since {@code generation}.
+	 *
+	 * @return whether the schedule was cached
+	 */
+	public boolean putIfAbsent(long doctorId, DoctorSchedule schedule, long generation) {
+		if (schedules.size() >= MAX_SIZE || schedules.putIfAbsent(doctorId, schedule) != null) {
+			return false;
+		}
+		if (invalidations.get() != generation) {
+			schedules.remove(doctorId, schedule);
+			return false;
+		}
+		return true;
+	}
+
+	public void invalidate(long doctorId) {
+		invalidations.incrementAndGet();
+		schedules.remove(doctorId);
+	}
+
+	public void clear() {
+		invalidations.incrementAndGet();
+		schedules.clear();
+	}
+
+	public int size() {
+		return schedules.size();
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	private void evictOne() {
+		Iterator<Long> iterator = schedules.keySet().iterator();
+		if (iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+			evictions.increment();
+			log.debug("doctor schedule cache is full, evicted one entry");
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.assessment.clinic.service.doctor.impl;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import com.assessment.clinic.model.calendar.Presence;
+import com.assessment.clinic.model.doctor.Doctor;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener of {@link Doctor} and {@link Presence} that drops the schedule of the written doctor from
+ * {@link DoctorScheduleCache}. The entry is dropped right away and once more after the transaction completes, so a
+ * schedule reloaded before the commit is not kept either.
+ */
+@Component
+@RequiredArgsConstructor
+public class DoctorScheduleInvalidator {
+
+	private final DoctorScheduleCache scheduleCache;
+
+	@PostPersist
+	@PostUpdate
+	@PostRemove
+	public void onWrite(Object entity) {
+		Long doctorId = doctorIdOf(entity);
+		if (doctorId == null) {
+			return;
+		}
+		scheduleCache.invalidate(doctorId);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					scheduleCache.invalidate(doctorId);
+				}
+			});
+		}
+	}
+
+	private static Long doctorIdOf(Object entity) {
+		if (entity instanceof Doctor) {
+			return ((Doctor) entity).getId();
+		}
+		if (entity instanceof Presence && ((Presence) entity).getDoctor() != null) {
+			return ((Presence) entity).getDoctor().getId();
+		}
+		return null;
+	}
+}
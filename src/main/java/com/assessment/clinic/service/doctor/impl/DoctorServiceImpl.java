@@ -1,12 +1,26 @@
 package com.assessment.clinic.service.doctor.impl;
 
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
 import com.assessment.clinic.exception.DoctorNotFoundException;
+import com.assessment.clinic.model.calendar.DoctorPresenceWindow;
+import com.assessment.clinic.model.calendar.PresenceDao;
+import com.assessment.clinic.model.calendar.PresenceWindow;
 import com.assessment.clinic.model.doctor.Doctor;
 import com.assessment.clinic.model.doctor.DoctorDao;
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.model.doctor.DoctorGradeView;
 import com.assessment.clinic.service.doctor.DoctorService;
+import com.assessment.clinic.service.doctor.dto.DoctorSchedule;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
@@ -14,8 +28,68 @@ public class DoctorServiceImpl implements DoctorService {
 
 	private final DoctorDao dao;
 
+	private final PresenceDao presenceDao;
+
+	private final Clock clock;
+
+	private final DoctorScheduleCache scheduleCache;
+
 	@Override
 	public Doctor getDoctorById(Long id) throws DoctorNotFoundException {
 		return dao.findById(id).orElseThrow(() -> new DoctorNotFoundException("no doctor found for id " + id));
 	}
+
+	@Override
+	public DoctorSchedule getDoctorSchedule(Long id) throws DoctorNotFoundException {
+		if (id == null) {
+			throw new DoctorNotFoundException("no doctor found for id " + id);
+		}
+		DoctorSchedule schedule = scheduleCache.get(id, this::loadSchedule);
+		if (schedule == null) {
+			throw new DoctorNotFoundException("no doctor found for id " + id);
+		}
+		return schedule;
+	}
+
+	@Override
+	public Doctor getDoctorReference(Long id) {
+		return dao.getReferenceById(id);
+	}
+
+	@Override
+	public List<Long> getDoctorIdsByGrade(DoctorGrade grade) {
+		return dao.findIdsByGrade(grade);
+	}
+
+	@Override
+	public List<Long> getAllDoctorIds() {
+		return dao.findAllIds();
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<DoctorSchedule> preloadDoctorSchedules(long fromId, long toId) {
+		long generation = scheduleCache.getGeneration();
+		Map<Long, List<PresenceWindow>> windows = new HashMap<>();
+		try (Stream<DoctorPresenceWindow> presences = presenceDao.streamWindowsByDoctorIdBetweenEndingAfter(fromId, toId, clock.millis())) {
+			presences.forEach(presence -> windows.computeIfAbsent(presence.getDoctorId(), doctorId -> new ArrayList<>())
+					.add(new PresenceWindow(presence.getStartTime(), presence.getEndTime())));
+		}
+		List<DoctorSchedule> schedules = new ArrayList<>();
+		for (DoctorGradeView doctor : dao.findGradesByIdBetween(fromId, toId)) {
+			DoctorSchedule schedule = DoctorSchedule.of(doctor.getId(), doctor.getGrade(), windows.getOrDefault(doctor.getId(), List.of()));
+			scheduleCache.putIfAbsent(doctor.getId(), schedule, generation);
+			schedules.add(schedule);
+		}
+		return schedules;
+	}
+
+	/**
+	 * Loads the grade and the presences that are not over yet as projections; past presences are never read.
+	 */
+	private DoctorSchedule loadSchedule(long id) {
+		return dao.findGradeById(id)
+				.map(grade -> DoctorSchedule.of(id, grade, presenceDao.getWindowsByDoctorIdEndingAfter(id, clock.millis())))
+				.orElse(null);
+	}
 }
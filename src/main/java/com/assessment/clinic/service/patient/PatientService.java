@@ -6,4 +6,10 @@ import com.assessment.clinic.model.patient.Patient;
 public interface PatientService {
 
 	Patient getPatientById(long id) throws PatientNotFoundException;
+
+	/**
+	 * @return an uninitialized reference to an existing patient; known patients are answered without a database
+	 * round-trip, unknown ones with an existence check only
+	 */
+	Patient getPatientReference(long id) throws PatientNotFoundException;
 }
@@ -0,0 +1,92 @@
+package com.assessment.clinic.service.patient.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded LRU set of patient ids known to exist, so that bookings of returning patients skip the existence check.
+ * Deleted patients are removed by {@link PatientCacheInvalidator}.
+ */
+@Component
+public class KnownPatientCache {
+
+	static final int MAX_SIZE = 100_000;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final Map<Long, Boolean> patientIds = new LinkedHashMap<>(1024, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+			if (size() > MAX_SIZE) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	public boolean contains(long patientId) {
+		boolean known;
+		synchronized (patientIds) {
+			known = patientIds.get(patientId) != null;
+		}
+		if (known) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		return known;
+	}
+
+	public void add(long patientId) {
+		synchronized (patientIds) {
+			patientIds.put(patientId, Boolean.TRUE);
+		}
+	}
+
+	public void remove(long patientId) {
+		synchronized (patientIds) {
+			patientIds.remove(patientId);
+		}
+	}
+
+	public void clear() {
+		synchronized (patientIds) {
+			patientIds.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (patientIds) {
+			return patientIds.size();
+		}
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return share of lookups answered from the cache, 0 before the first lookup
+	 */
+	public double getHitRatio() {
+		long hitCount = hits.sum();
+		long lookups = hitCount + misses.sum();
+		return lookups == 0 ? 0 : (double) hitCount / lookups;
+	}
+}
@@ -0,0 +1,25 @@
+package com.assessment.clinic.service.patient.impl;
+
+import javax.persistence.PostRemove;
+
+import com.assessment.clinic.model.patient.Patient;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener of {@link Patient} that forgets deleted patients in {@link KnownPatientCache}.
+ */
+@Component
+@RequiredArgsConstructor
+public class PatientCacheInvalidator {
+
+	private final KnownPatientCache knownPatients;
+
+	@PostRemove
+	public void onRemove(Patient patient) {
+		if (patient.getId() != null) {
+			knownPatients.remove(patient.getId());
+		}
+	}
+}
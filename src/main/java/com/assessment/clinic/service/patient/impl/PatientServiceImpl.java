@@ -14,8 +14,21 @@ public class PatientServiceImpl implements PatientService {
 
 	private final PatientDao dao;
 
+	private final KnownPatientCache knownPatients;
+
 	@Override
 	public Patient getPatientById(long id) throws PatientNotFoundException {
 		return dao.findById(id).orElseThrow(() -> new PatientNotFoundException("no patient found for id " + id));
 	}
+
+	@Override
+	public Patient getPatientReference(long id) throws PatientNotFoundException {
+		if (!knownPatients.contains(id)) {
+			if (!dao.existsById(id)) {
+				throw new PatientNotFoundException("no patient found for id " + id);
+			}
+			knownPatients.add(id);
+		}
+		return dao.getReferenceById(id);
+	}
 }
@@ -0,0 +1,87 @@
+package com.assessment.clinic.utli;
+
+import java.util.Map;
+
+import com.assessment.clinic.model.calendar.PersianDayOfWeek;
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.service.appointment.ConflictCheckMode;
+import com.assessment.clinic.service.appointment.EarliestAppointmentSearchMode;
+import lombok.Getter;
+
+/**
+ * Immutable, pre-parsed snapshot of the business configuration. It is built once by {@link ConfigProvider} and
+ * replaced as a whole on refresh, so readers never see a half-updated rule set and never parse properties.
+ */
+@Getter
+public final class BusinessRules {
+
+	private static final long MINUTE_IN_MS = 60000L;
+
+	private final PersianDayOfWeek startDayOfWeek;
+
+	private final PersianDayOfWeek endDayOfWeek;
+
+	private final int startWorkingHour;
+
+	private final int endWorkingHour;
+
+	private final int maxAppointmentCountInDay;
+
+	private final EarliestAppointmentSearchMode earliestAppointmentSearchMode;
+
+	private final ConflictCheckMode conflictCheckMode;
+
+	private final ZonedEpochCalendar calendar;
+
+	@Getter(lombok.AccessLevel.NONE)
+	private final int[] visitDurationInMinByGrade;
+
+	@Getter(lombok.AccessLevel.NONE)
+	private final long[] visitDurationInMSByGrade;
+
+	@Getter(lombok.AccessLevel.NONE)
+	private final int[] maxConflictTimeCountByGrade;
+
+	BusinessRules(PersianDayOfWeek startDayOfWeek, PersianDayOfWeek endDayOfWeek, int startWorkingHour, int endWorkingHour,
+			int maxAppointmentCountInDay, EarliestAppointmentSearchMode earliestAppointmentSearchMode, ConflictCheckMode conflictCheckMode,
+			ZonedEpochCalendar calendar,
+			Map<DoctorGrade, Integer> visitDurationsInMin, Map<DoctorGrade, Integer> maxConflictTimeCounts) {
+		this.startDayOfWeek = startDayOfWeek;
+		this.endDayOfWeek = endDayOfWeek;
+		this.startWorkingHour = startWorkingHour;
+		this.endWorkingHour = endWorkingHour;
+		this.maxAppointmentCountInDay = maxAppointmentCountInDay;
+		this.earliestAppointmentSearchMode = earliestAppointmentSearchMode;
+		this.conflictCheckMode = conflictCheckMode;
+		this.calendar = calendar;
+		this.visitDurationInMinByGrade = new int[DoctorGrade.values().length];
+		this.visitDurationInMSByGrade = new long[DoctorGrade.values().length];
+		this.maxConflictTimeCountByGrade = new int[DoctorGrade.values().length];
+		for (DoctorGrade grade : DoctorGrade.values()) {
+			int durationInMin = visitDurationsInMin.get(grade);
+			this.visitDurationInMinByGrade[grade.ordinal()] = durationInMin;
+			this.visitDurationInMSByGrade[grade.ordinal()] = durationInMin * MINUTE_IN_MS;
+			this.maxConflictTimeCountByGrade[grade.ordinal()] = maxConflictTimeCounts.get(grade);
+		}
+	}
+
+	public int getVisitDurationInMin(DoctorGrade doctorGrade) {
+		return visitDurationInMinByGrade[doctorGrade.ordinal()];
+	}
+
+	public long getVisitDurationInMS(DoctorGrade doctorGrade) {
+		return visitDurationInMSByGrade[doctorGrade.ordinal()];
+	}
+
+	public int getMaxConflictTimeCount(DoctorGrade doctorGrade) {
+		return maxConflictTimeCountByGrade[doctorGrade.ordinal()];
+	}
+
+	public boolean isBusinessDay(PersianDayOfWeek day) {
+		return day.getValue() >= startDayOfWeek.getValue() && day.getValue() <= endDayOfWeek.getValue();
+	}
+
+	public boolean isBusinessDay(long epochMilli) {
+		return isBusinessDay(calendar.persianDayOfWeek(epochMilli));
+	}
+}
@@ -1,6 +1,13 @@
 package com.assessment.clinic.utli;
 
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.assessment.clinic.model.calendar.PersianDayOfWeek;
 import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.service.appointment.ConflictCheckMode;
+import com.assessment.clinic.service.appointment.EarliestAppointmentSearchMode;
 
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
@@ -10,35 +17,79 @@ public class ConfigProvider {
 
 	private final Environment environment;
 
+	/**
+	 * Read once: day keys of the doctor index, the patient day locks and the booking log are computed in this zone.
+	 */
+	private final ZonedEpochCalendar calendar;
+
+	private volatile BusinessRules businessRules;
+
 	public ConfigProvider(final Environment environment) {
 		this.environment = environment;
+		this.calendar = loadCalendar();
+		this.businessRules = loadBusinessRules();
 	}
 
-	public String getStartDayOfWeek() {
-		return this.environment.getRequiredProperty("start.day.of.week", String.class);
+	/**
+	 * Re-reads the business properties and swaps the {@link BusinessRules} snapshot atomically; called by
+	 * {@link com.assessment.clinic.config.BusinessRulesEndpoint}. Readers holding the previous snapshot keep a
+	 * consistent rule set. The clinic time zone is fixed at startup.
+	 *
+	 * @return the new snapshot
+	 * @throws IllegalStateException when {@code clinic.time.zone} has changed, which needs a restart
+	 */
+	public synchronized BusinessRules refresh() {
+		ZoneId zoneId = loadCalendar().getZoneId();
+		if (!zoneId.equals(calendar.getZoneId())) {
+			throw new IllegalStateException("clinic.time.zone changed from " + calendar.getZoneId() + " to " + zoneId + ", restart to apply it");
+		}
+		BusinessRules refreshed = loadBusinessRules();
+		this.businessRules = refreshed;
+		return refreshed;
 	}
 
-	public String getEndDayOfWeek() {
-		return this.environment.getRequiredProperty("end.day.of.week", String.class);
+	public BusinessRules getBusinessRules() {
+		return this.businessRules;
 	}
 
-	public int getStartWorkingHour() {
-		return this.environment.getRequiredProperty("start.hour.of.visit", Integer.class);
+	public int getAppointmentDurationMinByDoctorGrade(DoctorGrade doctorGrade){
+		return this.businessRules.getVisitDurationInMin(doctorGrade);
 	}
 
-	public int getEndWorkingHour() {
-		return this.environment.getRequiredProperty("end.hour.of.visit", Integer.class);
+	public int getValidConflictTimeCountByDoctorGrade(DoctorGrade doctorGrade){
+		return this.businessRules.getMaxConflictTimeCount(doctorGrade);
 	}
 
-	public int getMaxAppointmentCountByDay() {
-		return this.environment.getRequiredProperty("max.appointment.count.in.day", Integer.class);
+	public EarliestAppointmentSearchMode getEarliestAppointmentSearchMode() {
+		return this.businessRules.getEarliestAppointmentSearchMode();
 	}
 
-	public int getAppointmentDurationMinByDoctorGrade(DoctorGrade doctorGrade){
-		return this.environment.getRequiredProperty(doctorGrade.name().toLowerCase() + ".visit.duration.in.min", Integer.class);
+	private ZonedEpochCalendar loadCalendar() {
+		String zoneId = this.environment.getProperty("clinic.time.zone");
+		if (zoneId == null || zoneId.isBlank()) {
+			return ZonedEpochCalendar.systemDefault();
+		}
+		return new ZonedEpochCalendar(ZoneId.of(zoneId));
 	}
 
-	public int getValidConflictTimeCountByDoctorGrade(DoctorGrade doctorGrade){
-		return this.environment.getRequiredProperty(doctorGrade.name().toLowerCase() + ".max.conflict.time.count", Integer.class);
+	private BusinessRules loadBusinessRules() {
+		Map<DoctorGrade, Integer> visitDurationsInMin = new EnumMap<>(DoctorGrade.class);
+		Map<DoctorGrade, Integer> maxConflictTimeCounts = new EnumMap<>(DoctorGrade.class);
+		for (DoctorGrade grade : DoctorGrade.values()) {
+			String prefix = grade.name().toLowerCase();
+			visitDurationsInMin.put(grade, this.environment.getRequiredProperty(prefix + ".visit.duration.in.min", Integer.class));
+			maxConflictTimeCounts.put(grade, this.environment.getRequiredProperty(prefix + ".max.conflict.time.count", Integer.class));
+		}
+		return new BusinessRules(
+				PersianDayOfWeek.fromValue(this.environment.getRequiredProperty("start.day.of.week", String.class)),
+				PersianDayOfWeek.fromValue(this.environment.getRequiredProperty("end.day.of.week", String.class)),
+				this.environment.getRequiredProperty("start.hour.of.visit", Integer.class),
+				this.environment.getRequiredProperty("end.hour.of.visit", Integer.class),
+				this.environment.getRequiredProperty("max.appointment.count.in.day", Integer.class),
+				this.environment.getProperty("earliest.appointment.search.mode", EarliestAppointmentSearchMode.class, EarliestAppointmentSearchMode.BITMAP),
+				this.environment.getProperty("conflict.check.mode", ConflictCheckMode.class, ConflictCheckMode.INDEX),
+				this.calendar,
+				visitDurationsInMin,
+				maxConflictTimeCounts);
 	}
 }
@@ -3,8 +3,6 @@ package com.assessment.clinic.utli;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.util.Calendar;
-import java.util.TimeZone;
 
 public class TimeUtil {
 
@@ -20,23 +18,11 @@ public class TimeUtil {
 		return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
 	}
 
-	public static Long getLastMomentOfDay(Long date) {
-		Calendar calendar = Calendar.getInstance(TimeZone.getDefault());
-		calendar.setTimeInMillis(date);
-		calendar.set(Calendar.HOUR_OF_DAY, calendar.getActualMaximum(Calendar.HOUR_OF_DAY));
-		calendar.set(Calendar.MINUTE, calendar.getActualMaximum(Calendar.MINUTE));
-		calendar.set(Calendar.SECOND, calendar.getActualMaximum(Calendar.SECOND));
-		calendar.set(Calendar.MILLISECOND, calendar.getActualMaximum(Calendar.MILLISECOND));
-		return calendar.getTimeInMillis();
+	public static long getLastMomentOfDay(long date) {
+		return ZonedEpochCalendar.systemDefault().endOfDay(date);
 	}
 
-	public static Long getFirstMomentOfDay(Long date) {
-		Calendar calendar = Calendar.getInstance(TimeZone.getDefault());
-		calendar.setTimeInMillis(date);
-		calendar.set(Calendar.HOUR_OF_DAY, 0);
-		calendar.set(Calendar.MINUTE, 0);
-		calendar.set(Calendar.SECOND, 0);
-		calendar.set(Calendar.MILLISECOND, 0);
-		return calendar.getTimeInMillis();
+	public static long getFirstMomentOfDay(long date) {
+		return ZonedEpochCalendar.systemDefault().startOfDay(date);
 	}
 }
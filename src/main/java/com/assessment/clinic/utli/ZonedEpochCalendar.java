@@ -0,0 +1,156 @@
+package com.assessment.clinic.utli;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+
+import com.assessment.clinic.model.calendar.PersianDayOfWeek;
+
+/**
+ * Calendar arithmetic on epoch milliseconds for one time zone. The zone offset transitions up to
+ * {@link #CACHED_UNTIL_YEAR} are copied into primitive arrays once, so day boundaries, day of week and hour of day
+ * are answered with a binary search and integer arithmetic, without allocating.
+ */
+public final class ZonedEpochCalendar {
+
+	public static final long DAY_IN_MS = 86_400_000L;
+
+	public static final long HOUR_IN_MS = 3_600_000L;
+
+	public static final long MINUTE_IN_MS = 60_000L;
+
+	private static final int CACHED_UNTIL_YEAR = 2100;
+
+	private static final PersianDayOfWeek[] PERSIAN_DAYS = PersianDayOfWeek.values();
+
+	private static final ZonedEpochCalendar SYSTEM_DEFAULT = new ZonedEpochCalendar(ZoneId.systemDefault());
+
+	private final ZoneId zoneId;
+
+	private final ZoneRules rules;
+
+	private final long initialOffset;
+
+	private final long[] transitions;
+
+	private final long[] offsets;
+
+	private final long cachedUntil;
+
+	public ZonedEpochCalendar(ZoneId zoneId) {
+		this.zoneId = zoneId;
+		this.rules = zoneId.getRules();
+		this.initialOffset = rules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L;
+		this.cachedUntil = LocalDateTime.of(CACHED_UNTIL_YEAR, 1, 1, 0, 0).atZone(zoneId).toInstant().toEpochMilli();
+		long[] transitionTimes = new long[16];
+		long[] transitionOffsets = new long[16];
+		int count = 0;
+		ZoneOffsetTransition transition = rules.nextTransition(Instant.EPOCH);
+		while (transition != null && transition.toEpochSecond() * 1000L < cachedUntil) {
+			if (count == transitionTimes.length) {
+				transitionTimes = Arrays.copyOf(transitionTimes, count << 1);
+				transitionOffsets = Arrays.copyOf(transitionOffsets, count << 1);
+			}
+			transitionTimes[count] = transition.toEpochSecond() * 1000L;
+			transitionOffsets[count] = transition.getOffsetAfter().getTotalSeconds() * 1000L;
+			count++;
+			transition = rules.nextTransition(transition.getInstant());
+		}
+		this.transitions = Arrays.copyOf(transitionTimes, count);
+		this.offsets = Arrays.copyOf(transitionOffsets, count);
+	}
+
+	public static ZonedEpochCalendar systemDefault() {
+		return SYSTEM_DEFAULT;
+	}
+
+	public ZoneId getZoneId() {
+		return zoneId;
+	}
+
+	/**
+	 * @return offset from UTC in milliseconds in effect at {@code epochMilli}
+	 */
+	public long offsetAt(long epochMilli) {
+		if (epochMilli >= cachedUntil || epochMilli < 0) {
+			return rules.getOffset(Instant.ofEpochMilli(epochMilli)).getTotalSeconds() * 1000L;
+		}
+		int low = 0;
+		int high = transitions.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (transitions[mid] <= epochMilli) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low == 0 ? initialOffset : offsets[low - 1];
+	}
+
+	public long startOfDay(long epochMilli) {
+		long localDayStart = Math.floorDiv(toLocal(epochMilli), DAY_IN_MS) * DAY_IN_MS;
+		return toEpochMilli(localDayStart, offsetAt(epochMilli));
+	}
+
+	public long endOfDay(long epochMilli) {
+		long nextLocalDayStart = Math.floorDiv(toLocal(epochMilli), DAY_IN_MS) * DAY_IN_MS + DAY_IN_MS;
+		return toEpochMilli(nextLocalDayStart, offsetAt(epochMilli)) - 1;
+	}
+
+	public PersianDayOfWeek persianDayOfWeek(long epochMilli) {
+		// the epoch day 0 was a thursday, the sixth day of the persian week
+		long epochDay = Math.floorDiv(toLocal(epochMilli), DAY_IN_MS);
+		return PERSIAN_DAYS[(int) Math.floorMod(epochDay + 5, 7L)];
+	}
+
+	public int hourOfDay(long epochMilli) {
+		return (int) (Math.floorMod(toLocal(epochMilli), DAY_IN_MS) / HOUR_IN_MS);
+	}
+
+	public int minuteOfHour(long epochMilli) {
+		return (int) (Math.floorMod(toLocal(epochMilli), HOUR_IN_MS) / MINUTE_IN_MS);
+	}
+
+	/**
+	 * @return the instant of {@code hour}:00 of the day containing {@code epochMilli}
+	 */
+	public long atHourOfDay(long epochMilli, int hour) {
+		long localDayStart = Math.floorDiv(toLocal(epochMilli), DAY_IN_MS) * DAY_IN_MS;
+		return toEpochMilli(localDayStart + hour * HOUR_IN_MS, offsetAt(epochMilli));
+	}
+
+	/**
+	 * @return the same local time {@code days} days later, which is not always {@code days * DAY_IN_MS} later when an
+	 * offset transition lies in between
+	 */
+	public long plusDays(long epochMilli, int days) {
+		return toEpochMilli(toLocal(epochMilli) + days * DAY_IN_MS, offsetAt(epochMilli));
+	}
+
+	public LocalDateTime toLocalDateTime(long epochMilli) {
+		return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), zoneId);
+	}
+
+	private long toLocal(long epochMilli) {
+		return epochMilli + offsetAt(epochMilli);
+	}
+
+	/**
+	 * Converts a local time to an instant, starting from the offset of a nearby instant. A second lookup corrects the
+	 * offset when a transition lies in between; in a gap the local time does not exist and the instant after the
+	 * transition is returned.
+	 */
+	private long toEpochMilli(long localMilli, long nearbyOffset) {
+		long candidate = localMilli - nearbyOffset;
+		long offset = offsetAt(candidate);
+		if (offset == nearbyOffset) {
+			return candidate;
+		}
+		long corrected = localMilli - offset;
+		return offsetAt(corrected) == offset ? corrected : Math.max(candidate, corrected);
+	}
+}
@@ -0,0 +1,158 @@
+package com.assessment.appointment.controller.appointment;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.assessment.clinic.config.BookingExecutor;
+import com.assessment.clinic.controller.ApiExceptionHandler;
+import com.assessment.clinic.controller.appointment.AppointmentController;
+import com.assessment.clinic.service.appointment.AppointmentService;
+import com.assessment.clinic.service.appointment.dto.CreateNewAppointmentRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.validation.beanvalidation.MethodValidationInterceptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AppointmentControllerTest {
+
+	private static final long TIMEOUT_MS = 200;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private AppointmentService appointmentService;
+
+	private BookingExecutor bookingExecutor;
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		appointmentService = Mockito.mock(AppointmentService.class);
+		bookingExecutor = new BookingExecutor(Executors.newSingleThreadExecutor(), 10, TIMEOUT_MS);
+		// the proxy the method validation post processor puts around the @Validated controller in the application
+		ProxyFactory controller = new ProxyFactory(new AppointmentController(appointmentService, bookingExecutor));
+		controller.setProxyTargetClass(true);
+		controller.addAdvice(new MethodValidationInterceptor());
+		mockMvc = MockMvcBuilders.standaloneSetup(controller.getProxy())
+				.setControllerAdvice(new ApiExceptionHandler())
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		bookingExecutor.shutdown();
+	}
+
+	@Test
+	@DisplayName("setAppointment - valid request - booked on the executor and answered with 201")
+	void setAppointment() throws Exception {
+
+		MvcResult result = mockMvc.perform(post("/appointments").contentType(MediaType.APPLICATION_JSON).content(body(newRequest(1L))))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isCreated());
+		verify(appointmentService).setAppointment(any());
+	}
+
+	@Test
+	@DisplayName("setAppointment - invalid request - rejected with 400 before it is queued")
+	void setAppointment_invalid() throws Exception {
+
+		CreateNewAppointmentRequest request = newRequest(1L);
+		request.setDurationInMin(1);
+
+		mockMvc.perform(post("/appointments").contentType(MediaType.APPLICATION_JSON).content(body(request)))
+				.andExpect(status().isBadRequest());
+		verify(appointmentService, never()).setAppointment(any());
+	}
+
+	@Test
+	@DisplayName("setAppointments - batch larger than the limit - rejected with 400 and nothing booked")
+	void setAppointments_tooLarge() throws Exception {
+
+		String batch = body(Collections.nCopies(101, newRequest(1L)));
+
+		mockMvc.perform(post("/appointments/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.rejectionReason").value("OTHER"));
+		verify(appointmentService, never()).setAppointments(any());
+	}
+
+	@Test
+	@DisplayName("setAppointments - batch with an invalid request - rejected with 400 and nothing booked")
+	void setAppointments_invalidRequest() throws Exception {
+
+		CreateNewAppointmentRequest invalid = newRequest(2L);
+		invalid.setAppointmentTime(null);
+
+		mockMvc.perform(post("/appointments/batch").contentType(MediaType.APPLICATION_JSON).content(body(List.of(newRequest(1L), invalid))))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.rejectionReason").value("OTHER"));
+		verify(appointmentService, never()).setAppointments(any());
+	}
+
+	@Test
+	@DisplayName("setAppointment - request timed out while queued - 503 and never booked - timed out while running - 504")
+	void setAppointment_timedOutInQueue() throws Exception {
+
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			release.await();
+			return null;
+		}).when(appointmentService).setAppointment(any());
+
+		MvcResult running = mockMvc.perform(post("/appointments").contentType(MediaType.APPLICATION_JSON).content(body(newRequest(1L))))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		MvcResult queued = mockMvc.perform(post("/appointments").contentType(MediaType.APPLICATION_JSON).content(body(newRequest(2L))))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(queued)).andExpect(status().isServiceUnavailable());
+		mockMvc.perform(asyncDispatch(running))
+				.andExpect(status().isGatewayTimeout())
+				.andExpect(jsonPath("$.statusCode").value(6));
+		release.countDown();
+		// the single booking thread runs tasks in order, so the queued request has been skipped once this one is done
+		assertThat(bookingExecutor.submit(() -> "drained").get(5, TimeUnit.SECONDS)).isEqualTo("drained");
+		verify(appointmentService, times(1)).setAppointment(any());
+	}
+
+	private static CreateNewAppointmentRequest newRequest(long patientId) {
+		CreateNewAppointmentRequest request = new CreateNewAppointmentRequest();
+		request.setDoctorId(1L);
+		request.setPatientId(patientId);
+		request.setDurationInMin(15);
+		request.setAppointmentTime(1686990600000L);
+		return request;
+	}
+
+	private String body(Object value) throws Exception {
+		return objectMapper.writeValueAsString(value);
+	}
+}
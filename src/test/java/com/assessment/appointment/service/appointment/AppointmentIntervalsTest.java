@@ -0,0 +1,120 @@
+package com.assessment.appointment.service.appointment;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import com.assessment.clinic.service.appointment.impl.AppointmentIntervals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AppointmentIntervalsTest {
+
+	private static final int SLOT_COUNT = 120;
+
+	private static final long STEP = 5;
+
+	private static final long DURATION = 15;
+
+	@Test
+	@DisplayName("countOverlapping - closed ranges - touching periods overlap, enclosed and enclosing periods counted")
+	void countOverlapping() {
+
+		AppointmentIntervals intervals = new AppointmentIntervals();
+		intervals.add(10, 20);
+		intervals.add(15, 30);
+		intervals.add(40, 50);
+
+		assertThat(intervals.countOverlapping(0, 9)).isZero();
+		assertThat(intervals.countOverlapping(0, 10)).isEqualTo(1);
+		assertThat(intervals.countOverlapping(20, 20)).isEqualTo(2);
+		assertThat(intervals.countOverlapping(21, 39)).isEqualTo(1);
+		assertThat(intervals.countOverlapping(31, 39)).isZero();
+		assertThat(intervals.countOverlapping(42, 45)).isEqualTo(1);
+		assertThat(intervals.countOverlapping(0, 100)).isEqualTo(3);
+		assertThat(intervals.countOverlapping(50, 60)).isEqualTo(1);
+		assertThat(intervals.countOverlapping(51, 60)).isZero();
+	}
+
+	@Test
+	@DisplayName("remove - known and unknown periods - removes one copy of a known period and ignores unknown ones")
+	void remove() {
+
+		AppointmentIntervals intervals = new AppointmentIntervals();
+		intervals.add(10, 20);
+		intervals.add(10, 20);
+		intervals.add(30, 40);
+
+		intervals.remove(10, 25);
+		intervals.remove(5, 20);
+		assertThat(intervals.size()).isEqualTo(3);
+
+		intervals.remove(10, 20);
+		assertThat(intervals.size()).isEqualTo(2);
+		assertThat(intervals.countOverlapping(15, 15)).isEqualTo(1);
+
+		intervals.remove(30, 40);
+		intervals.remove(30, 40);
+		assertThat(intervals.size()).isEqualTo(1);
+		assertThat(intervals.countOverlapping(30, 40)).isZero();
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {0, 1, 2})
+	@DisplayName("clearSaturated - fixed periods - clears exactly the slots overlapping the limit or more")
+	void clearSaturated(int maxOverlapping) {
+
+		AppointmentIntervals intervals = new AppointmentIntervals();
+		intervals.add(100, 130);
+		intervals.add(120, 150);
+		intervals.add(200, 215);
+
+		assertMatchesCount(intervals, maxOverlapping);
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {0, 1, 2})
+	@DisplayName("clearSaturated - periods added and removed after the first search - blocked ranges follow every change")
+	void clearSaturated_incremental(int maxOverlapping) {
+
+		Random random = new Random(maxOverlapping);
+		AppointmentIntervals intervals = new AppointmentIntervals();
+		List<long[]> periods = new ArrayList<>();
+		assertMatchesCount(intervals, maxOverlapping);
+
+		for (int i = 0; i < 400; i++) {
+			if (!periods.isEmpty() && random.nextInt(3) == 0) {
+				long[] period = periods.remove(random.nextInt(periods.size()));
+				intervals.remove(period[0], period[1]);
+			} else {
+				long start = random.nextInt((int) (SLOT_COUNT * STEP));
+				long[] period = {start, start + 1 + random.nextInt(40)};
+				periods.add(period);
+				intervals.add(period[0], period[1]);
+			}
+			assertMatchesCount(intervals, maxOverlapping);
+		}
+	}
+
+	/**
+	 * Compares {@link AppointmentIntervals#clearSaturated} with a {@link AppointmentIntervals#countOverlapping} per slot.
+	 */
+	private static void assertMatchesCount(AppointmentIntervals intervals, int maxOverlapping) {
+		BitSet slots = new BitSet(SLOT_COUNT);
+		slots.set(0, SLOT_COUNT);
+		intervals.clearSaturated(slots, SLOT_COUNT, 0, STEP, DURATION, maxOverlapping);
+
+		BitSet expected = new BitSet(SLOT_COUNT);
+		for (int i = 0; i < SLOT_COUNT; i++) {
+			if (intervals.countOverlapping(i * STEP, i * STEP + DURATION) < maxOverlapping) {
+				expected.set(i);
+			}
+		}
+		assertThat(slots).isEqualTo(expected);
+	}
+}
@@ -0,0 +1,56 @@
+package com.assessment.appointment.service.appointment;
+
+import java.util.List;
+import java.util.Map;
+
+import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.service.appointment.impl.AppointmentMetrics;
+import com.assessment.clinic.service.doctor.dto.DoctorSchedule;
+import com.assessment.clinic.service.doctor.impl.DoctorScheduleCache;
+import com.assessment.clinic.service.patient.impl.KnownPatientCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AppointmentMetricsTest {
+
+	@Test
+	@DisplayName("cache meters - doctor schedule and known patient caches - hits, misses, size and hit ratio read when scraped")
+	void cacheMeters() {
+
+		MeterRegistry registry = new SimpleMeterRegistry();
+		DoctorScheduleCache doctorScheduleCache = new DoctorScheduleCache();
+		KnownPatientCache knownPatientCache = new KnownPatientCache();
+		StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("meterRegistry", registry,
+				"doctorScheduleCache", doctorScheduleCache, "knownPatientCache", knownPatientCache));
+		new AppointmentMetrics(beans.getBeanProvider(MeterRegistry.class), beans.getBeanProvider(DoctorScheduleCache.class),
+				beans.getBeanProvider(KnownPatientCache.class));
+
+		Doctor doctor = new Doctor();
+		doctor.setId(1L);
+		doctor.setGrade(DoctorGrade.GENERAL);
+		doctor.setPresences(List.of());
+		DoctorSchedule schedule = DoctorSchedule.of(doctor);
+		doctorScheduleCache.get(1L, doctorId -> schedule);
+		doctorScheduleCache.get(1L, doctorId -> schedule);
+		doctorScheduleCache.get(1L, doctorId -> schedule);
+		knownPatientCache.contains(7L);
+		knownPatientCache.add(7L);
+		knownPatientCache.contains(7L);
+
+		assertThat(registry.get("cache.gets").tags("cache", "doctorSchedules", "result", "hit").functionCounter().count()).isEqualTo(2);
+		assertThat(registry.get("cache.gets").tags("cache", "doctorSchedules", "result", "miss").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("cache.evictions").tag("cache", "doctorSchedules").functionCounter().count()).isZero();
+		assertThat(registry.get("cache.size").tag("cache", "doctorSchedules").gauge().value()).isEqualTo(1);
+		assertThat(registry.get("cache.hit.ratio").tag("cache", "doctorSchedules").gauge().value()).isEqualTo(2 / 3.0);
+		assertThat(registry.get("cache.gets").tags("cache", "knownPatients", "result", "hit").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("cache.gets").tags("cache", "knownPatients", "result", "miss").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("cache.hit.ratio").tag("cache", "knownPatients").gauge().value()).isEqualTo(0.5);
+	}
+}
@@ -1,25 +1,53 @@
 package com.assessment.appointment.service.appointment;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import com.assessment.clinic.exception.BusinessException;
+import com.assessment.clinic.exception.ResultStatus;
 import com.assessment.clinic.model.appointment.Appointment;
+import com.assessment.clinic.model.appointment.AppointmentBooking;
 import com.assessment.clinic.model.appointment.AppointmentDao;
+import com.assessment.clinic.model.appointment.AppointmentPeriod;
+import com.assessment.clinic.model.calendar.PersianDayOfWeek;
 import com.assessment.clinic.model.calendar.Presence;
 import com.assessment.clinic.model.doctor.Doctor;
 import com.assessment.clinic.model.doctor.DoctorGrade;
 import com.assessment.clinic.model.patient.Patient;
+import com.assessment.clinic.service.appointment.SeriesBookingMode;
+import com.assessment.clinic.service.appointment.dto.AppointmentResult;
+import com.assessment.clinic.service.appointment.dto.AvailableSlot;
+import com.assessment.clinic.service.appointment.dto.BookedAppointment;
+import com.assessment.clinic.service.appointment.dto.CreateAppointmentSeriesRequest;
+import com.assessment.clinic.service.appointment.dto.CreateAutoAppointmentByGradeRequest;
 import com.assessment.clinic.service.appointment.dto.CreateAutoAppointmentRequest;
 import com.assessment.clinic.service.appointment.dto.CreateNewAppointmentRequest;
+import com.assessment.clinic.service.appointment.dto.RecurrenceRule;
+import com.assessment.clinic.service.appointment.dto.SeriesOccurrenceResult;
 import com.assessment.clinic.service.appointment.impl.AppointmentServiceImpl;
+import com.assessment.clinic.service.appointment.impl.DoctorAppointmentIndex;
 import com.assessment.clinic.service.doctor.DoctorService;
+import com.assessment.clinic.service.doctor.dto.DoctorSchedule;
 import com.assessment.clinic.service.patient.PatientService;
 import com.assessment.clinic.utli.ConfigProvider;
 import com.assessment.clinic.utli.TimeUtil;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -29,10 +57,17 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -43,7 +78,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(SpringExtension.class)
-@Import({ AppointmentServiceImpl.class, ConfigProvider.class })
+@Import({ AppointmentServiceImpl.class, ConfigProvider.class, AppointmentServiceTest.FixedClock.class })
 @ComponentScan(basePackages = { "com.assessment.clinic.service.appointment.mapper", "com.assessment.clinic.service.appointment.impl" })
 @TestPropertySource(locations = { "classpath:application-test.properties" })
 class AppointmentServiceTest {
@@ -51,6 +86,15 @@ class AppointmentServiceTest {
 	@Autowired
 	private AppointmentServiceImpl service;
 
+	@Autowired
+	private DoctorAppointmentIndex doctorAppointmentIndex;
+
+	@Autowired
+	private ConfigProvider configProvider;
+
+	@Autowired
+	private ConfigurableEnvironment environment;
+
 	@MockBean
 	private DoctorService doctorService;
 
@@ -75,6 +119,11 @@ class AppointmentServiceTest {
 		doctor.setPresences(createDoctorPresence(doctor));
 	}
 
+	@BeforeEach
+	void clearIndex() {
+		doctorAppointmentIndex.clear();
+	}
+
 	@Test
 	@DisplayName("setAppointment - doctor is general - day is in business day - hour is in working hours - Success")
 	void setAppointment_success_1() throws BusinessException {
@@ -86,21 +135,22 @@ class AppointmentServiceTest {
 		Patient patient = createPatient(request.getPatientId());
 		doctor.setGrade(DoctorGrade.GENERAL);
 
-		Mockito.doReturn(patient).when(this.patientService).getPatientById(request.getPatientId());
-		Mockito.doReturn(doctor).when(this.doctorService).getDoctorById(request.getDoctorId());
-		Mockito.doReturn(null).when(this.appointmentDao).getAllByPatientAndStartTimeBetween(patient,
+		Mockito.doReturn(patient).when(this.patientService).getPatientReference(request.getPatientId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
+		Mockito.doReturn(null).when(this.appointmentDao).getPeriodsByPatientIdAndStartTimeBetween(patient.getId(),
 				TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
-		Mockito.doReturn(null).when(this.appointmentDao).getAllByDoctorAndStartTimeBetween(doctor,
+		Mockito.doReturn(null).when(this.appointmentDao).getPeriodsByDoctorIdAndStartTimeBetween(doctor.getId(),
 				TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
 
 		service.setAppointment(request);
 
 		ArgumentCaptor<Appointment> appointmentArgumentCaptor = ArgumentCaptor.forClass(Appointment.class);
 
-		verify(doctorService, times(1)).getDoctorById(1L);
-		verify(patientService, times(1)).getPatientById(1L);
-		verify(appointmentDao, times(1)).getAllByDoctorAndStartTimeBetween(any(), anyLong(), anyLong());
-		verify(appointmentDao, times(1)).getAllByPatientAndStartTimeBetween(any(), anyLong(), anyLong());
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(patientService, times(1)).getPatientReference(1L);
+		verify(appointmentDao, times(1)).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(1)).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
 		verify(appointmentDao, times(1)).save(appointmentArgumentCaptor.capture());
 
 		Appointment appointment = appointmentArgumentCaptor.getValue();
@@ -122,21 +172,22 @@ class AppointmentServiceTest {
 		Patient patient = createPatient(request.getPatientId());
 		doctor.setGrade(DoctorGrade.SPECIALIST);
 
-		Mockito.doReturn(patient).when(this.patientService).getPatientById(request.getPatientId());
-		Mockito.doReturn(doctor).when(this.doctorService).getDoctorById(request.getDoctorId());
-		Mockito.doReturn(null).when(this.appointmentDao).getAllByPatientAndStartTimeBetween(patient,
+		Mockito.doReturn(patient).when(this.patientService).getPatientReference(request.getPatientId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
+		Mockito.doReturn(null).when(this.appointmentDao).getPeriodsByPatientIdAndStartTimeBetween(patient.getId(),
 				TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
-		Mockito.doReturn(null).when(this.appointmentDao).getAllByDoctorAndStartTimeBetween(doctor,
+		Mockito.doReturn(null).when(this.appointmentDao).getPeriodsByDoctorIdAndStartTimeBetween(doctor.getId(),
 				TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
 
 		service.setAppointment(request);
 
 		ArgumentCaptor<Appointment> appointmentArgumentCaptor = ArgumentCaptor.forClass(Appointment.class);
 
-		verify(doctorService, times(1)).getDoctorById(1L);
-		verify(patientService, times(1)).getPatientById(1L);
-		verify(appointmentDao, times(1)).getAllByDoctorAndStartTimeBetween(any(), anyLong(), anyLong());
-		verify(appointmentDao, times(1)).getAllByPatientAndStartTimeBetween(any(), anyLong(), anyLong());
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(patientService, times(1)).getPatientReference(1L);
+		verify(appointmentDao, times(1)).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(1)).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
 		verify(appointmentDao, times(1)).save(appointmentArgumentCaptor.capture());
 
 		Appointment appointment = appointmentArgumentCaptor.getValue();
@@ -159,22 +210,23 @@ class AppointmentServiceTest {
 		Patient patient = createPatient(request.getPatientId());
 		doctor.setGrade(DoctorGrade.SPECIALIST);
 
-		Mockito.doReturn(patient).when(this.patientService).getPatientById(request.getPatientId());
-		Mockito.doReturn(doctor).when(this.doctorService).getDoctorById(request.getDoctorId());
-		Mockito.doReturn(null).when(this.appointmentDao).getAllByPatientAndStartTimeBetween(patient,
+		Mockito.doReturn(patient).when(this.patientService).getPatientReference(request.getPatientId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
+		Mockito.doReturn(null).when(this.appointmentDao).getPeriodsByPatientIdAndStartTimeBetween(patient.getId(),
 				TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
-		Mockito.doReturn(List.of(createAppointment(doctor, new Patient(), prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(specialistDuration))))
-				.when(this.appointmentDao).getAllByDoctorAndStartTimeBetween(doctor,
+		Mockito.doReturn(List.of(createAppointmentPeriod(prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(specialistDuration))))
+				.when(this.appointmentDao).getPeriodsByDoctorIdAndStartTimeBetween(doctor.getId(),
 						TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
 
 		service.setAppointment(request);
 
 		ArgumentCaptor<Appointment> appointmentArgumentCaptor = ArgumentCaptor.forClass(Appointment.class);
 
-		verify(doctorService, times(1)).getDoctorById(1L);
-		verify(patientService, times(1)).getPatientById(1L);
-		verify(appointmentDao, times(1)).getAllByDoctorAndStartTimeBetween(any(), anyLong(), anyLong());
-		verify(appointmentDao, times(1)).getAllByPatientAndStartTimeBetween(any(), anyLong(), anyLong());
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(patientService, times(1)).getPatientReference(1L);
+		verify(appointmentDao, times(1)).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(1)).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
 		verify(appointmentDao, times(1)).save(appointmentArgumentCaptor.capture());
 
 		Appointment appointment = appointmentArgumentCaptor.getValue();
@@ -197,21 +249,22 @@ class AppointmentServiceTest {
 		Patient patient = createPatient(request.getPatientId());
 		doctor.setGrade(DoctorGrade.SPECIALIST);
 
-		Mockito.doReturn(patient).when(this.patientService).getPatientById(request.getPatientId());
-		Mockito.doReturn(doctor).when(this.doctorService).getDoctorById(request.getDoctorId());
-		Mockito.doReturn(List.of(createAppointment(doctor, patient, prevPatientAppointmentTime, prevPatientAppointmentTime.plusMinutes(specialistDuration))))
-				.when(this.appointmentDao).getAllByPatientAndStartTimeBetween(patient, TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
-		Mockito.doReturn(null).when(this.appointmentDao).getAllByDoctorAndStartTimeBetween(doctor,
+		Mockito.doReturn(patient).when(this.patientService).getPatientReference(request.getPatientId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
+		Mockito.doReturn(List.of(createAppointmentPeriod(prevPatientAppointmentTime, prevPatientAppointmentTime.plusMinutes(specialistDuration))))
+				.when(this.appointmentDao).getPeriodsByPatientIdAndStartTimeBetween(patient.getId(), TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
+		Mockito.doReturn(null).when(this.appointmentDao).getPeriodsByDoctorIdAndStartTimeBetween(doctor.getId(),
 				TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
 
 		service.setAppointment(request);
 
 		ArgumentCaptor<Appointment> appointmentArgumentCaptor = ArgumentCaptor.forClass(Appointment.class);
 
-		verify(doctorService, times(1)).getDoctorById(1L);
-		verify(patientService, times(1)).getPatientById(1L);
-		verify(appointmentDao, times(1)).getAllByDoctorAndStartTimeBetween(any(), anyLong(), anyLong());
-		verify(appointmentDao, times(1)).getAllByPatientAndStartTimeBetween(any(), anyLong(), anyLong());
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(patientService, times(1)).getPatientReference(1L);
+		verify(appointmentDao, times(1)).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(1)).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
 		verify(appointmentDao, times(1)).save(appointmentArgumentCaptor.capture());
 
 		Appointment appointment = appointmentArgumentCaptor.getValue();
@@ -231,7 +284,8 @@ class AppointmentServiceTest {
 		CreateNewAppointmentRequest request = makeCreateNewAppointmentRequest(startTime, generalDuration);
 		doctor.setGrade(DoctorGrade.GENERAL);
 
-		Mockito.doReturn(doctor).when(this.doctorService).getDoctorById(request.getDoctorId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
 
 		BusinessException exception = Assertions.assertThrows(BusinessException.class, () -> service.setAppointment(request));
 
@@ -239,10 +293,10 @@ class AppointmentServiceTest {
 		String actualMessage = exception.getMessage();
 		Assertions.assertTrue(actualMessage.contains(expectedMessage));
 
-		verify(doctorService, times(1)).getDoctorById(1L);
-		verify(patientService, never()).getPatientById(1L);
-		verify(appointmentDao, never()).getAllByDoctorAndStartTimeBetween(any(), anyLong(), anyLong());
-		verify(appointmentDao, never()).getAllByPatientAndStartTimeBetween(any(), anyLong(), anyLong());
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(patientService, never()).getPatientReference(1L);
+		verify(appointmentDao, never()).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, never()).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
 		verify(appointmentDao, never()).save(any());
 	}
 
@@ -255,7 +309,8 @@ class AppointmentServiceTest {
 		CreateNewAppointmentRequest request = makeCreateNewAppointmentRequest(startTime, generalDuration);
 		doctor.setGrade(DoctorGrade.GENERAL);
 
-		Mockito.doReturn(doctor).when(this.doctorService).getDoctorById(request.getDoctorId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
 
 		BusinessException exception = Assertions.assertThrows(BusinessException.class, () -> service.setAppointment(request));
 
@@ -263,10 +318,10 @@ class AppointmentServiceTest {
 		String actualMessage = exception.getMessage();
 		Assertions.assertTrue(actualMessage.contains(expectedMessage));
 
-		verify(doctorService, times(1)).getDoctorById(1L);
-		verify(patientService, never()).getPatientById(1L);
-		verify(appointmentDao, never()).getAllByDoctorAndStartTimeBetween(any(), anyLong(), anyLong());
-		verify(appointmentDao, never()).getAllByPatientAndStartTimeBetween(any(), anyLong(), anyLong());
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(patientService, never()).getPatientReference(1L);
+		verify(appointmentDao, never()).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, never()).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
 		verify(appointmentDao, never()).save(any());
 	}
 
@@ -279,7 +334,8 @@ class AppointmentServiceTest {
 		CreateNewAppointmentRequest request = makeCreateNewAppointmentRequest(startTime, generalDuration);
 		doctor.setGrade(DoctorGrade.GENERAL);
 
-		Mockito.doReturn(doctor).when(this.doctorService).getDoctorById(request.getDoctorId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
 
 		BusinessException exception = Assertions.assertThrows(BusinessException.class, () -> service.setAppointment(request));
 
@@ -287,10 +343,10 @@ class AppointmentServiceTest {
 		String actualMessage = exception.getMessage();
 		Assertions.assertTrue(actualMessage.contains(expectedMessage));
 
-		verify(doctorService, times(1)).getDoctorById(1L);
-		verify(patientService, never()).getPatientById(1L);
-		verify(appointmentDao, never()).getAllByDoctorAndStartTimeBetween(any(), anyLong(), anyLong());
-		verify(appointmentDao, never()).getAllByPatientAndStartTimeBetween(any(), anyLong(), anyLong());
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(patientService, never()).getPatientReference(1L);
+		verify(appointmentDao, never()).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, never()).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
 		verify(appointmentDao, never()).save(any());
 	}
 
@@ -303,7 +359,8 @@ class AppointmentServiceTest {
 		CreateNewAppointmentRequest request = makeCreateNewAppointmentRequest(startTime, specialistDuration);
 		doctor.setGrade(DoctorGrade.SPECIALIST);
 
-		Mockito.doReturn(doctor).when(this.doctorService).getDoctorById(request.getDoctorId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
 
 		BusinessException exception = Assertions.assertThrows(BusinessException.class, () -> service.setAppointment(request));
 
@@ -311,10 +368,10 @@ class AppointmentServiceTest {
 		String actualMessage = exception.getMessage();
 		Assertions.assertTrue(actualMessage.contains(expectedMessage));
 
-		verify(doctorService, times(1)).getDoctorById(1L);
-		verify(patientService, never()).getPatientById(1L);
-		verify(appointmentDao, never()).getAllByDoctorAndStartTimeBetween(any(), anyLong(), anyLong());
-		verify(appointmentDao, never()).getAllByPatientAndStartTimeBetween(any(), anyLong(), anyLong());
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(patientService, never()).getPatientReference(1L);
+		verify(appointmentDao, never()).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, never()).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
 		verify(appointmentDao, never()).save(any());
 	}
 
@@ -328,16 +385,17 @@ class AppointmentServiceTest {
 		CreateNewAppointmentRequest request = makeCreateNewAppointmentRequest(startTime, generalDuration);
 		doctor.setGrade(DoctorGrade.GENERAL);
 		Patient patient = createPatient(request.getPatientId());
-		Appointment appointment1 = createAppointment(doctor, patient, prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(generalDuration));
-		Appointment appointment2 = createAppointment(doctor, patient, prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(generalDuration));
+		AppointmentPeriod appointment1 = createAppointmentPeriod(prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(generalDuration));
+		AppointmentPeriod appointment2 = createAppointmentPeriod(prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(generalDuration));
 
 
-		Mockito.doReturn(patient).when(this.patientService).getPatientById(request.getPatientId());
-		Mockito.doReturn(doctor).when(this.doctorService).getDoctorById(request.getDoctorId());
+		Mockito.doReturn(patient).when(this.patientService).getPatientReference(request.getPatientId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
 		Mockito.doReturn(null).when(this.appointmentDao).
-				getAllByPatientAndStartTimeBetween(patient, TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
+				getPeriodsByPatientIdAndStartTimeBetween(patient.getId(), TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
 		Mockito.doReturn(List.of(appointment2, appointment1)).when(this.appointmentDao).
-				getAllByDoctorAndStartTimeBetween(doctor, TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
+				getPeriodsByDoctorIdAndStartTimeBetween(doctor.getId(), TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
 
 		BusinessException exception = Assertions.assertThrows(BusinessException.class, () -> service.setAppointment(request));
 
@@ -345,10 +403,10 @@ class AppointmentServiceTest {
 		String actualMessage = exception.getMessage();
 		Assertions.assertTrue(actualMessage.contains(expectedMessage));
 
-		verify(doctorService, times(1)).getDoctorById(1L);
-		verify(patientService, times(1)).getPatientById(1L);
-		verify(appointmentDao, times(1)).getAllByDoctorAndStartTimeBetween(any(), anyLong(), anyLong());
-		verify(appointmentDao, times(1)).getAllByPatientAndStartTimeBetween(any(), anyLong(), anyLong());
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(patientService, times(1)).getPatientReference(1L);
+		verify(appointmentDao, times(1)).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(1)).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
 		verify(appointmentDao, never()).save(any());
 	}
 
@@ -362,17 +420,18 @@ class AppointmentServiceTest {
 		CreateNewAppointmentRequest request = makeCreateNewAppointmentRequest(startTime, specialistDuration);
 		doctor.setGrade(DoctorGrade.SPECIALIST);
 		Patient patient = createPatient(request.getPatientId());
-		Appointment appointment1 = createAppointment(doctor, patient, prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(specialistDuration));
-		Appointment appointment2 = createAppointment(doctor, patient, prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(specialistDuration));
-		Appointment appointment3 = createAppointment(doctor, patient, prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(specialistDuration));
+		AppointmentPeriod appointment1 = createAppointmentPeriod(prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(specialistDuration));
+		AppointmentPeriod appointment2 = createAppointmentPeriod(prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(specialistDuration));
+		AppointmentPeriod appointment3 = createAppointmentPeriod(prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(specialistDuration));
 
 
-		Mockito.doReturn(patient).when(this.patientService).getPatientById(request.getPatientId());
-		Mockito.doReturn(doctor).when(this.doctorService).getDoctorById(request.getDoctorId());
+		Mockito.doReturn(patient).when(this.patientService).getPatientReference(request.getPatientId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
 		Mockito.doReturn(null).when(this.appointmentDao).
-				getAllByPatientAndStartTimeBetween(patient, TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
+				getPeriodsByPatientIdAndStartTimeBetween(patient.getId(), TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
 		Mockito.doReturn(List.of(appointment2, appointment1, appointment3)).when(this.appointmentDao).
-				getAllByDoctorAndStartTimeBetween(doctor, TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
+				getPeriodsByDoctorIdAndStartTimeBetween(doctor.getId(), TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
 
 		BusinessException exception = Assertions.assertThrows(BusinessException.class, () -> service.setAppointment(request));
 
@@ -380,10 +439,10 @@ class AppointmentServiceTest {
 		String actualMessage = exception.getMessage();
 		Assertions.assertTrue(actualMessage.contains(expectedMessage));
 
-		verify(doctorService, times(1)).getDoctorById(1L);
-		verify(patientService, times(1)).getPatientById(1L);
-		verify(appointmentDao, times(1)).getAllByDoctorAndStartTimeBetween(any(), anyLong(), anyLong());
-		verify(appointmentDao, times(1)).getAllByPatientAndStartTimeBetween(any(), anyLong(), anyLong());
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(patientService, times(1)).getPatientReference(1L);
+		verify(appointmentDao, times(1)).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(1)).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
 		verify(appointmentDao, never()).save(any());
 	}
 
@@ -397,14 +456,15 @@ class AppointmentServiceTest {
 		CreateNewAppointmentRequest request = makeCreateNewAppointmentRequest(startTime, specialistDuration);
 		doctor.setGrade(DoctorGrade.SPECIALIST);
 		Patient patient = createPatient(request.getPatientId());
-		Appointment appointment1 = createAppointment(doctor, patient, prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(specialistDuration));
-		Appointment appointment2 = createAppointment(doctor, patient, prevDoctorAppointmentTime.plusHours(1), prevDoctorAppointmentTime.plusHours(1).plusMinutes(specialistDuration));
+		AppointmentPeriod appointment1 = createAppointmentPeriod(prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(specialistDuration));
+		AppointmentPeriod appointment2 = createAppointmentPeriod(prevDoctorAppointmentTime.plusHours(1), prevDoctorAppointmentTime.plusHours(1).plusMinutes(specialistDuration));
 
 
-		Mockito.doReturn(patient).when(this.patientService).getPatientById(request.getPatientId());
-		Mockito.doReturn(doctor).when(this.doctorService).getDoctorById(request.getDoctorId());
+		Mockito.doReturn(patient).when(this.patientService).getPatientReference(request.getPatientId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
 		Mockito.doReturn(List.of(appointment2, appointment1)).when(this.appointmentDao).
-				getAllByPatientAndStartTimeBetween(patient, TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
+				getPeriodsByPatientIdAndStartTimeBetween(patient.getId(), TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
 
 		BusinessException exception = Assertions.assertThrows(BusinessException.class, () -> service.setAppointment(request));
 
@@ -412,10 +472,10 @@ class AppointmentServiceTest {
 		String actualMessage = exception.getMessage();
 		Assertions.assertTrue(actualMessage.contains(expectedMessage));
 
-		verify(doctorService, times(1)).getDoctorById(1L);
-		verify(patientService, times(1)).getPatientById(1L);
-		verify(appointmentDao, never()).getAllByDoctorAndStartTimeBetween(any(), anyLong(), anyLong());
-		verify(appointmentDao, times(1)).getAllByPatientAndStartTimeBetween(any(), anyLong(), anyLong());
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(patientService, times(1)).getPatientReference(1L);
+		verify(appointmentDao, never()).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(1)).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
 		verify(appointmentDao, never()).save(any());
 	}
 
@@ -429,13 +489,14 @@ class AppointmentServiceTest {
 		CreateNewAppointmentRequest request = makeCreateNewAppointmentRequest(startTime, specialistDuration);
 		doctor.setGrade(DoctorGrade.SPECIALIST);
 		Patient patient = createPatient(request.getPatientId());
-		Appointment appointment1 = createAppointment(doctor, patient, prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(specialistDuration));
+		AppointmentPeriod appointment1 = createAppointmentPeriod(prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(specialistDuration));
 
 
-		Mockito.doReturn(patient).when(this.patientService).getPatientById(request.getPatientId());
-		Mockito.doReturn(doctor).when(this.doctorService).getDoctorById(request.getDoctorId());
+		Mockito.doReturn(patient).when(this.patientService).getPatientReference(request.getPatientId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
 		Mockito.doReturn(List.of(appointment1)).when(this.appointmentDao).
-				getAllByPatientAndStartTimeBetween(patient, TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
+				getPeriodsByPatientIdAndStartTimeBetween(patient.getId(), TimeUtil.getFirstMomentOfDay(startTime), TimeUtil.getLastMomentOfDay(startTime));
 
 		BusinessException exception = Assertions.assertThrows(BusinessException.class, () -> service.setAppointment(request));
 
@@ -443,10 +504,10 @@ class AppointmentServiceTest {
 		String actualMessage = exception.getMessage();
 		Assertions.assertTrue(actualMessage.contains(expectedMessage));
 
-		verify(doctorService, times(1)).getDoctorById(1L);
-		verify(patientService, times(1)).getPatientById(1L);
-		verify(appointmentDao, never()).getAllByDoctorAndStartTimeBetween(any(), anyLong(), anyLong());
-		verify(appointmentDao, times(1)).getAllByPatientAndStartTimeBetween(any(), anyLong(), anyLong());
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(patientService, times(1)).getPatientReference(1L);
+		verify(appointmentDao, never()).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(1)).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
 		verify(appointmentDao, never()).save(any());
 	}
 
@@ -459,7 +520,8 @@ class AppointmentServiceTest {
 		CreateNewAppointmentRequest request = makeCreateNewAppointmentRequest(startTime, specialistDuration);
 		doctor.setGrade(DoctorGrade.SPECIALIST);
 
-		Mockito.doReturn(doctor).when(this.doctorService).getDoctorById(request.getDoctorId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
 
 		BusinessException exception = Assertions.assertThrows(BusinessException.class, () -> service.setAppointment(request));
 
@@ -467,10 +529,10 @@ class AppointmentServiceTest {
 		String actualMessage = exception.getMessage();
 		Assertions.assertTrue(actualMessage.contains(expectedMessage));
 
-		verify(doctorService, times(1)).getDoctorById(1L);
-		verify(patientService, never()).getPatientById(1L);
-		verify(appointmentDao, never()).getAllByDoctorAndStartTimeBetween(any(), anyLong(), anyLong());
-		verify(appointmentDao, never()).getAllByPatientAndStartTimeBetween(any(), anyLong(), anyLong());
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(patientService, never()).getPatientReference(1L);
+		verify(appointmentDao, never()).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, never()).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
 		verify(appointmentDao, never()).save(any());
 	}
 
@@ -485,19 +547,20 @@ class AppointmentServiceTest {
 		Patient patient = createPatient(request.getPatientId());
 		doctor.setGrade(DoctorGrade.GENERAL);
 
-		Mockito.doReturn(patient).when(this.patientService).getPatientById(request.getPatientId());
-		Mockito.doReturn(doctor).when(this.doctorService).getDoctorById(request.getDoctorId());
-		Mockito.when(this.appointmentDao.getAllByPatientAndStartTimeBetween(eq(patient), anyLong(), anyLong())).thenReturn(new ArrayList<>());
-		Mockito.when(this.appointmentDao.getAllByDoctorAndStartTimeBetween(eq(doctor), anyLong(), anyLong())).thenReturn(new ArrayList<>());
+		Mockito.doReturn(patient).when(this.patientService).getPatientReference(request.getPatientId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
+		Mockito.when(this.appointmentDao.getPeriodsByPatientIdAndStartTimeBetween(eq(patient.getId()), anyLong(), anyLong())).thenReturn(new ArrayList<>());
+		Mockito.when(this.appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(eq(doctor.getId()), anyLong(), anyLong())).thenReturn(new ArrayList<>());
 
 		service.setEarliestAppointment(request);
 
 		ArgumentCaptor<Appointment> appointmentArgumentCaptor = ArgumentCaptor.forClass(Appointment.class);
 
-		verify(doctorService, times(1)).getDoctorById(1L);
-		verify(patientService, times(1)).getPatientById(1L);
-		verify(appointmentDao, times(1)).getAllByDoctorAndStartTimeBetween(any(), anyLong(), anyLong());
-		verify(appointmentDao, times(1)).getAllByPatientAndStartTimeBetween(any(), anyLong(), anyLong());
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(patientService, times(1)).getPatientReference(1L);
+		verify(appointmentDao, times(1)).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(1)).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
 		verify(appointmentDao, times(1)).save(appointmentArgumentCaptor.capture());
 
 		Appointment appointment = appointmentArgumentCaptor.getValue();
@@ -508,6 +571,577 @@ class AppointmentServiceTest {
 		assertThat(appointment.getEndTime()).isEqualTo(endTime);
 	}
 
+	@Test
+	@DisplayName("setEarliestAppointment - doctor is general - first slot reached max doctor conflict - next free slot is taken - Success")
+	void setEarliestAppointment_success_2() throws BusinessException {
+
+		LocalDateTime prevDoctorAppointmentTime = LocalDateTime.of(2023, 6, 17, 12, 0);
+		LocalDateTime appointmentTime = LocalDateTime.of(2023, 6, 17, 12, 30);
+		long startTime = TimeUtil.toEpochMilli(appointmentTime);
+		CreateAutoAppointmentRequest request = makeCreateAutoAppointmentRequest(generalDuration);
+		long endTime = startTime + (generalDuration * 60000);
+		Patient patient = createPatient(request.getPatientId());
+		doctor.setGrade(DoctorGrade.GENERAL);
+		AppointmentPeriod appointment1 = createAppointmentPeriod(prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(generalDuration));
+		AppointmentPeriod appointment2 = createAppointmentPeriod(prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(generalDuration));
+
+		Mockito.doReturn(patient).when(this.patientService).getPatientReference(request.getPatientId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(request.getDoctorId());
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(request.getDoctorId());
+		Mockito.when(this.appointmentDao.getPeriodsByPatientIdAndStartTimeBetween(eq(patient.getId()), anyLong(), anyLong())).thenReturn(new ArrayList<>());
+		Mockito.when(this.appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(eq(doctor.getId()), anyLong(), anyLong())).thenReturn(List.of(appointment1, appointment2));
+
+		service.setEarliestAppointment(request);
+
+		ArgumentCaptor<Appointment> appointmentArgumentCaptor = ArgumentCaptor.forClass(Appointment.class);
+
+		verify(appointmentDao, times(1)).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(1)).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(1)).save(appointmentArgumentCaptor.capture());
+
+		Appointment appointment = appointmentArgumentCaptor.getValue();
+		assertThat(appointment.getStartTime()).isEqualTo(startTime);
+		assertThat(appointment.getEndTime()).isEqualTo(endTime);
+	}
+
+	@Test
+	@DisplayName("setEarliestAppointmentWithAnyDoctor - two general doctors - second doctor starts earlier - Success")
+	void setEarliestAppointmentWithAnyDoctor_success() throws BusinessException {
+
+		LocalDateTime appointmentTime = LocalDateTime.of(2023, 6, 17, 9, 0);
+		long startTime = TimeUtil.toEpochMilli(appointmentTime);
+		Patient patient = createPatient(1L);
+		doctor.setGrade(DoctorGrade.GENERAL);
+		Doctor morningDoctor = createGeneralDoctor(2L);
+		morningDoctor.setPresences(List.of(createDoctorPresence(morningDoctor, startTime, TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 17, 12, 0)))));
+		CreateAutoAppointmentByGradeRequest request = new CreateAutoAppointmentByGradeRequest();
+		request.setDoctorGrade(DoctorGrade.GENERAL);
+		request.setPatientId(patient.getId());
+		request.setDurationInMin(generalDuration);
+
+		Mockito.doReturn(List.of(1L, 2L)).when(this.doctorService).getDoctorIdsByGrade(DoctorGrade.GENERAL);
+		Mockito.doReturn(patient).when(this.patientService).getPatientReference(patient.getId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(1L);
+		Mockito.doReturn(DoctorSchedule.of(morningDoctor)).when(this.doctorService).getDoctorSchedule(2L);
+		Mockito.doReturn(morningDoctor).when(this.doctorService).getDoctorReference(2L);
+		Mockito.when(this.appointmentDao.getPeriodsByPatientIdAndStartTimeBetween(eq(patient.getId()), anyLong(), anyLong())).thenReturn(new ArrayList<>());
+		Mockito.when(this.appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong())).thenReturn(new ArrayList<>());
+
+		BookedAppointment booked = service.setEarliestAppointmentWithAnyDoctor(request);
+
+		ArgumentCaptor<Appointment> appointmentArgumentCaptor = ArgumentCaptor.forClass(Appointment.class);
+		verify(appointmentDao, times(1)).save(appointmentArgumentCaptor.capture());
+
+		assertThat(booked.getDoctorId()).isEqualTo(2L);
+		assertThat(booked.getStartTime()).isEqualTo(startTime);
+		assertThat(appointmentArgumentCaptor.getValue().getDoctor()).isEqualTo(morningDoctor);
+		assertThat(appointmentArgumentCaptor.getValue().getStartTime()).isEqualTo(startTime);
+	}
+
+	@Test
+	@DisplayName("findAvailableSlots - doctor is general - first slot reached max doctor conflict - only free slots of the day - Success")
+	void findAvailableSlots_success() throws BusinessException {
+
+		LocalDateTime prevDoctorAppointmentTime = LocalDateTime.of(2023, 6, 17, 12, 0);
+		long day = TimeUtil.toEpochMilli(prevDoctorAppointmentTime);
+		doctor.setGrade(DoctorGrade.GENERAL);
+		AppointmentPeriod appointment1 = createAppointmentPeriod(prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(generalDuration));
+		AppointmentPeriod appointment2 = createAppointmentPeriod(prevDoctorAppointmentTime, prevDoctorAppointmentTime.plusMinutes(generalDuration));
+
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(1L);
+		Mockito.when(this.appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(eq(doctor.getId()), anyLong(), anyLong())).thenReturn(List.of(appointment1, appointment2));
+
+		List<AvailableSlot> slots = service.findAvailableSlots(1L, day, day, generalDuration).collect(Collectors.toList());
+
+		assertThat(slots).hasSize(22);
+		assertThat(slots.get(0).getStartTime()).isEqualTo(TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 17, 12, 30)));
+		assertThat(slots.get(21).getEndTime()).isEqualTo(TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 17, 18, 0)));
+		verify(appointmentDao, never()).save(any());
+	}
+
+	@Test
+	@DisplayName("setAppointments - three patients at the same time - doctor accepts two - day loaded once - saved in one batch")
+	void setAppointments_partial_success() throws BusinessException {
+
+		LocalDateTime appointmentTime = LocalDateTime.of(2023, 6, 17, 17, 0);
+		long startTime = TimeUtil.toEpochMilli(appointmentTime);
+		doctor.setGrade(DoctorGrade.GENERAL);
+		List<CreateNewAppointmentRequest> requests = new ArrayList<>();
+		for (long patientId = 1; patientId <= 3; patientId++) {
+			CreateNewAppointmentRequest request = makeCreateNewAppointmentRequest(startTime, generalDuration);
+			request.setPatientId(patientId);
+			requests.add(request);
+			Mockito.doReturn(createPatient(patientId)).when(this.patientService).getPatientReference(patientId);
+		}
+
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(1L);
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(1L);
+		Mockito.when(this.appointmentDao.getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong())).thenReturn(new ArrayList<>());
+		Mockito.when(this.appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(eq(doctor.getId()), anyLong(), anyLong())).thenReturn(new ArrayList<>());
+
+		List<AppointmentResult> results = service.setAppointments(requests);
+
+		verify(doctorService, times(1)).getDoctorSchedule(1L);
+		verify(appointmentDao, times(1)).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(3)).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(1)).saveAll(any());
+		verify(appointmentDao, never()).save(any());
+
+		assertThat(results).extracting(AppointmentResult::getIndex).containsExactly(0, 1, 2);
+		assertThat(results).extracting(AppointmentResult::getStatus)
+				.containsExactly(ResultStatus.SUCCESS, ResultStatus.SUCCESS, ResultStatus.VALIDATION_FAILED);
+	}
+
+	@Test
+	@DisplayName("setAppointmentSeries - best effort - weekly on three days - fourth occurrence has no presence - one range query each - saved in one batch")
+	void setAppointmentSeries_best_effort() throws BusinessException {
+
+		long startTime = TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 17, 14, 0));
+		doctor.setGrade(DoctorGrade.GENERAL);
+		Patient patient = createPatient(1L);
+		RecurrenceRule recurrence = new RecurrenceRule();
+		recurrence.setDaysOfWeek(List.of(PersianDayOfWeek.SATURDAY, PersianDayOfWeek.MONDAY, PersianDayOfWeek.WEDNESDAY));
+		recurrence.setOccurrences(4);
+		CreateAppointmentSeriesRequest request = new CreateAppointmentSeriesRequest();
+		request.setDoctorId(1L);
+		request.setPatientId(patient.getId());
+		request.setAppointmentTime(startTime);
+		request.setRecurrence(recurrence);
+		request.setMode(SeriesBookingMode.BEST_EFFORT);
+
+		Mockito.doReturn(patient).when(this.patientService).getPatientReference(patient.getId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(1L);
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(1L);
+		Mockito.when(this.appointmentDao.getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong())).thenReturn(new ArrayList<>());
+		Mockito.when(this.appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong())).thenReturn(new ArrayList<>());
+
+		List<SeriesOccurrenceResult> results = service.setAppointmentSeries(request);
+
+		verify(appointmentDao, times(1)).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(1)).getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+		verify(appointmentDao, times(1)).saveAll(any());
+		verify(appointmentDao, never()).save(any());
+
+		assertThat(results).extracting(SeriesOccurrenceResult::getAppointmentTime).containsExactly(startTime,
+				TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 19, 14, 0)), TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 21, 14, 0)),
+				TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 24, 14, 0)));
+		assertThat(results).extracting(SeriesOccurrenceResult::getStatus)
+				.containsExactly(ResultStatus.SUCCESS, ResultStatus.SUCCESS, ResultStatus.SUCCESS, ResultStatus.VALIDATION_FAILED);
+	}
+
+	@Test
+	@DisplayName("rescheduleAppointment - doctor day at max conflict with the appointment itself - moved, then cancelled - index updated in place")
+	void rescheduleAppointment_then_cancelAppointment_success() throws BusinessException {
+
+		long startTime = TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 17, 12, 0));
+		long endTime = startTime + (generalDuration * 60000);
+		long newStartTime = TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 17, 12, 5));
+		long newEndTime = newStartTime + (generalDuration * 60000);
+		doctor.setGrade(DoctorGrade.GENERAL);
+		Patient patient = createPatient(1L);
+		AppointmentPeriod appointment = new AppointmentPeriod(7L, startTime, endTime);
+		AppointmentPeriod otherAppointment = new AppointmentPeriod(8L, startTime, endTime);
+
+		Mockito.doReturn(patient).when(this.patientService).getPatientReference(patient.getId());
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(1L);
+		Mockito.doReturn(new AppointmentBooking(7L, 1L, patient.getId(), startTime, endTime)).when(this.appointmentDao).findBookingById(7L);
+		Mockito.doReturn(1).when(this.appointmentDao).updateTimesById(7L, newStartTime, newEndTime);
+		Mockito.when(this.appointmentDao.getPeriodsByPatientIdAndStartTimeBetween(eq(patient.getId()), anyLong(), anyLong())).thenReturn(List.of(appointment));
+		Mockito.when(this.appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(eq(doctor.getId()), anyLong(), anyLong()))
+				.thenReturn(List.of(appointment, otherAppointment));
+
+		BookedAppointment moved = service.rescheduleAppointment(7L, newStartTime);
+
+		verify(appointmentDao, times(1)).updateTimesById(7L, newStartTime, newEndTime);
+		assertThat(moved.getStartTime()).isEqualTo(newStartTime);
+		assertThat(moved.getEndTime()).isEqualTo(newEndTime);
+		assertThat(doctorAppointmentIndex.getDayIntervals(1L, startTime).countOverlapping(startTime + 60000, newStartTime - 60000)).isEqualTo(1);
+		assertThat(doctorAppointmentIndex.getDayIntervals(1L, startTime).countOverlapping(endTime + 60000, newEndTime)).isEqualTo(1);
+
+		Mockito.doReturn(new AppointmentBooking(7L, 1L, patient.getId(), newStartTime, newEndTime)).when(this.appointmentDao).findBookingById(7L);
+		Mockito.doReturn(1).when(this.appointmentDao).deleteBookingById(7L);
+
+		service.cancelAppointment(7L);
+
+		verify(appointmentDao, times(1)).deleteBookingById(7L);
+		verify(appointmentDao, never()).save(any());
+		assertThat(doctorAppointmentIndex.getDayIntervals(1L, startTime).countOverlapping(endTime + 60000, newEndTime)).isZero();
+		assertThat(doctorAppointmentIndex.getDayIntervals(1L, startTime).countOverlapping(startTime + 60000, newStartTime - 60000)).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("setAppointment - many patients book the same time in parallel - doctor conflict limit holds")
+	void setAppointment_concurrent() throws Exception {
+
+		LocalDateTime appointmentTime = LocalDateTime.of(2023, 6, 17, 17, 0);
+		long startTime = TimeUtil.toEpochMilli(appointmentTime);
+		doctor.setGrade(DoctorGrade.GENERAL);
+		int threadCount = 8;
+		int requestsPerThread = 50;
+
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(1L);
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(1L);
+		Mockito.when(this.patientService.getPatientReference(anyLong())).thenAnswer(invocation -> createPatient(invocation.getArgument(0)));
+		Mockito.when(this.appointmentDao.getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong())).thenAnswer(invocation -> new ArrayList<>());
+		Mockito.when(this.appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(eq(doctor.getId()), anyLong(), anyLong())).thenReturn(new ArrayList<>());
+		// a slow insert widens the window between the conflict check and the registration of the booking
+		Mockito.when(this.appointmentDao.save(any())).thenAnswer(invocation -> {
+			Thread.sleep(5);
+			return invocation.getArgument(0);
+		});
+
+		AtomicInteger booked = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < threadCount; thread++) {
+				long firstPatientId = 1L + thread * requestsPerThread;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (long patientId = firstPatientId; patientId < firstPatientId + requestsPerThread; patientId++) {
+						CreateNewAppointmentRequest request = makeCreateNewAppointmentRequest(startTime, generalDuration);
+						request.setPatientId(patientId);
+						try {
+							service.setAppointment(request);
+							booked.incrementAndGet();
+						} catch (BusinessException exception) {
+							// the slot is full
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(booked.get()).isEqualTo(2);
+		verify(appointmentDao, times(2)).save(any());
+	}
+
+	@Test
+	@DisplayName("setAppointment - aggregate conflict check - many patients book the same time in parallel - bookings visible only after commit - doctor conflict limit holds")
+	void setAppointment_concurrent_aggregate() throws Exception {
+
+		LocalDateTime appointmentTime = LocalDateTime.of(2023, 6, 17, 17, 0);
+		long startTime = TimeUtil.toEpochMilli(appointmentTime);
+		doctor.setGrade(DoctorGrade.GENERAL);
+		int threadCount = 8;
+		int requestsPerThread = 20;
+		CommitPublishingTransactionManager transactionManager = new CommitPublishingTransactionManager();
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(1L);
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(1L);
+		Mockito.when(this.patientService.getPatientReference(anyLong())).thenAnswer(invocation -> createPatient(invocation.getArgument(0)));
+		Mockito.when(this.appointmentDao.countByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong())).thenReturn(0L);
+		Mockito.when(this.appointmentDao.countConflictingByPatientId(anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(0L);
+		Mockito.when(this.appointmentDao.countOverlappingByDoctorId(eq(doctor.getId()), anyLong(), anyLong(), anyLong()))
+				.thenAnswer(invocation -> (long) transactionManager.committed.get());
+		Mockito.when(this.appointmentDao.save(any())).thenAnswer(invocation -> {
+			transactionManager.pending.set(transactionManager.pending.get() + 1);
+			return invocation.getArgument(0);
+		});
+
+		environment.getPropertySources().addFirst(new MapPropertySource("aggregate", Map.of("conflict.check.mode", "AGGREGATE")));
+		configProvider.refresh();
+		AtomicInteger booked = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < threadCount; thread++) {
+				long firstPatientId = 1L + thread * requestsPerThread;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (long patientId = firstPatientId; patientId < firstPatientId + requestsPerThread; patientId++) {
+						CreateNewAppointmentRequest request = makeCreateNewAppointmentRequest(startTime, generalDuration);
+						request.setPatientId(patientId);
+						try {
+							transaction.executeWithoutResult(status -> {
+								try {
+									service.setAppointment(request);
+								} catch (BusinessException exception) {
+									throw new IllegalStateException(exception);
+								}
+							});
+							booked.incrementAndGet();
+						} catch (IllegalStateException exception) {
+							// the slot is full
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+			environment.getPropertySources().remove("aggregate");
+			configProvider.refresh();
+		}
+
+		assertThat(booked.get()).isEqualTo(2);
+		assertThat(transactionManager.committed.get()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("setAppointment and setAppointments - aggregate conflict check - single and batch bookings of the same time in parallel - bookings visible only after commit - doctor conflict limit holds")
+	void setAppointment_andBatch_concurrent_aggregate() throws Exception {
+
+		LocalDateTime appointmentTime = LocalDateTime.of(2023, 6, 17, 17, 0);
+		long startTime = TimeUtil.toEpochMilli(appointmentTime);
+		doctor.setGrade(DoctorGrade.GENERAL);
+		int threadCount = 8;
+		int requestsPerThread = 20;
+		CommitPublishingTransactionManager transactionManager = new CommitPublishingTransactionManager();
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+		Mockito.doReturn(DoctorSchedule.of(doctor)).when(this.doctorService).getDoctorSchedule(1L);
+		Mockito.doReturn(doctor).when(this.doctorService).getDoctorReference(1L);
+		Mockito.when(this.patientService.getPatientReference(anyLong())).thenAnswer(invocation -> createPatient(invocation.getArgument(0)));
+		Mockito.when(this.appointmentDao.countByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong())).thenReturn(0L);
+		Mockito.when(this.appointmentDao.countConflictingByPatientId(anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(0L);
+		Mockito.when(this.appointmentDao.getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong())).thenAnswer(invocation -> new ArrayList<>());
+		Mockito.when(this.appointmentDao.countOverlappingByDoctorId(eq(doctor.getId()), anyLong(), anyLong(), anyLong()))
+				.thenAnswer(invocation -> (long) transactionManager.committed.get());
+		Mockito.when(this.appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(eq(doctor.getId()), anyLong(), anyLong()))
+				.thenAnswer(invocation -> new ArrayList<>(Collections.nCopies(transactionManager.committed.get(),
+						new AppointmentPeriod(null, startTime, startTime + generalDuration * 60000L))));
+		Mockito.when(this.appointmentDao.save(any())).thenAnswer(invocation -> {
+			transactionManager.pending.set(transactionManager.pending.get() + 1);
+			return invocation.getArgument(0);
+		});
+		Mockito.when(this.appointmentDao.saveAll(any())).thenAnswer(invocation -> {
+			transactionManager.pending.set(transactionManager.pending.get() + invocation.<List<?>>getArgument(0).size());
+			return invocation.getArgument(0);
+		});
+
+		environment.getPropertySources().addFirst(new MapPropertySource("aggregate", Map.of("conflict.check.mode", "AGGREGATE")));
+		configProvider.refresh();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < threadCount; thread++) {
+				long firstPatientId = 1L + thread * requestsPerThread;
+				// a batch checks the doctor against the index, a single booking counts the committed appointments
+				boolean batch = thread % 2 == 0;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (long patientId = firstPatientId; patientId < firstPatientId + requestsPerThread; patientId++) {
+						CreateNewAppointmentRequest request = makeCreateNewAppointmentRequest(startTime, generalDuration);
+						request.setPatientId(patientId);
+						bookInTransaction(transaction, batch ? () -> service.setAppointments(List.of(request)) : () -> service.setAppointment(request));
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+			environment.getPropertySources().remove("aggregate");
+			configProvider.refresh();
+		}
+
+		assertThat(transactionManager.committed.get()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("booking paths - one patient books the same day with five doctors in parallel through single, batch, series, earliest and any doctor - bookings visible only after commit - patient day limit holds")
+	void bookingPaths_concurrent_patientDayLimit() throws Exception {
+
+		int maxAppointmentCountInDay = configProvider.getBusinessRules().getMaxAppointmentCountInDay();
+		long dayStart = TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 17, 0, 0));
+		long dayEnd = TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 18, 0, 0));
+		for (long doctorId = 1; doctorId <= 5; doctorId++) {
+			Doctor pathDoctor = createGeneralDoctor(doctorId);
+			pathDoctor.setPresences(createDoctorPresence(pathDoctor));
+			Mockito.doReturn(DoctorSchedule.of(pathDoctor)).when(this.doctorService).getDoctorSchedule(doctorId);
+			Mockito.doReturn(pathDoctor).when(this.doctorService).getDoctorReference(doctorId);
+		}
+		List<Appointment> committed = new CopyOnWriteArrayList<>();
+		ThreadLocal<List<Appointment>> pending = ThreadLocal.withInitial(ArrayList::new);
+		TransactionTemplate transaction = new TransactionTemplate(new AbstractPlatformTransactionManager() {
+
+			@Override
+			protected Object doGetTransaction() {
+				return new Object();
+			}
+
+			@Override
+			protected void doBegin(Object transaction, TransactionDefinition definition) {
+				pending.get().clear();
+			}
+
+			@Override
+			protected void doCommit(DefaultTransactionStatus status) {
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException exception) {
+					Thread.currentThread().interrupt();
+				}
+				committed.addAll(pending.get());
+				pending.get().clear();
+			}
+
+			@Override
+			protected void doRollback(DefaultTransactionStatus status) {
+				pending.get().clear();
+			}
+		});
+
+		Mockito.when(this.patientService.getPatientReference(anyLong())).thenAnswer(invocation -> createPatient(invocation.getArgument(0)));
+		Mockito.when(this.appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong())).thenAnswer(invocation -> new ArrayList<>());
+		Mockito.when(this.appointmentDao.getPeriodsByPatientIdAndStartTimeBetween(anyLong(), anyLong(), anyLong())).thenAnswer(invocation -> committed.stream()
+				.filter(appointment -> appointment.getPatient().getId().equals(invocation.getArgument(0))
+						&& appointment.getStartTime() >= invocation.<Long>getArgument(1) && appointment.getStartTime() <= invocation.<Long>getArgument(2))
+				.map(appointment -> new AppointmentPeriod(appointment.getId(), appointment.getStartTime(), appointment.getEndTime()))
+				.collect(Collectors.toCollection(ArrayList::new)));
+		Mockito.when(this.appointmentDao.save(any())).thenAnswer(invocation -> {
+			pending.get().add(invocation.getArgument(0));
+			return invocation.getArgument(0);
+		});
+		Mockito.when(this.appointmentDao.saveAll(any())).thenAnswer(invocation -> {
+			pending.get().addAll(invocation.getArgument(0));
+			return invocation.getArgument(0);
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(5);
+		try {
+			for (long patientId = 1; patientId <= 20; patientId++) {
+				doctorAppointmentIndex.clear();
+				CountDownLatch start = new CountDownLatch(1);
+				List<Future<?>> futures = new ArrayList<>();
+				for (Runnable path : bookingPaths(patientId, transaction)) {
+					futures.add(executor.submit(() -> {
+						start.await();
+						path.run();
+						return null;
+					}));
+				}
+				start.countDown();
+				for (Future<?> future : futures) {
+					future.get(30, TimeUnit.SECONDS);
+				}
+
+				long bookedPatientId = patientId;
+				assertThat(committed.stream().filter(appointment -> appointment.getPatient().getId() == bookedPatientId
+						&& appointment.getStartTime() >= dayStart && appointment.getStartTime() < dayEnd)).hasSize(maxAppointmentCountInDay);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * One booking of the patient on 2023-06-17 per path, each with its own doctor and at its own time or the earliest
+	 * free one; the earliest searches move on to later days when the patient day is full.
+	 */
+	private List<Runnable> bookingPaths(long patientId, TransactionTemplate transaction) {
+		CreateNewAppointmentRequest singleRequest = makeCreateNewAppointmentRequest(TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 17, 13, 0)), generalDuration);
+		singleRequest.setPatientId(patientId);
+		CreateNewAppointmentRequest batchRequest = makeCreateNewAppointmentRequest(TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 17, 14, 0)), generalDuration);
+		batchRequest.setDoctorId(2L);
+		batchRequest.setPatientId(patientId);
+		RecurrenceRule recurrence = new RecurrenceRule();
+		recurrence.setOccurrences(1);
+		CreateAppointmentSeriesRequest seriesRequest = new CreateAppointmentSeriesRequest();
+		seriesRequest.setDoctorId(3L);
+		seriesRequest.setPatientId(patientId);
+		seriesRequest.setAppointmentTime(TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 17, 15, 0)));
+		seriesRequest.setRecurrence(recurrence);
+		seriesRequest.setMode(SeriesBookingMode.BEST_EFFORT);
+		CreateAutoAppointmentRequest earliestRequest = makeCreateAutoAppointmentRequest(generalDuration);
+		earliestRequest.setDoctorId(4L);
+		earliestRequest.setPatientId(patientId);
+		CreateAutoAppointmentByGradeRequest anyDoctorRequest = new CreateAutoAppointmentByGradeRequest();
+		anyDoctorRequest.setDoctorIds(List.of(5L));
+		anyDoctorRequest.setPatientId(patientId);
+		anyDoctorRequest.setDurationInMin(generalDuration);
+		return List.of(
+				() -> bookInTransaction(transaction, () -> service.setAppointment(singleRequest)),
+				() -> bookInTransaction(transaction, () -> service.setAppointments(List.of(batchRequest))),
+				() -> bookInTransaction(transaction, () -> service.setAppointmentSeries(seriesRequest)),
+				() -> bookInTransaction(transaction, () -> service.setEarliestAppointment(earliestRequest)),
+				() -> bookInTransaction(transaction, () -> service.setEarliestAppointmentWithAnyDoctor(anyDoctorRequest)));
+	}
+
+	/**
+	 * Books in a transaction of its own, rolled back when the booking is rejected.
+	 */
+	private static void bookInTransaction(TransactionTemplate transaction, Booking booking) {
+		transaction.executeWithoutResult(status -> {
+			try {
+				booking.book();
+			} catch (BusinessException exception) {
+				status.setRollbackOnly();
+			}
+		});
+	}
+
+	private interface Booking {
+
+		void book() throws BusinessException;
+	}
+
+	/**
+	 * Makes the saves of a transaction visible to the count queries only at commit, after a delay that widens the
+	 * window between a booking and its commit, like a database does.
+	 */
+	private static class CommitPublishingTransactionManager extends AbstractPlatformTransactionManager {
+
+		private final ThreadLocal<Integer> pending = ThreadLocal.withInitial(() -> 0);
+
+		private final AtomicInteger committed = new AtomicInteger();
+
+		@Override
+		protected Object doGetTransaction() {
+			return new Object();
+		}
+
+		@Override
+		protected void doBegin(Object transaction, TransactionDefinition definition) {
+			pending.set(0);
+		}
+
+		@Override
+		protected void doCommit(DefaultTransactionStatus status) {
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			}
+			committed.addAndGet(pending.get());
+			pending.set(0);
+		}
+
+		@Override
+		protected void doRollback(DefaultTransactionStatus status) {
+			pending.set(0);
+		}
+	}
+
+	/**
+	 * Pins "now" before the doctor presences of the tests, so they are not skipped as past.
+	 */
+	static class FixedClock {
+
+		@Bean
+		Clock clock() {
+			return Clock.fixed(Instant.ofEpochMilli(TimeUtil.toEpochMilli(LocalDateTime.of(2023, 6, 17, 0, 0))), ZoneId.systemDefault());
+		}
+	}
+
 	private static Doctor createGeneralDoctor(Long doctorId) {
 		Doctor doctor = new Doctor();
 		doctor.setId(doctorId);
@@ -563,13 +1197,7 @@ class AppointmentServiceTest {
 		return request;
 	}
 
-	private Appointment createAppointment(Doctor doctor, Patient patient, LocalDateTime start, LocalDateTime end) {
-		Appointment appointment = new Appointment();
-		appointment.setId(1L);
-		appointment.setDoctor(doctor);
-		appointment.setPatient(patient);
-		appointment.setStartTime(TimeUtil.toEpochMilli(start));
-		appointment.setEndTime(TimeUtil.toEpochMilli(end));
-		return appointment;
+	private AppointmentPeriod createAppointmentPeriod(LocalDateTime start, LocalDateTime end) {
+		return new AppointmentPeriod(1L, TimeUtil.toEpochMilli(start), TimeUtil.toEpochMilli(end));
 	}
 }
@@ -0,0 +1,143 @@
+package com.assessment.appointment.service.appointment;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+import com.assessment.clinic.model.appointment.AppointmentDao;
+import com.assessment.clinic.model.appointment.AppointmentPeriod;
+import com.assessment.clinic.model.appointment.DoctorAppointmentPeriod;
+import com.assessment.clinic.service.appointment.impl.DoctorAppointmentIndex;
+import com.assessment.clinic.utli.ConfigProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class DoctorAppointmentIndexTest {
+
+	private static final ZoneId ZONE = ZoneId.of("Asia/Tehran");
+
+	private static final long MINUTE = 60000L;
+
+	private final long dayStart = LocalDateTime.of(2023, 6, 17, 0, 0).atZone(ZONE).toInstant().toEpochMilli();
+
+	private final long dayEnd = LocalDateTime.of(2023, 6, 18, 0, 0).atZone(ZONE).toInstant().toEpochMilli() - 1;
+
+	private final long preloaded = LocalDateTime.of(2023, 6, 17, 10, 0).atZone(ZONE).toInstant().toEpochMilli();
+
+	private final long booked = LocalDateTime.of(2023, 6, 17, 11, 0).atZone(ZONE).toInstant().toEpochMilli();
+
+	private AppointmentDao appointmentDao;
+
+	private DoctorAppointmentIndex index;
+
+	@BeforeEach
+	void init() {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty("start.day.of.week", "SATURDAY")
+				.withProperty("end.day.of.week", "WEDNESDAY")
+				.withProperty("start.hour.of.visit", "9")
+				.withProperty("end.hour.of.visit", "18")
+				.withProperty("max.appointment.count.in.day", "2")
+				.withProperty("general.visit.duration.in.min", "15")
+				.withProperty("specialist.visit.duration.in.min", "30")
+				.withProperty("general.max.conflict.time.count", "2")
+				.withProperty("specialist.max.conflict.time.count", "3")
+				.withProperty("clinic.time.zone", ZONE.getId());
+		appointmentDao = Mockito.mock(AppointmentDao.class);
+		index = new DoctorAppointmentIndex(appointmentDao, new ConfigProvider(environment), Clock.fixed(Instant.ofEpochMilli(dayStart), ZONE));
+		Mockito.when(appointmentDao.streamDoctorPeriodsByStartTimeBetween(anyLong(), anyLong()))
+				.thenAnswer(invocation -> Stream.of(new DoctorAppointmentPeriod(1L, preloaded, preloaded + 15 * MINUTE),
+						new DoctorAppointmentPeriod(2L, preloaded, preloaded + 15 * MINUTE)));
+		Mockito.when(appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(Mockito.eq(1L), anyLong(), anyLong()))
+				.thenReturn(List.of(new AppointmentPeriod(1L, preloaded, preloaded + 15 * MINUTE), new AppointmentPeriod(2L, booked, booked + 15 * MINUTE)));
+		assertThat(index.getDayLock(1L, preloaded)).isNotSameAs(index.getDayLock(2L, preloaded));
+	}
+
+	@AfterEach
+	void clearSynchronization() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	@DisplayName("preload - booking committed on a day while it is read - that day skipped and loaded on first use - other days kept")
+	void preload_dayChangedWhileReading() {
+
+		Mockito.when(appointmentDao.streamDoctorPeriodsByStartTimeBetween(anyLong(), anyLong())).thenAnswer(invocation -> {
+			index.register(1L, booked, booked + 15 * MINUTE);
+			return Stream.of(new DoctorAppointmentPeriod(1L, preloaded, preloaded + 15 * MINUTE),
+					new DoctorAppointmentPeriod(2L, preloaded, preloaded + 15 * MINUTE));
+		});
+
+		assertThat(index.preload(dayStart, dayEnd)).isEqualTo(1);
+
+		assertThat(index.getDayIntervals(2L, preloaded).size()).isEqualTo(1);
+		verify(appointmentDao, never()).getPeriodsByDoctorIdAndStartTimeBetween(Mockito.eq(2L), anyLong(), anyLong());
+		assertThat(index.getDayIntervals(1L, preloaded).size()).isEqualTo(2);
+		assertThat(index.getDayIntervals(1L, preloaded).countOverlapping(booked, booked)).isEqualTo(1);
+		verify(appointmentDao, times(1)).getPeriodsByDoctorIdAndStartTimeBetween(1L, dayStart, dayEnd);
+	}
+
+	@Test
+	@DisplayName("preload - booking of a day not committed yet - that day skipped until the transaction completes")
+	void preload_bookingInFlight() {
+
+		TransactionSynchronizationManager.initSynchronization();
+		index.register(1L, booked, booked + 15 * MINUTE);
+
+		assertThat(index.preload(dayStart, dayEnd)).isEqualTo(1);
+
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		TransactionSynchronizationManager.clearSynchronization();
+		synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+		assertThat(index.preload(dayStart, dayEnd)).isEqualTo(1);
+		assertThat(index.getDayIntervals(1L, preloaded).size()).isEqualTo(1);
+		verify(appointmentDao, never()).getPeriodsByDoctorIdAndStartTimeBetween(anyLong(), anyLong(), anyLong());
+	}
+
+	@Test
+	@DisplayName("register - transaction rolled back - booking taken out before a day lock released after completion")
+	void register_rolledBack_underDayLock() {
+
+		index.getDayIntervals(1L, booked);
+		TransactionSynchronizationManager.initSynchronization();
+		Lock dayLock = index.getDayLock(1L, booked);
+		dayLock.lock();
+		List<Integer> sizesAtUnlock = new ArrayList<>();
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				sizesAtUnlock.add(index.getDayIntervals(1L, booked).size());
+				dayLock.unlock();
+			}
+		});
+		index.register(1L, booked + 30 * MINUTE, booked + 45 * MINUTE);
+		assertThat(index.getDayIntervals(1L, booked).size()).isEqualTo(3);
+
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		TransactionSynchronizationManager.clearSynchronization();
+		synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+		assertThat(sizesAtUnlock).containsExactly(2);
+	}
+}
@@ -0,0 +1,95 @@
+package com.assessment.appointment.service.appointment;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import com.assessment.clinic.service.appointment.impl.PatientDayLocks;
+import com.assessment.clinic.utli.ConfigProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PatientDayLocksTest {
+
+	private static final ZoneId ZONE = ZoneId.of("Asia/Tehran");
+
+	private final long morning = LocalDateTime.of(2023, 6, 17, 9, 0).atZone(ZONE).toInstant().toEpochMilli();
+
+	private final long evening = LocalDateTime.of(2023, 6, 17, 17, 0).atZone(ZONE).toInstant().toEpochMilli();
+
+	private final long nextDay = LocalDateTime.of(2023, 6, 18, 9, 0).atZone(ZONE).toInstant().toEpochMilli();
+
+	private PatientDayLocks locks;
+
+	@BeforeEach
+	void init() {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty("start.day.of.week", "SATURDAY")
+				.withProperty("end.day.of.week", "WEDNESDAY")
+				.withProperty("start.hour.of.visit", "9")
+				.withProperty("end.hour.of.visit", "18")
+				.withProperty("max.appointment.count.in.day", "2")
+				.withProperty("general.visit.duration.in.min", "15")
+				.withProperty("specialist.visit.duration.in.min", "30")
+				.withProperty("general.max.conflict.time.count", "2")
+				.withProperty("specialist.max.conflict.time.count", "3")
+				.withProperty("clinic.time.zone", ZONE.getId());
+		locks = new PatientDayLocks(new ConfigProvider(environment));
+	}
+
+	@Test
+	@DisplayName("getDayLock - held patient day - same day of the patient waits - other days and patients never do")
+	void getDayLock_onlySameDayWaits() throws Exception {
+
+		Lock held = locks.getDayLock(1, morning);
+		held.lock();
+		try {
+			assertThat(tryLockElsewhere(locks.getDayLock(1, evening))).isFalse();
+			assertThat(tryLockElsewhere(locks.getDayLock(1, nextDay))).isTrue();
+			for (long patientId = 2; patientId < 2_000; patientId++) {
+				assertThat(tryLockElsewhere(locks.getDayLock(patientId, morning))).isTrue();
+			}
+		} finally {
+			held.unlock();
+		}
+		assertThat(tryLockElsewhere(locks.getDayLock(1, evening))).isTrue();
+	}
+
+	@Test
+	@DisplayName("getDayLocks - several times of patients - one lock per patient day ordered by patient and day")
+	void getDayLocks_distinctAndOrdered() throws Exception {
+
+		List<Lock> dayLocks = locks.getDayLocks(new long[] { 2, 1, 2, 1 }, new long[] { morning, nextDay, evening, morning });
+
+		assertThat(dayLocks).hasSize(3);
+		dayLocks.get(1).lock();
+		try {
+			assertThat(tryLockElsewhere(locks.getDayLock(1, morning))).isTrue();
+			assertThat(tryLockElsewhere(locks.getDayLock(1, nextDay))).isFalse();
+			assertThat(tryLockElsewhere(locks.getDayLock(2, morning))).isTrue();
+		} finally {
+			dayLocks.get(1).unlock();
+		}
+	}
+
+	/**
+	 * @return whether another thread could take the lock, which it releases again
+	 */
+	private static boolean tryLockElsewhere(Lock lock) throws Exception {
+		return CompletableFuture.supplyAsync(() -> {
+			if (!lock.tryLock()) {
+				return false;
+			}
+			lock.unlock();
+			return true;
+		}).get(5, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,225 @@
+package com.assessment.appointment.service.archive;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.assessment.clinic.exception.BusinessException;
+import com.assessment.clinic.model.appointment.Appointment;
+import com.assessment.clinic.model.appointment.AppointmentDao;
+import com.assessment.clinic.model.appointment.AppointmentPeriod;
+import com.assessment.clinic.model.appointment.ArchivedAppointment;
+import com.assessment.clinic.model.appointment.ArchivedAppointmentDao;
+import com.assessment.clinic.model.calendar.Presence;
+import com.assessment.clinic.model.doctor.Doctor;
+import com.assessment.clinic.model.doctor.DoctorDao;
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.model.patient.Patient;
+import com.assessment.clinic.model.patient.PatientDao;
+import com.assessment.clinic.service.appointment.AppointmentService;
+import com.assessment.clinic.service.appointment.dto.CreateAutoAppointmentRequest;
+import com.assessment.clinic.service.appointment.dto.CreateNewAppointmentRequest;
+import com.assessment.clinic.service.archive.AppointmentArchiveService;
+import com.assessment.clinic.service.archive.impl.AppointmentArchiveServiceImpl;
+import com.assessment.clinic.utli.BusinessRules;
+import com.assessment.clinic.utli.ConfigProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.Mockito;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+@SpringBootTest
+class AppointmentArchiveServiceTest {
+
+	@Autowired
+	private AppointmentDao appointmentDao;
+
+	@Autowired
+	private ArchivedAppointmentDao archivedAppointmentDao;
+
+	@Autowired
+	private DoctorDao doctorDao;
+
+	@Autowired
+	private PatientDao patientDao;
+
+	@Autowired
+	private ConfigProvider configProvider;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private Clock clock;
+
+	@Autowired
+	private AppointmentArchiveService archiveService;
+
+	@Autowired
+	private AppointmentService appointmentService;
+
+	private ZoneId zone;
+
+	private Doctor doctor;
+
+	private Patient patient;
+
+	@BeforeEach
+	void init() {
+		appointmentDao.deleteAll();
+		archivedAppointmentDao.deleteAll();
+		zone = configProvider.getBusinessRules().getCalendar().getZoneId();
+		doctor = new Doctor();
+		doctor.setName("archive doctor");
+		doctor.setGrade(DoctorGrade.GENERAL);
+		doctor = doctorDao.save(doctor);
+		patient = createPatient("archive patient");
+	}
+
+	@Test
+	@DisplayName("archiveBefore - past days and an active day - past days copied to the archive with their ids and month and deleted - active day kept")
+	void archiveBefore_movesPastDays() {
+
+		List<Appointment> past = appointmentDao.saveAll(List.of(
+				createAppointment(LocalDateTime.of(2020, 3, 1, 10, 0)),
+				createAppointment(LocalDateTime.of(2020, 3, 1, 11, 0)),
+				createAppointment(LocalDateTime.of(2020, 3, 2, 10, 0)),
+				createAppointment(LocalDateTime.of(2020, 4, 5, 10, 0)),
+				createAppointment(LocalDateTime.of(2020, 4, 5, 10, 5))));
+		Appointment active = appointmentDao.save(createAppointment(LocalDateTime.of(2020, 5, 1, 10, 0)));
+
+		long archived = archiveService.archiveBefore(toEpochMilli(LocalDateTime.of(2020, 5, 1, 0, 0)));
+
+		assertThat(archived).isEqualTo(5);
+		assertThat(appointmentDao.findAll()).extracting(Appointment::getId).containsExactly(active.getId());
+		assertThat(archivedAppointmentDao.findAllById(ids(past))).hasSize(5);
+		assertThat(archivedAppointmentDao.countByArchiveMonth(202003)).isEqualTo(3);
+		assertThat(archivedAppointmentDao.countByArchiveMonth(202004)).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("archiveBefore - booking lands in a day between its copy and delete - that day rolled back whole - earlier days kept archived - retry archives the rest")
+	void archiveBefore_countMismatch_rollsBackDay() {
+
+		Appointment firstDay = appointmentDao.save(createAppointment(LocalDateTime.of(2020, 3, 1, 10, 0)));
+		List<Appointment> secondDay = appointmentDao.saveAll(List.of(
+				createAppointment(LocalDateTime.of(2020, 3, 2, 10, 0)),
+				createAppointment(LocalDateTime.of(2020, 3, 2, 11, 0))));
+		Appointment thirdDay = appointmentDao.save(createAppointment(LocalDateTime.of(2020, 3, 3, 10, 0)));
+		long secondDayStart = toEpochMilli(LocalDateTime.of(2020, 3, 2, 0, 0));
+		List<Long> lateBookingIds = new ArrayList<>();
+		AppointmentDao racingDao = Mockito.mock(AppointmentDao.class, AdditionalAnswers.delegatesTo(appointmentDao));
+		Mockito.doAnswer(invocation -> {
+			if (invocation.<Long>getArgument(0) == secondDayStart) {
+				lateBookingIds.add(appointmentDao.save(createAppointment(LocalDateTime.of(2020, 3, 2, 12, 0))).getId());
+			}
+			return appointmentDao.deleteByStartTimeRange(invocation.getArgument(0), invocation.getArgument(1));
+		}).when(racingDao).deleteByStartTimeRange(anyLong(), anyLong());
+		AppointmentArchiveService racingService = new AppointmentArchiveServiceImpl(racingDao, archivedAppointmentDao, configProvider,
+				transactionManager, clock);
+		long cutoff = toEpochMilli(LocalDateTime.of(2020, 4, 1, 0, 0));
+
+		Assertions.assertThrows(IllegalStateException.class, () -> racingService.archiveBefore(cutoff));
+
+		assertThat(archivedAppointmentDao.findAll()).extracting(ArchivedAppointment::getId)
+				.containsExactly(firstDay.getId());
+		assertThat(appointmentDao.findAll()).extracting(Appointment::getId)
+				.containsExactlyInAnyOrderElementsOf(ids(List.of(secondDay.get(0), secondDay.get(1), thirdDay)));
+		assertThat(lateBookingIds).hasSize(1);
+		assertThat(appointmentDao.existsById(lateBookingIds.get(0))).isFalse();
+
+		assertThat(archiveService.archiveBefore(cutoff)).isEqualTo(3);
+		assertThat(appointmentDao.count()).isZero();
+		assertThat(archivedAppointmentDao.count()).isEqualTo(4);
+	}
+
+	@Test
+	@DisplayName("booking after archival - patient with archived appointments - book, book earliest and cancel on an active day - new ids never archived ones")
+	void booking_afterArchival() throws BusinessException {
+
+		appointmentDao.saveAll(List.of(createAppointment(LocalDateTime.of(2020, 3, 1, 10, 0)), createAppointment(LocalDateTime.of(2020, 3, 1, 11, 0))));
+		assertThat(archiveService.archiveBefore(toEpochMilli(LocalDateTime.of(2020, 4, 1, 0, 0)))).isEqualTo(2);
+		Long maxArchivedId = archivedAppointmentDao.findMaxId();
+		LocalDate day = nextBusinessDay();
+		addPresence(day.atTime(9, 0), day.atTime(12, 0));
+		Patient otherPatient = createPatient("second archive patient");
+
+		CreateNewAppointmentRequest request = new CreateNewAppointmentRequest();
+		request.setDoctorId(doctor.getId());
+		request.setPatientId(patient.getId());
+		request.setDurationInMin(15);
+		request.setAppointmentTime(toEpochMilli(day.atTime(10, 0)));
+		appointmentService.setAppointment(request);
+		CreateAutoAppointmentRequest earliestRequest = new CreateAutoAppointmentRequest();
+		earliestRequest.setDoctorId(doctor.getId());
+		earliestRequest.setPatientId(otherPatient.getId());
+		earliestRequest.setDurationInMin(15);
+		appointmentService.setEarliestAppointment(earliestRequest);
+
+		List<AppointmentPeriod> booked = appointmentDao.getPeriodsByDoctorIdAndStartTimeBetween(doctor.getId(), toEpochMilli(day.atStartOfDay()),
+				toEpochMilli(day.plusDays(1).atStartOfDay()) - 1);
+		assertThat(booked).hasSize(2);
+		assertThat(booked).extracting(AppointmentPeriod::getId).allMatch(id -> id > maxArchivedId);
+		AppointmentPeriod requested = booked.stream().filter(period -> period.getStartTime() == request.getAppointmentTime()).findFirst().orElseThrow();
+
+		appointmentService.cancelAppointment(requested.getId());
+
+		assertThat(appointmentDao.existsById(requested.getId())).isFalse();
+		assertThat(appointmentDao.count()).isEqualTo(1);
+		assertThat(archivedAppointmentDao.count()).isEqualTo(2);
+	}
+
+	private Patient createPatient(String name) {
+		Patient newPatient = new Patient();
+		newPatient.setName(name);
+		return patientDao.save(newPatient);
+	}
+
+	private void addPresence(LocalDateTime start, LocalDateTime end) {
+		Presence presence = new Presence();
+		presence.setDoctor(doctor);
+		presence.setStartTime(toEpochMilli(start));
+		presence.setEndTime(toEpochMilli(end));
+		doctor.getPresences().add(presence);
+		doctor = doctorDao.save(doctor);
+	}
+
+	private LocalDate nextBusinessDay() {
+		BusinessRules rules = configProvider.getBusinessRules();
+		LocalDate day = LocalDate.now(clock.withZone(zone)).plusDays(2);
+		while (!rules.isBusinessDay(toEpochMilli(day.atTime(10, 0)))) {
+			day = day.plusDays(1);
+		}
+		return day;
+	}
+
+	private Appointment createAppointment(LocalDateTime start) {
+		Appointment appointment = new Appointment();
+		appointment.setDoctor(doctor);
+		appointment.setPatient(patient);
+		appointment.setStartTime(toEpochMilli(start));
+		appointment.setEndTime(toEpochMilli(start.plusMinutes(15)));
+		return appointment;
+	}
+
+	private long toEpochMilli(LocalDateTime dateTime) {
+		return dateTime.atZone(zone).toInstant().toEpochMilli();
+	}
+
+	private static List<Long> ids(List<Appointment> appointments) {
+		return appointments.stream().map(Appointment::getId).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,92 @@
+package com.assessment.appointment.utli;
+
+import com.assessment.clinic.config.BusinessRulesEndpoint;
+import com.assessment.clinic.model.calendar.PersianDayOfWeek;
+import com.assessment.clinic.model.doctor.DoctorGrade;
+import com.assessment.clinic.service.appointment.ConflictCheckMode;
+import com.assessment.clinic.utli.BusinessRules;
+import com.assessment.clinic.utli.ConfigProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConfigProviderTest {
+
+	private MockEnvironment environment;
+
+	@BeforeEach
+	void init() {
+		environment = new MockEnvironment()
+				.withProperty("start.day.of.week", "SATURDAY")
+				.withProperty("end.day.of.week", "WEDNESDAY")
+				.withProperty("start.hour.of.visit", "9")
+				.withProperty("end.hour.of.visit", "18")
+				.withProperty("max.appointment.count.in.day", "2")
+				.withProperty("general.visit.duration.in.min", "15")
+				.withProperty("specialist.visit.duration.in.min", "30")
+				.withProperty("general.max.conflict.time.count", "2")
+				.withProperty("specialist.max.conflict.time.count", "3")
+				.withProperty("clinic.time.zone", "Asia/Tehran");
+	}
+
+	@Test
+	@DisplayName("getBusinessRules - properties are parsed once - per grade values by grade")
+	void getBusinessRules_parsed() {
+
+		BusinessRules rules = new ConfigProvider(environment).getBusinessRules();
+
+		assertThat(rules.getStartDayOfWeek()).isEqualTo(PersianDayOfWeek.SATURDAY);
+		assertThat(rules.getEndDayOfWeek()).isEqualTo(PersianDayOfWeek.WEDNESDAY);
+		assertThat(rules.getMaxAppointmentCountInDay()).isEqualTo(2);
+		assertThat(rules.getConflictCheckMode()).isEqualTo(ConflictCheckMode.INDEX);
+		assertThat(rules.getVisitDurationInMin(DoctorGrade.GENERAL)).isEqualTo(15);
+		assertThat(rules.getVisitDurationInMin(DoctorGrade.SPECIALIST)).isEqualTo(30);
+		assertThat(rules.getVisitDurationInMS(DoctorGrade.GENERAL)).isEqualTo(15 * 60000L);
+		assertThat(rules.getVisitDurationInMS(DoctorGrade.SPECIALIST)).isEqualTo(30 * 60000L);
+		assertThat(rules.getMaxConflictTimeCount(DoctorGrade.GENERAL)).isEqualTo(2);
+		assertThat(rules.getMaxConflictTimeCount(DoctorGrade.SPECIALIST)).isEqualTo(3);
+		assertThat(rules.isBusinessDay(PersianDayOfWeek.THURSDAY)).isFalse();
+	}
+
+	@Test
+	@DisplayName("refresh - properties changed - new snapshot swapped in - previous snapshot unchanged - calendar kept")
+	void refresh_swaps_snapshot() {
+
+		ConfigProvider configProvider = new ConfigProvider(environment);
+		BusinessRules previous = configProvider.getBusinessRules();
+		environment.setProperty("general.visit.duration.in.min", "20");
+		environment.setProperty("max.appointment.count.in.day", "3");
+		environment.setProperty("conflict.check.mode", "AGGREGATE");
+
+		new BusinessRulesEndpoint(configProvider).refresh();
+
+		BusinessRules refreshed = configProvider.getBusinessRules();
+		assertThat(refreshed).isNotSameAs(previous);
+		assertThat(refreshed.getVisitDurationInMS(DoctorGrade.GENERAL)).isEqualTo(20 * 60000L);
+		assertThat(refreshed.getMaxAppointmentCountInDay()).isEqualTo(3);
+		assertThat(refreshed.getConflictCheckMode()).isEqualTo(ConflictCheckMode.AGGREGATE);
+		assertThat(refreshed.getCalendar()).isSameAs(previous.getCalendar());
+		assertThat(previous.getVisitDurationInMS(DoctorGrade.GENERAL)).isEqualTo(15 * 60000L);
+		assertThat(previous.getMaxAppointmentCountInDay()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("refresh - time zone changed - rejected - previous snapshot kept")
+	void refresh_zoneChanged_rejected() {
+
+		ConfigProvider configProvider = new ConfigProvider(environment);
+		BusinessRules previous = configProvider.getBusinessRules();
+		environment.setProperty("clinic.time.zone", "Europe/Berlin");
+		environment.setProperty("max.appointment.count.in.day", "3");
+
+		Assertions.assertThrows(IllegalStateException.class, configProvider::refresh);
+
+		assertThat(configProvider.getBusinessRules()).isSameAs(previous);
+		assertThat(configProvider.getBusinessRules().getCalendar().getZoneId().getId()).isEqualTo("Asia/Tehran");
+	}
+}
@@ -0,0 +1,93 @@
+package com.assessment.appointment.utli;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import com.assessment.clinic.model.calendar.PersianDayOfWeek;
+import com.assessment.clinic.utli.ZonedEpochCalendar;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares every answer of {@link ZonedEpochCalendar} with {@code java.time} at instants spread over whole years, so
+ * every offset transition of those years lies between two samples.
+ */
+class ZonedEpochCalendarTest {
+
+	/**
+	 * Not a divisor of a day, so the samples drift through every time of day.
+	 */
+	private static final long STEP_IN_MS = 6 * ZonedEpochCalendar.HOUR_IN_MS + 17 * ZonedEpochCalendar.MINUTE_IN_MS;
+
+	@ParameterizedTest
+	@ValueSource(strings = { "UTC", "Asia/Tehran", "Europe/London", "America/New_York", "America/Sao_Paulo", "Australia/Lord_Howe" })
+	@DisplayName("day boundaries, day of week, hour, minute and hour of day - same as java.time - before 1970, around recent DST transitions and after 2100")
+	void matches_java_time(String zone) {
+
+		ZoneId zoneId = ZoneId.of(zone);
+		ZonedEpochCalendar calendar = new ZonedEpochCalendar(zoneId);
+
+		assertMatches(calendar, zoneId, 1965, 1971);
+		assertMatches(calendar, zoneId, 2019, 2024);
+		assertMatches(calendar, zoneId, 2098, 2103);
+	}
+
+	@Test
+	@DisplayName("plusDays - across the spring forward and fall back of America/New_York - same local time")
+	void plusDays_across_transitions() {
+
+		ZoneId zoneId = ZoneId.of("America/New_York");
+		ZonedEpochCalendar calendar = new ZonedEpochCalendar(zoneId);
+		long beforeSpringForward = epochMilli(LocalDateTime.of(2023, 3, 11, 10, 30), zoneId);
+		long beforeFallBack = epochMilli(LocalDateTime.of(2023, 11, 4, 10, 30), zoneId);
+
+		assertThat(calendar.plusDays(beforeSpringForward, 1)).isEqualTo(epochMilli(LocalDateTime.of(2023, 3, 12, 10, 30), zoneId));
+		assertThat(calendar.plusDays(beforeSpringForward, 1) - beforeSpringForward).isEqualTo(23 * ZonedEpochCalendar.HOUR_IN_MS);
+		assertThat(calendar.plusDays(beforeFallBack, 1)).isEqualTo(epochMilli(LocalDateTime.of(2023, 11, 5, 10, 30), zoneId));
+		assertThat(calendar.plusDays(beforeFallBack, 1) - beforeFallBack).isEqualTo(25 * ZonedEpochCalendar.HOUR_IN_MS);
+		assertThat(calendar.plusDays(beforeFallBack, -7)).isEqualTo(epochMilli(LocalDateTime.of(2023, 10, 28, 10, 30), zoneId));
+	}
+
+	@Test
+	@DisplayName("persianDayOfWeek - known dates - saturday is the first day of the week")
+	void persianDayOfWeek_known_dates() {
+
+		ZoneId zoneId = ZoneId.of("Asia/Tehran");
+		ZonedEpochCalendar calendar = new ZonedEpochCalendar(zoneId);
+
+		assertThat(calendar.persianDayOfWeek(epochMilli(LocalDateTime.of(2023, 6, 17, 0, 0), zoneId))).isEqualTo(PersianDayOfWeek.SATURDAY);
+		assertThat(calendar.persianDayOfWeek(epochMilli(LocalDateTime.of(2023, 6, 23, 23, 59), zoneId))).isEqualTo(PersianDayOfWeek.FRIDAY);
+		assertThat(calendar.persianDayOfWeek(epochMilli(LocalDateTime.of(1970, 1, 1, 12, 0), zoneId))).isEqualTo(PersianDayOfWeek.THURSDAY);
+		assertThat(calendar.persianDayOfWeek(epochMilli(LocalDateTime.of(1969, 12, 31, 12, 0), zoneId))).isEqualTo(PersianDayOfWeek.WEDNESDAY);
+		assertThat(calendar.persianDayOfWeek(epochMilli(LocalDateTime.of(2101, 1, 1, 12, 0), zoneId))).isEqualTo(PersianDayOfWeek.SATURDAY);
+	}
+
+	private static void assertMatches(ZonedEpochCalendar calendar, ZoneId zoneId, int fromYear, int toYear) {
+		long from = epochMilli(LocalDateTime.of(fromYear, 1, 1, 0, 0), zoneId);
+		long to = epochMilli(LocalDateTime.of(toYear, 1, 1, 0, 0), zoneId);
+		for (long time = from; time < to; time += STEP_IN_MS) {
+			ZonedDateTime expected = Instant.ofEpochMilli(time).atZone(zoneId);
+			long startOfDay = expected.toLocalDate().atStartOfDay(zoneId).toInstant().toEpochMilli();
+			long startOfNextDay = expected.toLocalDate().plusDays(1).atStartOfDay(zoneId).toInstant().toEpochMilli();
+			String at = expected.toString();
+			assertThat(calendar.offsetAt(time)).as("offset at %s", at).isEqualTo(expected.getOffset().getTotalSeconds() * 1000L);
+			assertThat(calendar.startOfDay(time)).as("start of day at %s", at).isEqualTo(startOfDay);
+			assertThat(calendar.endOfDay(time)).as("end of day at %s", at).isEqualTo(startOfNextDay - 1);
+			assertThat(calendar.persianDayOfWeek(time)).as("day of week at %s", at).isEqualTo(PersianDayOfWeek.of(expected.getDayOfWeek()));
+			assertThat(calendar.hourOfDay(time)).as("hour at %s", at).isEqualTo(expected.getHour());
+			assertThat(calendar.minuteOfHour(time)).as("minute at %s", at).isEqualTo(expected.getMinute());
+			assertThat(calendar.atHourOfDay(time, 9)).as("nine o'clock at %s", at)
+					.isEqualTo(expected.toLocalDate().atTime(9, 0).atZone(zoneId).toInstant().toEpochMilli());
+		}
+	}
+
+	private static long epochMilli(LocalDateTime time, ZoneId zoneId) {
+		return time.atZone(zoneId).toInstant().toEpochMilli();
+	}
+}
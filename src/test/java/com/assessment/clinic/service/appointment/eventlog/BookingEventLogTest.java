@@ -0,0 +1,350 @@
+package com.assessment.clinic.service.appointment.eventlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.assessment.clinic.exception.ServiceBusyException;
+import com.assessment.clinic.model.appointment.AppointmentBooking;
+import com.assessment.clinic.model.appointment.AppointmentBookingWriter;
+import com.assessment.clinic.model.appointment.AppointmentDao;
+import com.assessment.clinic.model.appointment.ArchivedAppointmentDao;
+import com.assessment.clinic.service.appointment.impl.DoctorAppointmentIndex;
+import com.assessment.clinic.utli.ConfigProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Restarts are simulated by starting a new log on the directory of one that is left running, as after a crash.
+ */
+class BookingEventLogTest {
+
+	private static final ZoneId ZONE = ZoneId.of("Asia/Tehran");
+
+	private static final int RECORDS_PER_SEGMENT = 4;
+
+	private static final long MINUTE = 60000L;
+
+	private static final long TOMORROW = LocalDateTime.of(2023, 6, 18, 9, 0).atZone(ZONE).toInstant().toEpochMilli();
+
+	@TempDir
+	Path directory;
+
+	private ConfigProvider configProvider;
+
+	private AppointmentDao appointmentDao;
+
+	private ArchivedAppointmentDao archivedAppointmentDao;
+
+	private DoctorAppointmentIndex doctorAppointmentIndex;
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@BeforeEach
+	void init() {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty("start.day.of.week", "SATURDAY")
+				.withProperty("end.day.of.week", "WEDNESDAY")
+				.withProperty("start.hour.of.visit", "9")
+				.withProperty("end.hour.of.visit", "18")
+				.withProperty("max.appointment.count.in.day", "2")
+				.withProperty("general.visit.duration.in.min", "15")
+				.withProperty("specialist.visit.duration.in.min", "30")
+				.withProperty("general.max.conflict.time.count", "2")
+				.withProperty("specialist.max.conflict.time.count", "3")
+				.withProperty("clinic.time.zone", ZONE.getId());
+		configProvider = new ConfigProvider(environment);
+		appointmentDao = Mockito.mock(AppointmentDao.class);
+		archivedAppointmentDao = Mockito.mock(ArchivedAppointmentDao.class);
+		Mockito.when(appointmentDao.streamBookingsStartingFrom(anyLong())).thenAnswer(invocation -> Stream.empty());
+	}
+
+	@AfterEach
+	void releaseProjections() {
+		release.countDown();
+	}
+
+	@Test
+	@DisplayName("start - a segment in the middle of the log is missing - events after the gap ignored - appending goes on after the last event before it")
+	void start_sequenceGapAcrossSegments() throws IOException, InterruptedException {
+
+		BookingEventLog crashed = start(Mockito.mock(AppointmentBookingWriter.class));
+		List<BookingEvent> events = book(crashed, 10);
+		awaitProjected(crashed);
+		Files.delete(directory.resolve(LogSegment.fileName(5)));
+
+		BookingEventLog restarted = start(Mockito.mock(AppointmentBookingWriter.class));
+
+		assertThat(restarted.getLastSequence()).isEqualTo(4);
+		assertThat(restarted.getBooking(events.get(3).getId())).isNotNull();
+		assertThat(restarted.getBooking(events.get(8).getId())).isNull();
+		assertThat(segmentFiles()).containsExactly(LogSegment.fileName(1), LogSegment.fileName(5));
+		assertThat(directory.resolve(LogSegment.fileName(9) + ".ignored")).exists();
+		BookingEvent appended = restarted.append(1, 1, TOMORROW, TOMORROW + 15 * MINUTE);
+		assertThat(appended.getSequence()).isEqualTo(5);
+
+		BookingEventLog restartedAgain = start(Mockito.mock(AppointmentBookingWriter.class));
+
+		assertThat(restartedAgain.getLastSequence()).isEqualTo(5);
+		assertThat(restartedAgain.getBooking(appended.getId())).isNotNull();
+		assertThat(restartedAgain.getBooking(events.get(9).getId())).isNull();
+	}
+
+	@Test
+	@DisplayName("start - torn record in a closed segment - replay stops at it - later segments ignored - next append takes its place")
+	void start_tornRecordInClosedSegment() throws IOException, InterruptedException {
+
+		BookingEventLog crashed = start(Mockito.mock(AppointmentBookingWriter.class));
+		List<BookingEvent> events = book(crashed, 6);
+		awaitProjected(crashed);
+		corrupt(LogSegment.fileName(1), 2 * LogSegment.RECORD_SIZE + 20);
+
+		BookingEventLog restarted = start(Mockito.mock(AppointmentBookingWriter.class));
+
+		assertThat(restarted.getLastSequence()).isEqualTo(2);
+		assertThat(restarted.getBooking(events.get(2).getId())).isNull();
+		assertThat(restarted.getBooking(events.get(4).getId())).isNull();
+		assertThat(segmentFiles()).containsExactly(LogSegment.fileName(1));
+		assertThat(directory.resolve(LogSegment.fileName(5) + ".ignored")).exists();
+		BookingEvent appended = restarted.append(1, 1, TOMORROW, TOMORROW + 15 * MINUTE);
+
+		BookingEventLog restartedAgain = start(Mockito.mock(AppointmentBookingWriter.class));
+
+		assertThat(appended.getSequence()).isEqualTo(3);
+		assertThat(restartedAgain.getLastSequence()).isEqualTo(3);
+		assertThat(restartedAgain.getBooking(appended.getId())).isNotNull();
+	}
+
+	@Test
+	@DisplayName("snapshot - projected closed segments - deleted - restart restores the snapshot and replays the events after it")
+	void snapshot_thenReplay() throws IOException, InterruptedException {
+
+		BookingEventLog crashed = start(Mockito.mock(AppointmentBookingWriter.class));
+		long yesterday = TOMORROW - 2 * 24 * 60 * MINUTE;
+		BookingEvent past = crashed.append(1, 1, yesterday, yesterday + 15 * MINUTE);
+		List<BookingEvent> events = book(crashed, 9);
+		awaitProjected(crashed);
+
+		crashed.snapshot();
+
+		assertThat(segmentFiles()).containsExactly(LogSegment.fileName(9));
+		assertThat(crashed.getBooking(past.getId())).isNull();
+		events.addAll(book(crashed, 2));
+
+		BookingEventLog restarted = start(Mockito.mock(AppointmentBookingWriter.class));
+
+		assertThat(restarted.getLastSequence()).isEqualTo(12);
+		assertThat(restarted.getBooking(past.getId())).isNull();
+		for (BookingEvent event : events) {
+			assertThat(restarted.getBooking(event.getId()))
+					.isEqualTo(new AppointmentBooking(event.getId(), event.getDoctorId(), event.getPatientId(), event.getStartTime(), event.getEndTime()));
+		}
+		assertThat(restarted.getPatientDay(1, TOMORROW)).hasSize(11);
+		assertThat(doctorAppointmentIndex.getDayIntervals(1, TOMORROW).size()).isEqualTo(11);
+	}
+
+	@Test
+	@DisplayName("start - moves and cancellations logged but not projected before the crash - projected again after restart")
+	void start_reprojectsMovesAndCancellations() throws IOException, InterruptedException {
+
+		AppointmentBookingWriter stalledWriter = Mockito.mock(AppointmentBookingWriter.class);
+		doAnswer(invocation -> release.await(10, TimeUnit.SECONDS)).when(stalledWriter).update(any());
+		BookingEventLog crashed = start(stalledWriter);
+		List<BookingEvent> events = book(crashed, 2);
+		awaitProjected(crashed);
+		Mockito.when(appointmentDao.findMaxId()).thenReturn(events.get(1).getId());
+		long movedTime = TOMORROW + 60 * MINUTE;
+		crashed.reschedule(crashed.getBooking(events.get(0).getId()), movedTime, movedTime + 15 * MINUTE);
+		crashed.cancel(crashed.getBooking(events.get(1).getId()));
+
+		AppointmentBookingWriter writer = Mockito.mock(AppointmentBookingWriter.class);
+		BookingEventLog restarted = start(writer);
+		awaitProjected(restarted);
+
+		BookingEvent moved = events.get(0);
+		verify(writer).update(List.of(new AppointmentBooking(moved.getId(), moved.getDoctorId(), moved.getPatientId(), movedTime, movedTime + 15 * MINUTE)));
+		verify(writer).delete(List.of(events.get(1).getId()));
+		verify(writer, never()).insert(any());
+		assertThat(restarted.getBooking(moved.getId()).getStartTime()).isEqualTo(movedTime);
+		assertThat(restarted.getBooking(events.get(1).getId())).isNull();
+		assertThat(restarted.getPatientDay(1, TOMORROW)).hasSize(1);
+	}
+
+	@Test
+	@DisplayName("append - ids above the largest database and archive ids - above the log ids after restart even when those are not in the database yet")
+	void append_nextIdAboveDatabaseAndArchive() throws IOException {
+
+		Mockito.when(appointmentDao.findMaxId()).thenReturn(100L);
+		Mockito.when(archivedAppointmentDao.findMaxId()).thenReturn(250L);
+		BookingEventLog first = start(Mockito.mock(AppointmentBookingWriter.class));
+		assertThat(first.append(1, 1, TOMORROW, TOMORROW + 15 * MINUTE).getId()).isEqualTo(251);
+
+		Mockito.when(appointmentDao.findMaxId()).thenReturn(251L);
+		Mockito.when(archivedAppointmentDao.findMaxId()).thenReturn(400L);
+		BookingEventLog second = start(Mockito.mock(AppointmentBookingWriter.class));
+		assertThat(second.append(1, 2, TOMORROW, TOMORROW + 15 * MINUTE).getId()).isEqualTo(401);
+
+		Mockito.when(appointmentDao.findMaxId()).thenReturn(null);
+		Mockito.when(archivedAppointmentDao.findMaxId()).thenReturn(null);
+		BookingEventLog third = start(Mockito.mock(AppointmentBookingWriter.class));
+		assertThat(third.append(1, 3, TOMORROW, TOMORROW + 15 * MINUTE).getId()).isEqualTo(402);
+	}
+
+	@Test
+	@DisplayName("awaitCapacity - writer keeps failing - nothing skipped or deleted - writers turned away busy after the wait")
+	void awaitCapacity_projectionStalled() throws IOException {
+
+		AppointmentBookingWriter failingWriter = Mockito.mock(AppointmentBookingWriter.class);
+		doThrow(new QueryTimeoutException("database unavailable")).when(failingWriter).insert(any());
+		BookingEventLog stalled = start(failingWriter, 6);
+		book(stalled, 6);
+		verify(failingWriter, timeout(5000).atLeast(6)).insert(any());
+
+		stalled.snapshot();
+
+		assertThat(stalled.getProjectedSequence()).isZero();
+		assertThat(segmentFiles()).containsExactly(LogSegment.fileName(1), LogSegment.fileName(5));
+		long waitStart = System.nanoTime();
+		Assertions.assertThrows(ServiceBusyException.class, () -> stalled.awaitCapacity(1));
+		assertThat(System.nanoTime() - waitStart).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+	}
+
+	@Test
+	@DisplayName("start - bookings left unprojected by a stalled projection - all projected after restart - writers admitted again")
+	void start_backlogLeftByStalledProjection() throws IOException, InterruptedException, ServiceBusyException {
+
+		AppointmentBookingWriter failingWriter = Mockito.mock(AppointmentBookingWriter.class);
+		doThrow(new QueryTimeoutException("database unavailable")).when(failingWriter).insert(any());
+		BookingEventLog stalled = start(failingWriter, 6);
+		List<BookingEvent> events = book(stalled, 6);
+		verify(failingWriter, timeout(5000).atLeast(2)).insert(any());
+		stalled.snapshot();
+
+		List<AppointmentBooking> inserted = new CopyOnWriteArrayList<>();
+		AppointmentBookingWriter writer = Mockito.mock(AppointmentBookingWriter.class);
+		doAnswer(invocation -> inserted.addAll(invocation.getArgument(0))).when(writer).insert(any());
+		BookingEventLog restarted = start(writer, 6);
+		awaitProjected(restarted);
+
+		assertThat(inserted).extracting(AppointmentBooking::getId).containsExactlyElementsOf(events.stream().map(BookingEvent::getId)
+				.collect(Collectors.toList()));
+		restarted.awaitCapacity(6);
+		restarted.snapshot();
+		assertThat(segmentFiles()).containsExactly(LogSegment.fileName(5));
+	}
+
+	private BookingEventLog start(AppointmentBookingWriter writer) throws IOException {
+		return start(writer, 1000);
+	}
+
+	private BookingEventLog start(AppointmentBookingWriter writer, int maxBacklog) throws IOException {
+		Clock clock = Clock.fixed(Instant.ofEpochMilli(TOMORROW - 24 * 60 * MINUTE), ZONE);
+		doctorAppointmentIndex = new DoctorAppointmentIndex(appointmentDao, configProvider, clock);
+		BookingEventLog eventLog = new BookingEventLog(doctorAppointmentIndex, appointmentDao, writer, archivedAppointmentDao, configProvider,
+				new NoOpTransactionManager(), clock);
+		ReflectionTestUtils.setField(eventLog, "directoryName", directory.toString());
+		ReflectionTestUtils.setField(eventLog, "segmentSize", RECORDS_PER_SEGMENT * LogSegment.RECORD_SIZE);
+		ReflectionTestUtils.setField(eventLog, "snapshotIntervalMs", TimeUnit.HOURS.toMillis(1));
+		ReflectionTestUtils.setField(eventLog, "projectionBatchSize", 100);
+		ReflectionTestUtils.setField(eventLog, "projectionMaxDelayMs", 1L);
+		ReflectionTestUtils.setField(eventLog, "projectionMaxBacklog", maxBacklog);
+		ReflectionTestUtils.setField(eventLog, "projectionMaxWaitMs", 100L);
+		ReflectionTestUtils.setField(eventLog, "projectionRetryDelayMs", 10L);
+		eventLog.start();
+		return eventLog;
+	}
+
+	/**
+	 * Books {@code count} appointments of doctor 1 and patient 1 one minute apart, from tomorrow 9:00 on.
+	 */
+	private static List<BookingEvent> book(BookingEventLog eventLog, int count) {
+		List<BookingEvent> events = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			long startTime = TOMORROW + (eventLog.getLastSequence() % 60) * MINUTE;
+			events.add(eventLog.append(1, 1, startTime, startTime + 15 * MINUTE));
+		}
+		return events;
+	}
+
+	private static void awaitProjected(BookingEventLog eventLog) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (eventLog.getProjectedSequence() < eventLog.getLastSequence()) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.sleep(5);
+		}
+	}
+
+	private List<String> segmentFiles() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> LogSegment.firstSequenceOf(file) >= 0).map(file -> file.getFileName().toString()).sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Flips one byte of a segment file, as a write cut short by a crash would leave it.
+	 */
+	private void corrupt(String fileName, int offset) throws IOException {
+		try (FileChannel channel = FileChannel.open(directory.resolve(fileName), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer value = ByteBuffer.allocate(1);
+			channel.read(value, offset);
+			value.put(0, (byte) ~value.get(0)).rewind();
+			channel.write(value, offset);
+		}
+	}
+
+	private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+		@Override
+		protected Object doGetTransaction() {
+			return new Object();
+		}
+
+		@Override
+		protected void doBegin(Object transaction, TransactionDefinition definition) {
+		}
+
+		@Override
+		protected void doCommit(DefaultTransactionStatus status) {
+		}
+
+		@Override
+		protected void doRollback(DefaultTransactionStatus status) {
+		}
+	}
+}
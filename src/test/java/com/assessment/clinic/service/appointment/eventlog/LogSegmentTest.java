@@ -0,0 +1,143 @@
+package com.assessment.clinic.service.appointment.eventlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogSegmentTest {
+
+	private static final int SEGMENT_SIZE = 8 * LogSegment.RECORD_SIZE;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisplayName("replay - full records of every type - read back in order with their fields")
+	void replay_allTypes() throws IOException {
+
+		try (LogSegment segment = LogSegment.open(directory, 1, SEGMENT_SIZE)) {
+			segment.replay(event -> { });
+			segment.append(event(1, BookingEvent.Type.BOOKED));
+			segment.append(event(2, BookingEvent.Type.RESCHEDULED));
+			segment.append(event(3, BookingEvent.Type.CANCELLED));
+		}
+
+		List<BookingEvent> events = new ArrayList<>();
+		try (LogSegment segment = LogSegment.open(directory, 1, SEGMENT_SIZE)) {
+			assertThat(segment.replay(events::add)).isTrue();
+		}
+		assertThat(events).containsExactly(event(1, BookingEvent.Type.BOOKED), event(2, BookingEvent.Type.RESCHEDULED),
+				event(3, BookingEvent.Type.CANCELLED));
+	}
+
+	@Test
+	@DisplayName("replay - last record torn, payload written without matching checksum - stops before it - next append takes its place")
+	void replay_tornLastRecord() throws IOException {
+
+		writeRecords(3);
+		corrupt(2 * LogSegment.RECORD_SIZE + 30);
+
+		List<BookingEvent> events = new ArrayList<>();
+		try (LogSegment segment = LogSegment.open(directory, 1, SEGMENT_SIZE)) {
+			assertThat(segment.replay(events::add)).isTrue();
+			segment.append(event(3, BookingEvent.Type.CANCELLED));
+		}
+
+		assertThat(events).extracting(BookingEvent::getSequence).containsExactly(1L, 2L);
+		assertThat(replayAll()).containsExactly(event(1, BookingEvent.Type.BOOKED), event(2, BookingEvent.Type.BOOKED),
+				event(3, BookingEvent.Type.CANCELLED));
+	}
+
+	@Test
+	@DisplayName("replay - torn record followed by valid ones - records behind it are cleared and never read again")
+	void replay_tornRecordClearsTail() throws IOException {
+
+		writeRecords(5);
+		corrupt(LogSegment.RECORD_SIZE + 4);
+
+		try (LogSegment segment = LogSegment.open(directory, 1, SEGMENT_SIZE)) {
+			assertThat(segment.replay(event -> { })).isTrue();
+			segment.append(event(2, BookingEvent.Type.CANCELLED));
+		}
+
+		assertThat(replayAll()).containsExactly(event(1, BookingEvent.Type.BOOKED), event(2, BookingEvent.Type.CANCELLED));
+	}
+
+	@Test
+	@DisplayName("replay - record with a sequence out of order - stops before it")
+	void replay_sequenceOutOfOrder() throws IOException {
+
+		try (LogSegment segment = LogSegment.open(directory, 1, SEGMENT_SIZE)) {
+			segment.replay(event -> { });
+			segment.append(event(1, BookingEvent.Type.BOOKED));
+			segment.append(event(3, BookingEvent.Type.BOOKED));
+		}
+
+		assertThat(replayAll()).extracting(BookingEvent::getSequence).containsExactly(1L);
+	}
+
+	@Test
+	@DisplayName("replay - every record valid up to the end - not truncated and no room left")
+	void replay_full() throws IOException {
+
+		writeRecords(8);
+
+		try (LogSegment segment = LogSegment.open(directory, 1, SEGMENT_SIZE)) {
+			assertThat(segment.replay(event -> { })).isFalse();
+			assertThat(segment.hasRoom()).isFalse();
+		}
+	}
+
+	@Test
+	@DisplayName("firstSequenceOf - segment file names and other files - sequence or -1")
+	void firstSequenceOf() {
+
+		assertThat(LogSegment.firstSequenceOf(directory.resolve(LogSegment.fileName(42)))).isEqualTo(42);
+		assertThat(LogSegment.firstSequenceOf(directory.resolve("snapshot-00000000000000000042.bin"))).isEqualTo(-1);
+		assertThat(LogSegment.firstSequenceOf(directory.resolve("bookings-x.log"))).isEqualTo(-1);
+	}
+
+	private void writeRecords(int count) throws IOException {
+		try (LogSegment segment = LogSegment.open(directory, 1, SEGMENT_SIZE)) {
+			segment.replay(event -> { });
+			for (int sequence = 1; sequence <= count; sequence++) {
+				segment.append(event(sequence, BookingEvent.Type.BOOKED));
+			}
+			segment.force();
+		}
+	}
+
+	private List<BookingEvent> replayAll() throws IOException {
+		List<BookingEvent> events = new ArrayList<>();
+		try (LogSegment segment = LogSegment.open(directory, 1, SEGMENT_SIZE)) {
+			segment.replay(events::add);
+		}
+		return events;
+	}
+
+	/**
+	 * Flips one byte of the segment file, as a write cut short by a crash would leave it.
+	 */
+	private void corrupt(int offset) throws IOException {
+		try (FileChannel channel = FileChannel.open(directory.resolve(LogSegment.fileName(1)), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer value = ByteBuffer.allocate(1);
+			channel.read(value, offset);
+			value.put(0, (byte) ~value.get(0)).rewind();
+			channel.write(value, offset);
+		}
+	}
+
+	private static BookingEvent event(long sequence, BookingEvent.Type type) {
+		return new BookingEvent(sequence, 100 + sequence, 7, 9, 1_000_000 * sequence, 1_000_000 * sequence + 900_000, type);
+	}
+}